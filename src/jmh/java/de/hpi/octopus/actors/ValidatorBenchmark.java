@@ -0,0 +1,133 @@
+package de.hpi.octopus.actors;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import akka.actor.ActorSystem;
+import akka.testkit.TestActorRef;
+import de.hpi.octopus.benchmarks.BenchmarkDatasets;
+import de.hpi.octopus.configuration.ConfigurationSingleton;
+import de.hpi.octopus.structures.ArrayPliStore;
+import de.hpi.octopus.structures.Dataset;
+import de.hpi.octopus.structures.MatchSet;
+import de.hpi.octopus.structures.PliCache;
+import scala.concurrent.Await;
+import scala.concurrent.duration.Duration;
+
+/**
+ * Measures the validation hot path of the Validator, i.e., findViolation(), getPivotPliWithCache() and intersect(), on synthetic and fixture datasets.
+ * The Validator runs on the calling thread dispatcher and updates its pli cache synchronously within each invocation.
+ * Run with: mvn -P benchmark test-compile exec:exec -Djmh.args="ValidatorBenchmark -p dataset=AbaloneFixture"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidatorBenchmark {
+
+	private static final int NUM_CANDIDATES = 1000;
+	private static final int MAX_LHS_SIZE = 4;
+	private static final long SEED = 42;
+
+	@Param({"synthetic", "AbaloneFixture", "BridgesFixture", "AlgorithmTestFixture", "AlgorithmTestFixture1", "AlgorithmTestFixture10"})
+	public String dataset;
+
+	@Param({"10", "40", "100"})
+	public int validationSmallClusterSize;
+
+	@Param({"1", "3", "4"})
+	public int pliCachePrefixLength;
+
+	@Param({"true", "false"})
+	public boolean compactRecords;
+
+	private ActorSystem system;
+	private Dataset data;
+	private int[][] lhss;
+	private int[] rhss;
+
+	private TestActorRef<Validator> validatorRef;
+	private Validator validator;
+
+	@Setup(Level.Trial)
+	public void setupTrial() throws Exception {
+		Config config = ConfigFactory.parseString("akka.actor.provider = local\nakka.loglevel = WARNING").withFallback(ConfigFactory.defaultReference());
+		this.system = ActorSystem.create("benchmark", config);
+
+		ConfigurationSingleton.get().setValidationSmallClusterSize(this.validationSmallClusterSize);
+		ConfigurationSingleton.get().setPliCachePrefixLength(this.pliCachePrefixLength);
+		ConfigurationSingleton.get().setCompactRecords(this.compactRecords);
+
+		this.data = BenchmarkDatasets.load(this.dataset, SEED);
+
+		int[][] candidates = BenchmarkDatasets.candidates(this.data.getNumAtrributes(), NUM_CANDIDATES, MAX_LHS_SIZE, SEED);
+		this.lhss = new int[NUM_CANDIDATES][];
+		this.rhss = new int[NUM_CANDIDATES];
+		for (int i = 0; i < NUM_CANDIDATES; i++) {
+			this.lhss[i] = Arrays.copyOf(candidates[i], candidates[i].length - 1);
+			this.rhss[i] = candidates[i][candidates[i].length - 1];
+		}
+	}
+
+	@Setup(Level.Iteration)
+	public void setupIteration() {
+		// Start every iteration with an empty cache so that all iterations measure the same mix of cache misses and hits
+		ArrayPliStore plis = new ArrayPliStore(this.data.getPlis());
+		PliCache pliCache = new PliCache(plis);
+		this.validatorRef = TestActorRef.create(this.system, Validator.props(this.data.getRecords(), plis, pliCache, new MatchSet(this.data.getNumAtrributes())));
+		this.validator = this.validatorRef.underlyingActor();
+	}
+
+	@TearDown(Level.Iteration)
+	public void tearDownIteration() {
+		this.system.stop(this.validatorRef);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDownTrial() throws Exception {
+		Await.ready(this.system.terminate(), Duration.Inf());
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(NUM_CANDIDATES)
+	public void findViolation(Blackhole blackhole) {
+		for (int i = 0; i < NUM_CANDIDATES; i++)
+			blackhole.consume(this.validator.findViolation(this.lhss[i], this.rhss[i]));
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(NUM_CANDIDATES)
+	public void getPivotPliWithCache(Blackhole blackhole) {
+		for (int i = 0; i < NUM_CANDIDATES; i++)
+			blackhole.consume(this.validator.getPivotPliWithCache(this.lhss[i]));
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(NUM_CANDIDATES)
+	public void intersect(Blackhole blackhole) {
+		// Intersect the pli of the first lhs attribute with the rhs attribute, which is independent of the cache
+		for (int i = 0; i < NUM_CANDIDATES; i++)
+			blackhole.consume(this.validator.intersect(this.data.getPlis()[this.lhss[i][0]], this.rhss[i]));
+	}
+}
@@ -0,0 +1,120 @@
+package de.hpi.octopus.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import akka.event.NoLogging;
+import de.hpi.octopus.actors.masters.Profiler.DiscoveryTaskMessage;
+import de.hpi.octopus.structures.Dataset;
+import de.metanome.algorithm_integration.input.RelationalInput;
+import de.metanome.algorithm_integration.input.RelationalInputGenerator;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+/**
+ * Builds the pli and pli-record representation of benchmark datasets in the same way as the Preprocessor and Storekeeper do it.
+ * A dataset is either "synthetic" or the simple class name of one of the test fixtures in de.hpi.octopus.fixtures, e.g.,
+ * "AbaloneFixture", "BridgesFixture" or "AlgorithmTestFixture7".
+ */
+public class BenchmarkDatasets {
+
+	public static final String SYNTHETIC = "synthetic";
+
+	private static final String FIXTURE_PACKAGE = "de.hpi.octopus.fixtures.";
+
+	public static Dataset load(String name, long seed) throws Exception {
+		if (SYNTHETIC.equals(name))
+			return synthetic(10000, 20, seed);
+		return fixture(name);
+	}
+
+	public static Dataset synthetic(int numRecords, int numAttributes, long seed) {
+		Random random = new Random(seed);
+
+		// Use domains from very small to almost unique so that the plis range from few large to many small clusters
+		List<List<String>> rows = new ArrayList<>(numRecords);
+		int[] domainSizes = new int[numAttributes];
+		for (int attribute = 0; attribute < numAttributes; attribute++)
+			domainSizes[attribute] = Math.max(2, (int) Math.pow(numRecords, (attribute + 1) / (double) numAttributes) / 2);
+
+		for (int record = 0; record < numRecords; record++) {
+			List<String> row = new ArrayList<>(numAttributes);
+			for (int attribute = 0; attribute < numAttributes; attribute++)
+				row.add(String.valueOf(random.nextInt(domainSizes[attribute])));
+			rows.add(row);
+		}
+
+		String[] columnNames = new String[numAttributes];
+		for (int attribute = 0; attribute < numAttributes; attribute++)
+			columnNames[attribute] = "column" + (attribute + 1);
+
+		return toDataset(SYNTHETIC, columnNames, rows);
+	}
+
+	public static Dataset fixture(String name) throws Exception {
+		Object fixture = Class.forName(FIXTURE_PACKAGE + name).newInstance();
+		RelationalInputGenerator generator = (RelationalInputGenerator) fixture.getClass().getMethod("getInputGenerator").invoke(fixture);
+
+		RelationalInput input = generator.generateNewCopy();
+		String[] columnNames = input.columnNames().toArray(new String[0]);
+		List<List<String>> rows = new ArrayList<>();
+		while (input.hasNext())
+			rows.add(input.next());
+
+		return toDataset(input.relationName(), columnNames, rows);
+	}
+
+	private static Dataset toDataset(String relationName, String[] columnNames, List<List<String>> rows) {
+		int numAttributes = columnNames.length;
+		int numRecords = rows.size();
+
+		// Index the values with null = null semantic and strip clusters of size 1
+		int[][][] plis = new int[numAttributes][][];
+		for (int attribute = 0; attribute < numAttributes; attribute++) {
+			Map<String, IntArrayList> index = new HashMap<>();
+			for (int record = 0; record < numRecords; record++)
+				index.computeIfAbsent(rows.get(record).get(attribute), value -> new IntArrayList()).add(record);
+
+			plis[attribute] = index.values().stream()
+					.filter(cluster -> cluster.size() > 1)
+					.map(IntArrayList::toIntArray)
+					.toArray(int[][]::new);
+		}
+
+		// Sort the attributes and build the pli-records as on the master and the slaves
+		Dataset sorted = new Dataset(new DiscoveryTaskMessage(plis, numRecords, relationName, columnNames), NoLogging.getInstance());
+		return new Dataset(sorted.toPlisMessage(), NoLogging.getInstance());
+	}
+
+	/**
+	 * Generates random, sorted lhs attribute sets of size 1 to maxLhsSize together with an rhs attribute that is not contained in the lhs.
+	 */
+	public static int[][] candidates(int numAttributes, int numCandidates, int maxLhsSize, long seed) {
+		Random random = new Random(seed);
+
+		int[][] candidates = new int[numCandidates][];
+		for (int i = 0; i < numCandidates; i++) {
+			int[] attributes = new int[numAttributes];
+			for (int attribute = 0; attribute < numAttributes; attribute++)
+				attributes[attribute] = attribute;
+			for (int j = numAttributes - 1; j > 0; j--) {
+				int k = random.nextInt(j + 1);
+				int swap = attributes[k];
+				attributes[k] = attributes[j];
+				attributes[j] = swap;
+			}
+
+			int lhsSize = 1 + random.nextInt(Math.min(maxLhsSize, numAttributes - 1));
+			int[] lhs = Arrays.copyOf(attributes, lhsSize);
+			Arrays.sort(lhs);
+
+			// The last array element is the rhs
+			candidates[i] = Arrays.copyOf(lhs, lhsSize + 1);
+			candidates[i][lhsSize] = attributes[lhsSize];
+		}
+		return candidates;
+	}
+}
@@ -0,0 +1,102 @@
+package de.hpi.octopus.logic;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.hpi.octopus.benchmarks.BenchmarkDatasets;
+import de.hpi.octopus.structures.BitSet;
+import de.hpi.octopus.structures.ColumnarRecordStore;
+import de.hpi.octopus.structures.Dataset;
+import de.hpi.octopus.structures.RecordStore;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+/**
+ * Compares the per-attribute record comparison (one isMatch() call and one set() per attribute) with the bulk comparison that writes
+ * the agree-set words directly. The compared record pairs are the neighbors in all pli clusters, i.e., the pairs of the samplers'
+ * first sampling round; the aux counter reports the compared pairs per second.
+ * Run with: mvn -P benchmark test-compile exec:exec -Djmh.args="MatchingLogicBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatchingLogicBenchmark {
+
+	private static final long SEED = 42;
+	private static final int MAX_PAIRS = 1000000;
+
+	@Param({"synthetic", "AbaloneFixture", "BridgesFixture"})
+	public String dataset;
+
+	@Param({"perAttribute", "bulk"})
+	public String comparison;
+
+	@Param({"true", "false"})
+	public boolean compactRecords;
+
+	private RecordStore records;
+	private int numAttributes;
+	private int[] pairs; // Two consecutive entries are the records of one pair
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Comparisons {
+		public long comparisons;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			this.comparisons = 0;
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		Dataset data = BenchmarkDatasets.load(this.dataset, SEED);
+		this.records = new ColumnarRecordStore(data.getPlis(), data.getNumRecords(), this.compactRecords);
+		this.numAttributes = data.getNumAtrributes();
+
+		IntArrayList pairs = new IntArrayList();
+		for (int[][] pli : data.getPlis())
+			for (int[] cluster : pli)
+				for (int index = 0; (index < cluster.length - 1) && (pairs.size() < 2 * MAX_PAIRS); index++) {
+					pairs.add(cluster[index]);
+					pairs.add(cluster[index + 1]);
+				}
+		this.pairs = pairs.toIntArray();
+	}
+
+	@Benchmark
+	public int match(Comparisons comparisons) {
+		BitSet match = new BitSet(this.numAttributes);
+		int numMatches = 0;
+		for (int i = 0; i < this.pairs.length; i += 2) {
+			if ("bulk".equals(this.comparison)) {
+				MatchingLogic.match(this.records, this.pairs[i], this.pairs[i + 1], match);
+			}
+			else {
+				for (int attribute = 0; attribute < this.numAttributes; attribute++)
+					if (MatchingLogic.isMatch(this.records, this.pairs[i], this.pairs[i + 1], attribute))
+						match.set(attribute);
+			}
+			numMatches += match.cardinality();
+			match.clear();
+		}
+		comparisons.comparisons += this.pairs.length / 2;
+		return numMatches;
+	}
+}
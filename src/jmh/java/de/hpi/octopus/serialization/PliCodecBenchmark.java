@@ -0,0 +1,109 @@
+package de.hpi.octopus.serialization;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.twitter.chill.KryoInstantiator;
+
+import de.hpi.octopus.benchmarks.BenchmarkDatasets;
+
+/**
+ * Compares the PliCodec with kryo's default int[][][] serialization on the plis of synthetic and fixture datasets.
+ * The aux counters report the throughput in bytes per second: rawBytes counts the plis' int data (4 bytes per record) and wireBytes counts
+ * the encoded bytes; hence, rawBytes is the encode/decode throughput and wireBytes / rawBytes is the size of the wire format.
+ * Run with: mvn -P benchmark test-compile exec:exec -Djmh.args="PliCodecBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PliCodecBenchmark {
+
+	private static final long SEED = 42;
+
+	@Param({"synthetic", "AbaloneFixture", "BridgesFixture"})
+	public String dataset;
+
+	@Param({"codec", "kryo"})
+	public String format;
+
+	private int[][][] plis;
+	private long rawBytes;
+	private byte[] encoded;
+
+	private Kryo kryo;
+	private Output output;
+	private Input input;
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Bytes {
+		public long rawBytes;
+		public long wireBytes;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			this.rawBytes = 0;
+			this.wireBytes = 0;
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		this.plis = BenchmarkDatasets.load(this.dataset, SEED).getPlis();
+		for (int[][] pli : this.plis)
+			for (int[] cluster : pli)
+				this.rawBytes += 4L * cluster.length;
+
+		this.kryo = new KryoInstantiator().newKryo();
+		this.output = new Output(64 * 1024, -1);
+		this.input = new Input();
+
+		this.encode();
+		this.encoded = this.output.toBytes();
+	}
+
+	private int encode() {
+		this.output.setPosition(0);
+		if ("codec".equals(this.format))
+			PliCodec.write(this.output, this.plis);
+		else
+			this.kryo.writeObject(this.output, this.plis);
+		return this.output.position();
+	}
+
+	@Benchmark
+	public int encode(Bytes bytes) {
+		int size = this.encode();
+		bytes.rawBytes += this.rawBytes;
+		bytes.wireBytes += size;
+		return size;
+	}
+
+	@Benchmark
+	public int[][][] decode(Bytes bytes) {
+		this.input.setBuffer(this.encoded);
+		int[][][] plis = "codec".equals(this.format) ? PliCodec.readPlis(this.input) : this.kryo.readObject(this.input, int[][][].class);
+		bytes.rawBytes += this.rawBytes;
+		bytes.wireBytes += this.encoded.length;
+		return plis;
+	}
+}
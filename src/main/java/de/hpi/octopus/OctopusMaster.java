@@ -10,6 +10,7 @@ import com.typesafe.config.Config;
 import akka.actor.ActorRef;
 import akka.actor.ActorSystem;
 import akka.cluster.Cluster;
+import de.hpi.octopus.actors.MemoryGuardian;
 import de.hpi.octopus.actors.Reaper;
 import de.hpi.octopus.actors.Storekeeper;
 import de.hpi.octopus.actors.listeners.ProgressListener;
@@ -39,6 +40,9 @@ public class OctopusMaster extends OctopusSystem {
 	//	ActorRef metricsListener = system.actorOf(MetricsListener.props(), MetricsListener.DEFAULT_NAME);
 		ActorRef progressListener = system.actorOf(ProgressListener.props(), ProgressListener.DEFAULT_NAME);
 		
+		if (c.isEnableMemoryGuardian())
+			system.actorOf(MemoryGuardian.props(), MemoryGuardian.DEFAULT_NAME);
+		
 		ActorRef preprocessor = system.actorOf(Preprocessor.props(), Preprocessor.DEFAULT_NAME);
 
 		ActorRef profiler = system.actorOf(Profiler.props(), Profiler.DEFAULT_NAME);
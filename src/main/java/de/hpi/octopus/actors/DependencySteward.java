@@ -8,6 +8,8 @@ import akka.actor.AbstractLoggingActor;
 import akka.actor.ActorRef;
 import akka.actor.PoisonPill;
 import akka.actor.Props;
+import de.hpi.octopus.actors.MemoryGuardian.DepthMessage;
+import de.hpi.octopus.actors.MemoryGuardian.TrimmedMessage;
 import de.hpi.octopus.actors.listeners.ProgressListener;
 import de.hpi.octopus.actors.masters.Profiler.CandidateMessage;
 import de.hpi.octopus.actors.masters.Profiler.FDsUpdatedMessage;
@@ -15,6 +17,9 @@ import de.hpi.octopus.configuration.ConfigurationSingleton;
 import de.hpi.octopus.io.FileSink;
 import de.hpi.octopus.structures.BitSet;
 import de.hpi.octopus.structures.Dataset;
+import de.hpi.octopus.structures.FDArenaTree;
+import de.hpi.octopus.structures.FDBitTree;
+import de.hpi.octopus.structures.FDSet;
 import de.hpi.octopus.structures.FDStore;
 import de.hpi.octopus.structures.FDTree;
 import de.hpi.octopus.structures.ValidationEfficiency;
@@ -36,13 +41,29 @@ public class DependencySteward extends AbstractLoggingActor {
 
 	public DependencySteward(final int rhs, final int numAttributes) {
 		this.rhs = rhs;
-		this.fds = new FDTree(numAttributes, rhs);
+		this.fds = createFDStore(ConfigurationSingleton.get().getFdStore(), numAttributes, rhs);
 		
 		this.maxDepth = ConfigurationSingleton.get().getMaxLhsSize();
+		this.enableMemoryGuardian = ConfigurationSingleton.get().isEnableMemoryGuardian();
 		this.maxCandidatesPerRequest = ConfigurationSingleton.get().getMaxCandidatesPerRequest();
 		this.validationThreshold = ConfigurationSingleton.get().getValidationThreshold();
 	}
 
+	private static FDStore createFDStore(final String type, final int numAttributes, final int rhs) {
+		switch (type) {
+			case "tree":
+				return new FDTree(numAttributes, rhs);
+			case "bittree":
+				return new FDBitTree(numAttributes, rhs);
+			case "arena":
+				return new FDArenaTree(numAttributes, rhs);
+			case "set":
+				return new FDSet(numAttributes, rhs);
+			default:
+				throw new IllegalArgumentException("Unknown FD store: " + type);
+		}
+	}
+
 	////////////////////
 	// Actor Messages //
 	////////////////////
@@ -65,6 +86,12 @@ public class DependencySteward extends AbstractLoggingActor {
 		private Dataset dataset;
 	}
 	
+	@Data @NoArgsConstructor @AllArgsConstructor
+	public static class TrimMessage implements Serializable {
+		private static final long serialVersionUID = 4172089023749712635L;
+		private int maxDepth; // The new maximum lhs size; all larger FD candidates are dropped
+	}
+	
 	/////////////////
 	// Actor State //
 	/////////////////
@@ -72,7 +99,9 @@ public class DependencySteward extends AbstractLoggingActor {
 	private int rhs;
 	private FDStore fds;
 	
-	private final int maxDepth; // TODO: Control with memory guardian
+	private int maxDepth; // Lowered by the memory guardian if memory gets exhausted
+	private final boolean enableMemoryGuardian;
+	private int reportedDepth = 0; // The depth of the FD candidates that has last been reported to the memory guardian
 	private final int maxCandidatesPerRequest;
 	private final double validationThreshold;
 	
@@ -84,6 +113,9 @@ public class DependencySteward extends AbstractLoggingActor {
 	public void preStart() {
 		// Register at this actor system's reaper
 		Reaper.watchWithDefaultReaper(this);
+		
+		// Register at the memory guardian
+		this.reportDepth();
 	}
 
 	////////////////////
@@ -96,6 +128,7 @@ public class DependencySteward extends AbstractLoggingActor {
 				.match(InvalidFDsMessage.class, message -> this.time(this::handle, message))
 				.match(CandidateRequestMessage.class, message -> this.time(this::handle, message))
 				.match(FinalizeMessage.class, message -> this.time(this::handle, message))
+				.match(TrimMessage.class, message -> this.time(this::handle, message))
 				.matchAny(object -> this.log().info("Received unknown message: \"{}\"", object.toString()))
 				.build();
 	}
@@ -112,33 +145,11 @@ public class DependencySteward extends AbstractLoggingActor {
 	}
 	
 	protected void handle(InvalidFDsMessage message) {
-		final int numAttributes = this.fds.getNumAttributes();
-		
 		// Prune the candidates from the FDTree and infer new candidates
-		for (BitSet invalidLhs : message.getInvalidLhss()) {
-			for (BitSet generalLhs : this.fds.getLhsAndGeneralizations(invalidLhs)) {
-				BitSet specLhs = generalLhs.clone();
-				this.fds.removeLhs(specLhs);
-				
-				if ((this.maxDepth > 0) && (specLhs.cardinality() >= this.maxDepth))
-					continue;
-				
-				for (int attribute = 0; attribute < numAttributes; attribute++) {
-					if (invalidLhs.get(attribute) || (attribute == this.rhs))
-						continue;
-					
-					specLhs.set(attribute);
-					if (!this.fds.containsLhsOrGeneralization(specLhs)) {
-						this.fds.addLhs(specLhs);
-						
-						// If dynamic memory management is enabled, frequently check the memory consumption and trim the positive cover if it does not fit anymore
-					//	this.memoryGuardian.memoryChanged(1);
-					//	this.memoryGuardian.match(this.negCover, this.posCover, invalidLhs); // TODO: Someone needs to supervise the overall memory consumption
-					}
-					specLhs.clear(attribute);
-				}
-			}
-		}
+		this.fds.specializeAll(message.getInvalidLhss(), this.rhs, this.maxDepth);
+		
+		// If dynamic memory management is enabled, tell the memory guardian that the FD candidates grew
+		this.reportDepth();
 		
 		// Calculate the efficiency
 		final double efficiency = ValidationEfficiency.calculateEfficiency(message.getNumCandidates(), message.getInvalidLhss().length);
@@ -153,6 +164,24 @@ public class DependencySteward extends AbstractLoggingActor {
 		this.sender().tell(new FDsUpdatedMessage(this.rhs, updatePreference, validation, this.fds.hasUnannounceLhss()), this.self());
 	}
 	
+	protected void handle(TrimMessage message) {
+		// Drop all FD candidates that are larger than the new maximum lhs size and never create such candidates again
+		if ((this.maxDepth <= 0) || (message.getMaxDepth() < this.maxDepth))
+			this.maxDepth = message.getMaxDepth();
+		this.fds.trimTree(this.maxDepth);
+		
+		this.reportedDepth = this.fds.getDepth();
+		this.sender().tell(new TrimmedMessage(this.rhs, this.maxDepth, this.reportedDepth), this.self());
+	}
+	
+	private void reportDepth() {
+		if (!this.enableMemoryGuardian || (this.fds.getDepth() <= this.reportedDepth))
+			return;
+		
+		this.reportedDepth = this.fds.getDepth();
+		this.context().actorSelection("/user/" + MemoryGuardian.DEFAULT_NAME).tell(new DepthMessage(this.rhs, this.reportedDepth), this.self());
+	}
+	
 	protected void handle(FinalizeMessage message) {
 		// Collect all valid lhss
 		BitSet allAttributes = new BitSet(this.fds.getNumAttributes());
@@ -2,17 +2,34 @@ package de.hpi.octopus.actors;
 
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletionStage;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.twitter.chill.KryoInstantiator;
 
 import akka.actor.AbstractLoggingActor;
 import akka.actor.ActorRef;
 import akka.actor.ActorSelection;
 import akka.actor.Props;
+import akka.actor.Status;
+import akka.stream.ActorMaterializer;
+import akka.stream.Materializer;
+import akka.stream.SourceRef;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
+import akka.stream.javadsl.StreamRefs;
+import de.hpi.octopus.actors.Storekeeper.PlisMessage;
+import de.hpi.octopus.actors.masters.Preprocessor.IndexingResultMessage;
 import de.hpi.octopus.configuration.ConfigurationSingleton;
-import de.hpi.octopus.structures.KryoPoolSingleton;
+import de.hpi.octopus.serialization.BufferPool;
+import de.hpi.octopus.serialization.BufferPoolSingleton;
+import de.hpi.octopus.serialization.ChunkedInputStream;
+import de.hpi.octopus.serialization.ChunkedOutputStream;
 import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import lombok.AllArgsConstructor;
@@ -30,6 +47,8 @@ public class LargeMessageProxy extends AbstractLoggingActor {
 	public static Props props() {
 		return Props.create(LargeMessageProxy.class);
 	}
+	
+	private static final int BUFFER_SIZE = 64 * 1024; // The size of the serialization buffers that this proxy re-uses for all transfers
 
 	////////////////////
 	// Actor Messages //
@@ -64,15 +83,51 @@ public class LargeMessageProxy extends AbstractLoggingActor {
 	
 	@Data @NoArgsConstructor @AllArgsConstructor
 	public static class BytesMessage implements Serializable {
-		private static final long serialVersionUID = 2940665245810221108L;
+		private static final long serialVersionUID = 2940665245810221109L;
 		private byte[] bytes;
 		private String transferKey;
+		private int chunkIndex;
+		private boolean last;
 	}
 	
 	@Data @NoArgsConstructor @AllArgsConstructor
 	public static class AckBytesMessage implements Serializable {
-		private static final long serialVersionUID = -8119751796961718320L;
+		private static final long serialVersionUID = -8119751796961718321L;
 		private String transferKey;
+		private int numReceivedChunks; // Cumulative, i.e., all chunks with a smaller index have been received
+	}
+	
+	@Data @NoArgsConstructor @AllArgsConstructor
+	public static class SourceRefMessage implements Serializable {
+		private static final long serialVersionUID = 6338264936214729730L;
+		private int senderCounter;
+		private SourceRef<byte[]> sourceRef;
+		private ActorRef sender;
+		private ActorRef receiver;
+	}
+	
+	@Data @NoArgsConstructor @AllArgsConstructor
+	private static class StreamCompletedMessage implements Serializable {
+		private static final long serialVersionUID = -2086372613416598146L;
+		private List<byte[]> chunks;
+		private ActorRef sender;
+		private ActorRef receiver;
+		private long startTime;
+		private ActorRef senderProxy;
+		private int senderCounter;
+	}
+	
+	@Data @NoArgsConstructor @AllArgsConstructor
+	public static class AckStreamMessage implements Serializable {
+		private static final long serialVersionUID = 4811470290327711634L;
+		private int senderCounter;
+	}
+	
+	@Data @NoArgsConstructor @AllArgsConstructor
+	public static class StreamFailedMessage implements Serializable {
+		private static final long serialVersionUID = -7306928405925387746L;
+		private int senderCounter;
+		private String reason;
 	}
 	
 	/////////////////
@@ -82,16 +137,39 @@ public class LargeMessageProxy extends AbstractLoggingActor {
 	private int counter = 0;
 	
 	private Int2ObjectMap<LargeMessage<?>> pendingLargeMessages = new Int2ObjectOpenHashMap<>();
+	private Int2ObjectMap<StreamState> pendingStreams = new Int2ObjectOpenHashMap<>(); // The streamed messages that the receiving proxy has not yet confirmed; kept to resend them in chunks if the stream fails
 	
 	private Map<String, SendState> largeMessagesBeingSend = new HashMap<String, SendState>();
 	private Map<String, ReceiveState> largeMessagesBeingReceived = new HashMap<String, ReceiveState>();
 	
 	private final int maxMessageSize = ConfigurationSingleton.get().getMaxMessageSize();
+	private final int minMessageSize = ConfigurationSingleton.get().getMinMessageSize();
+	private final int windowSize = Math.max(1, ConfigurationSingleton.get().getLargeMessageWindowSize());
+	private final boolean streamLargeMessages = ConfigurationSingleton.get().isStreamLargeMessages();
+	
+	private Materializer materializer; // Created on first use, because most proxies never stream
+	
+	// Actors process their messages sequentially; hence, one kryo instance and one input/output buffer suffice for all transfers of this proxy
+	private final Kryo kryo = new KryoInstantiator().newKryo();
+	private final Output output = new Output(BUFFER_SIZE);
+	private final Input input = new Input(BUFFER_SIZE);
+	
+	private final BufferPool pool = BufferPoolSingleton.get();
 	
 	@Data @AllArgsConstructor
 	private class SendState {
-		private byte[] bytes;
-		private int offset;
+		private List<byte[]> chunks;
+		private int nextChunk;
+		private int numAckedChunks;
+		private boolean recycle; // Chunks can be returned to the buffer pool once acknowledged, because the remote transport has serialized them
+		private long numBytes;
+		private long startTime;
+	}
+	
+	@Data @AllArgsConstructor
+	private class StreamState {
+		private LargeMessage<?> message;
+		private ActorRef sender;
 	}
 	
 	@Data @AllArgsConstructor
@@ -99,6 +177,8 @@ public class LargeMessageProxy extends AbstractLoggingActor {
 		private List<byte[]> bytes;
 		private ActorRef sender;
 		private ActorRef receiver;
+		private long numBytes;
+		private long startTime;
 	}
 	
 	/////////////////////
@@ -117,6 +197,11 @@ public class LargeMessageProxy extends AbstractLoggingActor {
 				.match(AckStartLargeMessage.class, this::handle)
 				.match(BytesMessage.class, this::handle)
 				.match(AckBytesMessage.class, this::handle)
+				.match(SourceRefMessage.class, this::handle)
+				.match(StreamCompletedMessage.class, this::handle)
+				.match(AckStreamMessage.class, this::handle)
+				.match(StreamFailedMessage.class, this::handle)
+				.match(Status.Failure.class, this::handle)
 				.matchAny(object -> this.log().info("Received unknown message: \"{}\"", object.toString()))
 				.build();
 	}
@@ -131,8 +216,20 @@ public class LargeMessageProxy extends AbstractLoggingActor {
 			return;
 		}
 		
+		// Stream bulk data messages with backpressure, if configured
+		if (this.streamLargeMessages && this.isBulkMessage(message.getMessage())) {
+			this.pendingStreams.put(this.counter, new StreamState(message, this.sender()));
+			this.stream(message.getMessage(), receiverProxy, message.getReceiver(), this.counter);
+			this.counter++;
+			return;
+		}
+		
+		this.sendChunked(message, receiverProxy, this.sender());
+	}
+	
+	private void sendChunked(LargeMessage<?> message, ActorSelection receiverProxy, ActorRef sender) {
 		// Send start message
-		receiverProxy.tell(new StartLargeMessage(this.counter, this.sender(), receiver), this.self());
+		receiverProxy.tell(new StartLargeMessage(this.counter, sender, message.getReceiver()), this.self());
 		
 		// Put large message as a pending message
 		this.pendingLargeMessages.put(this.counter, message);
@@ -147,7 +244,7 @@ public class LargeMessageProxy extends AbstractLoggingActor {
 		
 		// Initialize a receiver state for this message
 		String transferKey = senderCounter + "#" + this.counter;
-		this.largeMessagesBeingReceived.put(transferKey, new ReceiveState(new ArrayList<byte[]>(), sender, receiver));
+		this.largeMessagesBeingReceived.put(transferKey, new ReceiveState(new ArrayList<byte[]>(), sender, receiver, 0, System.currentTimeMillis()));
 		
 		// Reply with an acknowledgement
 		this.sender().tell(new AckStartLargeMessage(senderCounter, this.counter), this.self());
@@ -159,42 +256,62 @@ public class LargeMessageProxy extends AbstractLoggingActor {
 		int senderCounter = message.getSenderCounter();
 		int receiverCounter = message.getReceiverCounter();
 		LargeMessage<?> largeMessage = this.pendingLargeMessages.remove(senderCounter);
+		long startTime = System.currentTimeMillis();
 
-		// Serialize the message into bytes
-		byte[] bytes = KryoPoolSingleton.get().toBytesWithClass(largeMessage.getMessage()); // Serialization without class (i.e. toBytesWithoutClass()) is faster, but we need to send class information anyway, so we can simply (and equally efficiently) do it with the serialization itself
+		List<byte[]> chunks = this.serialize(largeMessage.getMessage(), this.pool);
+		long numBytes = 0;
+		for (byte[] chunk : chunks)
+			numBytes += chunk.length;
 		
-//		this.log().info(bytes.length + " bytes serialized; " + Arrays.hashCode(bytes) + " is their hash code");
+		// Local receivers get our chunk arrays by reference; hence, we may only recycle chunks that went through the remote transport
+		boolean recycle = this.sender().path().address().hasGlobalScope();
 		
 		// Initialize a sender state for this message
 		String transferKey = senderCounter + "#" + receiverCounter;
-		this.largeMessagesBeingSend.put(transferKey, new SendState(bytes, 0));
+		SendState state = new SendState(chunks, 0, 0, recycle, numBytes, startTime);
+		this.largeMessagesBeingSend.put(transferKey, state);
 		
-		// Send the first chunk
-		BytesMessage bytesMessage = this.getNextBytesMessage(transferKey);
-		this.sender().tell(bytesMessage, this.self());
+		// Fill the window with the first chunks
+		this.sendChunks(transferKey, state, this.sender());
 	}
 	
 	private void handle(AckBytesMessage message) {
-		BytesMessage bytesMessage = this.getNextBytesMessage(message.getTransferKey());
-		this.sender().tell(bytesMessage, this.self());
-	}
-	
-	private BytesMessage getNextBytesMessage(String transferKey) {
+		String transferKey = message.getTransferKey();
 		SendState state = this.largeMessagesBeingSend.get(transferKey);
+		if (state == null)
+			return;
 		
-		byte[] bytes = state.getBytes();
-		int offset = state.getOffset();
+		// Recycle the chunks that have been acknowledged with this ack
+		if (state.isRecycle()) {
+			for (int i = state.getNumAckedChunks(); i < message.getNumReceivedChunks(); i++)
+				this.pool.releaseArray(state.getChunks().set(i, null));
+		}
 		
-		// Get next chunk
-		byte[] chunk = Arrays.copyOfRange(bytes, offset, Math.min(offset + this.maxMessageSize, bytes.length));
-		state.setOffset(offset + this.maxMessageSize);
+		state.setNumAckedChunks(Math.max(state.getNumAckedChunks(), message.getNumReceivedChunks()));
 		
-		// Delete the large message from the map of tracked messages, if this is the last chunk
-		if (chunk.length < this.maxMessageSize)
+		// Delete the large message from the map of tracked messages, if all chunks have been received
+		if (state.getNumAckedChunks() == state.getChunks().size()) {
 			this.largeMessagesBeingSend.remove(transferKey);
+			this.logThroughput("Sent", state.getNumBytes(), state.getStartTime());
+			return;
+		}
 		
-		// Return the chunk wrapped in a BytesMessage
-		return new BytesMessage(chunk, transferKey);
+		// Refill the window
+		this.sendChunks(transferKey, state, this.sender());
+	}
+	
+	private void sendChunks(String transferKey, SendState state, ActorRef receiverProxy) {
+		List<byte[]> chunks = state.getChunks();
+		
+		// Send chunks until the window of unacknowledged chunks is full
+		while (state.getNextChunk() < chunks.size() && state.getNextChunk() - state.getNumAckedChunks() < this.windowSize) {
+			// Get next chunk and release our reference to it, unless we recycle it after its acknowledgement
+			int nextChunk = state.getNextChunk();
+			byte[] chunk = state.isRecycle() ? chunks.get(nextChunk) : chunks.set(nextChunk, null);
+			state.setNextChunk(nextChunk + 1);
+			
+			receiverProxy.tell(new BytesMessage(chunk, transferKey, nextChunk, nextChunk == chunks.size() - 1), this.self());
+		}
 	}
 
 	private ActorSelection proxyFor(ActorRef actor) {
@@ -211,36 +328,142 @@ public class LargeMessageProxy extends AbstractLoggingActor {
 		String transferKey = message.getTransferKey();
 		byte[] chunk = message.getBytes();
 		
-		// Store the chunk, if it is not complete
-		if (chunk.length == this.maxMessageSize) {
-			this.largeMessagesBeingReceived.get(transferKey).getBytes().add(chunk);
-			
-			this.sender().tell(new AckBytesMessage(transferKey), this.self());
+		ReceiveState state = this.largeMessagesBeingReceived.get(transferKey);
+		if (state == null)
 			return;
-		}
-		
-		// Re-assemble the byte chunks into one array
-		ReceiveState state = this.largeMessagesBeingReceived.remove(transferKey);
 		List<byte[]> chunks = state.getBytes();
-		byte[] bytes = new byte[chunks.size() * this.maxMessageSize + chunk.length];
-		int i = 0;
-		for (byte[] c : chunks) {
-			for (int j = 0; j < c.length; j++) {
-				bytes[i] = c[j];
-				i++;
-			}
-		}
-		for (int j = 0; j < chunk.length; j++) {
-			bytes[i] = chunk[j];
-			i++;
+		
+		// Akka preserves the message order between two actors; hence, the chunks arrive in order
+		if (message.getChunkIndex() != chunks.size()) {
+			this.log().error("Received chunk {} of large message {}, but expected chunk {}; discarding the large message.", message.getChunkIndex(), transferKey, chunks.size());
+			this.largeMessagesBeingReceived.remove(transferKey);
+			return;
 		}
 		
-		// De-serialize the large message
-		Object deserializedMessage = KryoPoolSingleton.get().fromBytes(bytes); // Possible alternative fromBytes(bytes, clazz)
-
-//		this.log().info(bytes.length + " = " + i + " bytes de-serialized; " + Arrays.hashCode(bytes) + " is their hash code");
+		// Store the chunk and acknowledge all chunks received so far
+		chunks.add(chunk);
+		state.setNumBytes(state.getNumBytes() + chunk.length);
+		this.sender().tell(new AckBytesMessage(transferKey, chunks.size()), this.self());
+		
+		if (!message.isLast())
+			return;
+		
+		this.largeMessagesBeingReceived.remove(transferKey);
+		
+		Object deserializedMessage = this.deserialize(chunks);
+		
+		this.logThroughput("Received", state.getNumBytes(), state.getStartTime());
 		
 		// Forward the large message to the parent
 		state.getReceiver().tell(deserializedMessage, state.getSender());
 	}
+	
+	private boolean isBulkMessage(Object message) {
+		return (message instanceof PlisMessage) || (message instanceof IndexingResultMessage);
+	}
+	
+	private void stream(Object message, ActorSelection receiverProxy, ActorRef receiver, int senderCounter) {
+		List<byte[]> chunks = this.serialize(message, null); // The stream serializes the chunks asynchronously, so we cannot know when to recycle them
+		
+		ActorRef sender = this.sender();
+		ActorRef self = this.self();
+		
+		// Offer the chunks as a stream that the receiver pulls with backpressure; each chunk is released as soon as it has been pulled
+		CompletionStage<SourceRef<byte[]>> sourceRef = Source.range(0, chunks.size() - 1)
+				.map(i -> chunks.set(i, null))
+				.runWith(StreamRefs.sourceRef(), this.materializer());
+		sourceRef.whenComplete((ref, failure) -> {
+			if (failure == null)
+				receiverProxy.tell(new SourceRefMessage(senderCounter, ref, sender, receiver), self);
+			else
+				self.tell(new StreamFailedMessage(senderCounter, failure.toString()), self);
+		});
+	}
+	
+	private void handle(SourceRefMessage message) {
+		long startTime = System.currentTimeMillis();
+		ActorRef sender = message.getSender();
+		ActorRef receiver = message.getReceiver();
+		ActorRef senderProxy = this.sender();
+		ActorRef self = this.self();
+		int senderCounter = message.getSenderCounter();
+		
+		// Collect the chunks in a mutable list so that they can be released while de-serializing
+		CompletionStage<StreamCompletedMessage> completion = message.getSourceRef().getSource()
+				.runWith(Sink.<List<byte[]>, byte[]>fold(new ArrayList<>(), (chunks, chunk) -> {
+					chunks.add(chunk);
+					return chunks;
+				}), this.materializer())
+				.thenApply(chunks -> new StreamCompletedMessage(chunks, sender, receiver, startTime, senderProxy, senderCounter));
+		
+		// De-serialize in the actor and not in the stream, because kryo and the input buffer are not thread-safe; report failed streams to the sending proxy, which resends the message in chunks
+		completion.whenComplete((completed, failure) -> {
+			if (failure == null)
+				self.tell(completed, ActorRef.noSender());
+			else
+				senderProxy.tell(new StreamFailedMessage(senderCounter, failure.toString()), ActorRef.noSender());
+		});
+	}
+	
+	private void handle(StreamCompletedMessage message) {
+		long numBytes = 0;
+		for (byte[] chunk : message.getChunks())
+			numBytes += chunk.length;
+		
+		Object deserializedMessage = this.deserialize(message.getChunks());
+		
+		this.logThroughput("Streamed", numBytes, message.getStartTime());
+		
+		// Forward the large message to the parent and let the sending proxy release it
+		message.getReceiver().tell(deserializedMessage, message.getSender());
+		message.getSenderProxy().tell(new AckStreamMessage(message.getSenderCounter()), this.self());
+	}
+	
+	private void handle(AckStreamMessage message) {
+		this.pendingStreams.remove(message.getSenderCounter());
+	}
+	
+	private void handle(StreamFailedMessage message) {
+		StreamState stream = this.pendingStreams.remove(message.getSenderCounter());
+		if (stream == null)
+			return;
+		
+		this.log().warning("Streaming a large message failed ({}); resending it in chunks.", message.getReason());
+		this.sendChunked(stream.getMessage(), this.proxyFor(stream.getMessage().getReceiver()), stream.getSender());
+	}
+	
+	private void handle(Status.Failure failure) {
+		this.log().error(failure.cause(), "Streaming a large message failed.");
+	}
+	
+	private Materializer materializer() {
+		if (this.materializer == null)
+			this.materializer = ActorMaterializer.create(this.context());
+		return this.materializer;
+	}
+	
+	private List<byte[]> serialize(Object message, BufferPool pool) {
+		// Serialize the message directly into chunks so that the chunks can be sent without further copying; the chunks grow from the min to the max message size
+		ChunkedOutputStream stream = new ChunkedOutputStream(this.minMessageSize, this.maxMessageSize, pool);
+		this.output.setOutputStream(stream);
+		this.kryo.writeClassAndObject(this.output, message); // Serialization without class is faster, but we need to send class information anyway, so we can simply (and equally efficiently) do it with the serialization itself
+		this.output.flush();
+		this.output.setOutputStream(null);
+		return stream.getChunks();
+	}
+	
+	private Object deserialize(List<byte[]> chunks) {
+		// De-serialize the large message directly from the chunks without re-assembling them; the chunks are ours now, so they can feed the pool
+		this.input.setInputStream(new ChunkedInputStream(chunks, this.pool));
+		Object message = this.kryo.readClassAndObject(this.input);
+		this.input.setInputStream(null);
+		return message;
+	}
+	
+	private void logThroughput(String action, long numBytes, long startTime) {
+		long duration = Math.max(1, System.currentTimeMillis() - startTime);
+		double megabytes = numBytes / (1024.0 * 1024.0);
+		this.log().info("{} large message of {} MB in {} ms ({} MB/s).", action, String.format("%.2f", megabytes), duration, String.format("%.2f", megabytes * 1000 / duration));
+		this.log().debug("{}", this.pool);
+	}
 }
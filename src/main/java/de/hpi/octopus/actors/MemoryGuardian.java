@@ -0,0 +1,180 @@
+package de.hpi.octopus.actors;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import akka.actor.AbstractLoggingActor;
+import akka.actor.ActorRef;
+import akka.actor.Props;
+import akka.actor.Terminated;
+import akka.cluster.Cluster;
+import akka.cluster.ClusterEvent.CurrentClusterState;
+import akka.cluster.metrics.ClusterMetricsChanged;
+import akka.cluster.metrics.ClusterMetricsExtension;
+import akka.cluster.metrics.NodeMetrics;
+import akka.cluster.metrics.StandardMetrics;
+import akka.cluster.metrics.StandardMetrics.HeapMemory;
+import de.hpi.octopus.actors.DependencySteward.TrimMessage;
+import de.hpi.octopus.configuration.ConfigurationSingleton;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The memory guardian watches the heap usage of its node via the cluster metrics and, if the usage exceeds the configured threshold,
+ * lowers the maximum lhs size of all dependency stewards that registered with it by one. The stewards trim their FD candidates to
+ * that size and report back. Because the heap metric is a moving average and garbage is freed only on the next collection, the
+ * guardian waits for all stewards and a few more metric samples before it trims again.
+ */
+public class MemoryGuardian extends AbstractLoggingActor {
+
+	////////////////////////
+	// Actor Construction //
+	////////////////////////
+
+	public static final String DEFAULT_NAME = "memoryGuardian";
+
+	public static Props props() {
+		return Props.create(MemoryGuardian.class);
+	}
+
+	public MemoryGuardian() {
+		this.maxDepth = ConfigurationSingleton.get().getMaxLhsSize();
+		this.maxHeapUsage = ConfigurationSingleton.get().getMaxHeapUsage();
+	}
+
+	////////////////////
+	// Actor Messages //
+	////////////////////
+
+	@Data @NoArgsConstructor @AllArgsConstructor
+	public static class DepthMessage implements Serializable {
+		private static final long serialVersionUID = 3619240187437409611L;
+		private int rhs;
+		private int depth; // The size of the largest lhs in the sender's FD candidates
+	}
+
+	@Data @NoArgsConstructor @AllArgsConstructor
+	public static class TrimmedMessage implements Serializable {
+		private static final long serialVersionUID = -5282374012396719237L;
+		private int rhs;
+		private int maxDepth; // The maximum lhs size that the sender applied
+		private int depth; // The size of the largest lhs in the sender's FD candidates after trimming
+	}
+
+	/////////////////
+	// Actor State //
+	/////////////////
+
+	private static final int SAMPLES_BETWEEN_TRIMS = 5;
+
+	private final Cluster cluster = Cluster.get(this.context().system());
+	private final ClusterMetricsExtension extension = ClusterMetricsExtension.get(this.context().system());
+
+	private final Map<ActorRef, Integer> stewardDepths = new HashMap<>();	// The registered dependency stewards and their current depths
+	private final Set<ActorRef> pendingStewards = new HashSet<>();			// The stewards that have not yet confirmed the last trim
+
+	private int maxDepth;					// The currently applied maximum lhs size; 0 or less means unlimited
+	private final double maxHeapUsage;		// The share of the maximum heap at which the guardian starts trimming
+	private int samplesToSkip = 0;			// The number of metric samples to ignore until the last trim shows its effect
+
+	/////////////////////
+	// Actor Lifecycle //
+	/////////////////////
+
+	@Override
+	public void preStart() {
+		// Do not register at the reaper, because the guardian should not keep the actor system alive
+		this.extension.subscribe(this.self());
+	}
+
+	@Override
+	public void postStop() {
+		this.extension.unsubscribe(this.self());
+	}
+
+	////////////////////
+	// Actor Behavior //
+	////////////////////
+
+	@Override
+	public Receive createReceive() {
+		return receiveBuilder()
+				.match(ClusterMetricsChanged.class, this::handle)
+				.match(DepthMessage.class, this::handle)
+				.match(TrimmedMessage.class, this::handle)
+				.match(Terminated.class, this::handle)
+				.match(CurrentClusterState.class, message -> {/*Ignore*/})
+				.matchAny(object -> this.log().info("Received unknown message: \"{}\"", object.toString()))
+				.build();
+	}
+
+	protected void handle(DepthMessage message) {
+		if (!this.stewardDepths.containsKey(this.sender()))
+			this.context().watch(this.sender());
+		this.stewardDepths.put(this.sender(), message.getDepth());
+	}
+
+	protected void handle(TrimmedMessage message) {
+		this.stewardDepths.put(this.sender(), message.getDepth());
+
+		this.pendingStewards.remove(this.sender());
+		if (this.pendingStewards.isEmpty())
+			this.log().info("All dependency stewards trimmed their FD candidates to max lhs size {}.", message.getMaxDepth());
+	}
+
+	protected void handle(Terminated message) {
+		this.stewardDepths.remove(message.getActor());
+		this.pendingStewards.remove(message.getActor());
+	}
+
+	protected void handle(ClusterMetricsChanged message) {
+		for (NodeMetrics nodeMetrics : message.getNodeMetrics())
+			if (nodeMetrics.address().equals(this.cluster.selfAddress()))
+				this.guard(nodeMetrics);
+	}
+
+	private void guard(NodeMetrics nodeMetrics) {
+		HeapMemory heap = StandardMetrics.extractHeapMemory(nodeMetrics);
+		if ((heap == null) || this.stewardDepths.isEmpty())
+			return;
+
+		// Wait until the last trim is done and had time to free its memory
+		if (!this.pendingStewards.isEmpty())
+			return;
+		if (this.samplesToSkip > 0) {
+			this.samplesToSkip--;
+			return;
+		}
+
+		final long heapLimit = heap.max().isDefined() ? ((Long) heap.max().get()) : heap.committed();
+		final double heapUsage = ((double) heap.used()) / heapLimit;
+		if (heapUsage < this.maxHeapUsage)
+			return;
+
+		// Lower the maximum lhs size below the largest lhs that any steward currently holds
+		int depth = 0;
+		for (int stewardDepth : this.stewardDepths.values())
+			depth = Math.max(depth, stewardDepth);
+		if (this.maxDepth > 0)
+			depth = Math.min(depth, this.maxDepth);
+
+		if (depth <= 1) {
+			this.log().warning("Heap usage is at {}%, but the FD candidates cannot be trimmed any further.", (int) (heapUsage * 100));
+			this.samplesToSkip = SAMPLES_BETWEEN_TRIMS;
+			return;
+		}
+
+		this.maxDepth = depth - 1;
+		this.log().warning("Heap usage is at {}%; trimming the FD candidates to max lhs size {}.", (int) (heapUsage * 100), this.maxDepth);
+
+		for (ActorRef steward : this.stewardDepths.keySet()) {
+			steward.tell(new TrimMessage(this.maxDepth), this.self());
+			this.pendingStewards.add(steward);
+		}
+		this.samplesToSkip = SAMPLES_BETWEEN_TRIMS;
+	}
+}
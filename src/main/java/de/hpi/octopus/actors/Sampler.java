@@ -2,21 +2,19 @@ package de.hpi.octopus.actors;
 
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 import akka.actor.AbstractLoggingActor;
-import akka.actor.ActorRef;
 import akka.actor.Props;
-import de.hpi.octopus.actors.FilterManipulator.AddAllMessage;
 import de.hpi.octopus.actors.slaves.Worker.DetailedSamplingResultMessage;
 import de.hpi.octopus.actors.slaves.Worker.SamplingMessage;
 import de.hpi.octopus.logic.ConversionLogic;
 import de.hpi.octopus.logic.MatchingLogic;
 import de.hpi.octopus.structures.BitSet;
-import de.hpi.octopus.structures.BloomFilter;
 import de.hpi.octopus.structures.FunctionalDependency;
+import de.hpi.octopus.structures.MatchFilter;
+import de.hpi.octopus.structures.PliStore;
+import de.hpi.octopus.structures.RecordStore;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -29,15 +27,14 @@ public class Sampler extends AbstractLoggingActor {
 	
 	public static final String DEFAULT_NAME = "sampler";
 
-	public static Props props(final int[][] records, final int[][][] plis, final BloomFilter filter, final ActorRef filterManipulator) {
-		return Props.create(Sampler.class, () -> new Sampler(records, plis, filter, filterManipulator));
+	public static Props props(final RecordStore records, final PliStore plis, final MatchFilter filter) {
+		return Props.create(Sampler.class, () -> new Sampler(records, plis, filter));
 	}
 
-	public Sampler(final int[][] records, final int[][][] plis, final BloomFilter filter, final ActorRef filterManipulator) {
+	public Sampler(final RecordStore records, final PliStore plis, final MatchFilter filter) {
 		this.records = records;
 		this.plis = plis;
 		this.filter = filter;
-		this.filterManipulator = filterManipulator;
 	}
 
 	////////////////////
@@ -61,10 +58,9 @@ public class Sampler extends AbstractLoggingActor {
 	// Actor State //
 	/////////////////
 
-	private final int[][] records;
-	private final int[][][] plis;
-	private volatile BloomFilter filter;
-	private final ActorRef filterManipulator;
+	private final RecordStore records;
+	private final PliStore plis;
+	private final MatchFilter filter;
 	
 	/////////////////////
 	// Actor Lifecycle //
@@ -83,38 +79,29 @@ public class Sampler extends AbstractLoggingActor {
 	}
 
 	protected void handle(DetailedSamplingMessage message) {
-		// Reset the filter reference to make its elements effectively volatile (to see changes possibly made in other cache hierarchies)
-		this.filter = this.filter;
-		
-		//List<BitSet> matches = new ArrayList<>(); // With a list, we need to deduplicate after collecting the matches and before removing subsets
-		Set<BitSet> matches = new HashSet<>();
+		// The filter deduplicates the matches, because every match is added to it as soon as it is found
+		List<BitSet> matches = new ArrayList<>();
 		
 		// Match all records with their "distance" neighbor w.r.t. the pli of the given "attribute"
-		BitSet match = new BitSet(this.plis.length);
+		BitSet match = new BitSet(this.plis.getNumAttributes());
 		int numComparisons = 0;
-		for (int[] cluster : this.plis[message.getAttribute()]) {
+		for (int[] cluster : this.plis.getPli(message.getAttribute())) {
 			for (int index = 0; index < cluster.length - message.getDistance(); index++) {
-				for (int attribute = 0; attribute < this.plis.length; attribute++)
-					if (MatchingLogic.isMatch(this.records[cluster[index]], this.records[cluster[index + message.getDistance()]], attribute))
-						match.set(attribute);
+				MatchingLogic.match(this.records, cluster[index], cluster[index + message.getDistance()], match);
 				numComparisons++;
 				
-				if (!this.filter.contains(match)) // A direct "add()" here would require a synchronize method that breaks the actor model, but its faster...
+				if (this.filter.addIfAbsent(match)) // The filter is shared by all samplers and validators of this node and thread-safe
 					matches.add(match.clone());
-				match.clear();
 			}
 		}
 		
-		List<BitSet> prunedMatches = new ArrayList<BitSet>(matches);
-		
-		// Add the discovered matches to the filter so that they are not reported again
-		this.filterManipulator.tell(new AddAllMessage(prunedMatches), this.self());
+		List<BitSet> prunedMatches = matches;
 		
 //		prunedMatches = this.filterSmallMatches(matches);
 		prunedMatches = this.pruneSubsets(prunedMatches);
 		
 		// Convert matches into invalid FDs
-		final List<FunctionalDependency> invalidFDs = ConversionLogic.matches2FDs(prunedMatches, this.plis.length, message.getFinishedRhsAttributes());
+		final List<FunctionalDependency> invalidFDs = ConversionLogic.matches2FDs(prunedMatches, this.plis.getNumAttributes(), message.getFinishedRhsAttributes());
 		
 		int numMatches = matches.size();
 		matches = null;
@@ -124,8 +111,8 @@ public class Sampler extends AbstractLoggingActor {
 	}
 	
 	private List<BitSet> pruneSubsets(List<BitSet> matches) {
-		final BitSet[] transposedMatches = new BitSet[this.plis.length];
-		for (int attribute = 0; attribute < this.plis.length; attribute++) {
+		final BitSet[] transposedMatches = new BitSet[this.plis.getNumAttributes()];
+		for (int attribute = 0; attribute < this.plis.getNumAttributes(); attribute++) {
 			final BitSet b = new BitSet(matches.size());
 			for (int match = 0; match < matches.size(); match++)
 				if (matches.get(match).get(attribute))
@@ -1,28 +1,56 @@
 package de.hpi.octopus.actors;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoSerializable;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
 
 import akka.actor.AbstractLoggingActor;
 import akka.actor.ActorRef;
 import akka.actor.ActorSelection;
+import akka.actor.Cancellable;
 import akka.actor.Props;
+import akka.actor.Terminated;
 import akka.cluster.Cluster;
 import akka.cluster.ClusterEvent.CurrentClusterState;
 import akka.cluster.ClusterEvent.MemberUp;
 import akka.cluster.Member;
 import akka.cluster.MemberStatus;
 import de.hpi.octopus.OctopusMaster;
+import de.hpi.octopus.actors.LargeMessageProxy.LargeMessage;
 import de.hpi.octopus.actors.masters.Profiler;
 import de.hpi.octopus.actors.masters.Profiler.SendPlisMessage;
 import de.hpi.octopus.actors.slaves.Worker.DataMessage;
+import de.hpi.octopus.configuration.ConfigurationSingleton;
+import de.hpi.octopus.serialization.PliCodec;
 import de.hpi.octopus.structures.BloomFilter;
+import de.hpi.octopus.structures.ArrayPliStore;
 import de.hpi.octopus.structures.Dataset;
+import de.hpi.octopus.structures.MappedPliStore;
+import de.hpi.octopus.structures.MappedRecordStore;
+import de.hpi.octopus.structures.MatchFilter;
+import de.hpi.octopus.structures.MatchSet;
 import de.hpi.octopus.structures.PliCache;
+import de.hpi.octopus.structures.PliStore;
+import de.hpi.octopus.structures.RecordStore;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import scala.concurrent.duration.Duration;
 
 public class Storekeeper extends AbstractLoggingActor {
 
@@ -36,6 +64,9 @@ public class Storekeeper extends AbstractLoggingActor {
 		return Props.create(Storekeeper.class);
 	}
 	
+	private static final long ATTACH_INTERVAL = 1000; // Time in ms between two checks for the data of another storekeeper on this host
+	private static final long ATTACH_TIMEOUT = 10 * 60 * 1000; // Time in ms after which we stop waiting for the data of another storekeeper on this host and request the data ourselves
+	
 	////////////////////
 	// Actor Messages //
 	////////////////////
@@ -46,10 +77,41 @@ public class Storekeeper extends AbstractLoggingActor {
 	}
 
 	@Data @NoArgsConstructor @AllArgsConstructor
-	public static class PlisMessage implements Serializable {
+	public static class PlisMessage implements Serializable, KryoSerializable {
 		private static final long serialVersionUID = 1908085462567854277L;
 		private int[][][] plis;
 		private int numRecords;
+		@Override
+		public void write(Kryo kryo, Output output) {
+			output.writeVarInt(this.numRecords, true);
+			PliCodec.write(output, this.plis);
+		}
+		@Override
+		public void read(Kryo kryo, Input input) {
+			this.numRecords = input.readVarInt(true);
+			this.plis = PliCodec.readPlis(input);
+		}
+	}
+	
+	@Data @NoArgsConstructor
+	public static class AttachDataMessage implements Serializable {
+		private static final long serialVersionUID = -4172350981553720541L;
+	}
+	
+	@Data @NoArgsConstructor
+	public static class RegisterFilterPeerMessage implements Serializable {
+		private static final long serialVersionUID = 6412290273361809573L;
+	}
+	
+	@Data @NoArgsConstructor @AllArgsConstructor
+	public static class FilterDeltaMessage implements Serializable {
+		private static final long serialVersionUID = -1953418827326153260L;
+		private byte[] delta; // The compressed filter words that changed on the sender's node
+	}
+	
+	@Data @NoArgsConstructor
+	public static class GossipFilterMessage implements Serializable {
+		private static final long serialVersionUID = 2270816590153302847L;
 	}
 
 	/////////////////
@@ -58,16 +120,23 @@ public class Storekeeper extends AbstractLoggingActor {
 
 	private final Cluster cluster = Cluster.get(this.context().system());
 
-	@SuppressWarnings("unused") // Needed to receive large messages
 	private final ActorRef largeMessageProxy = this.context().actorOf(LargeMessageProxy.props(), LargeMessageProxy.DEFAULT_NAME);
 	
 	private ActorSelection profiler;
+	private String dataName; // Identifies the master's dataset so that all storekeepers on this host can share its files
 	
-	private Dataset dataset;
+	private PliStore plis;
+	private RecordStore records;
+	private final List<Path> dataFiles = new ArrayList<>(); // The files that this storekeeper wrote and, hence, needs to delete
+	private long attachDeadline;
 	private PliCache pliCache;
-	private ActorRef pliCacheManipulator;
-	private BloomFilter filter;
-	private ActorRef filterManipulator;
+	private MatchFilter filter;
+	
+	private final boolean shareFilter = (ConfigurationSingleton.get().getFilterGossipInterval() > 0) && isShareable(ConfigurationSingleton.get().getFilterType());
+	private BloomFilter sharedFilter; // The filter if it is shared with the other storekeepers; null before the filter exists
+	private final Set<ActorRef> filterPeers = new HashSet<>(); // The storekeepers of all other nodes, which receive the deltas of our filter
+	private final List<byte[]> pendingFilterDeltas = new ArrayList<>(); // The deltas that peers sent before our filter existed
+	private Cancellable filterGossip;
 
 	private final List<ActorRef> waitingWorkers = new ArrayList<>();
 	
@@ -85,8 +154,18 @@ public class Storekeeper extends AbstractLoggingActor {
 	}
 
 	@Override
-	public void postStop() {
+	public void postStop() throws IOException {
 		this.cluster.unsubscribe(this.self());
+		
+		if (this.filterGossip != null)
+			this.filterGossip.cancel();
+		
+		if (this.filter != null)
+			this.log().info(this.filter.getStatistics());
+		
+		// Remove the files of the memory-mapped data (storekeepers that attached to these files already mapped or read them)
+		for (Path file : this.dataFiles)
+			Files.deleteIfExists(file);
 	}
 
 	////////////////////
@@ -100,61 +179,283 @@ public class Storekeeper extends AbstractLoggingActor {
 				.match(MemberUp.class, this::handle)
 				.match(SendDataMessage.class, this::handle)
 				.match(PlisMessage.class, this::handle)
+				.match(AttachDataMessage.class, this::handle)
+				.match(RegisterFilterPeerMessage.class, this::handle)
+				.match(FilterDeltaMessage.class, this::handle)
+				.match(GossipFilterMessage.class, this::handle)
+				.match(Terminated.class, this::handle)
 				.matchAny(object -> this.log().info("Received unknown message: \"{}\"", object.toString()))
 				.build();
 	}
 
 	protected void handle(CurrentClusterState message) {
 		message.getMembers().forEach(member -> {
-			if (member.status().equals(MemberStatus.up()))
+			if (member.status().equals(MemberStatus.up())) {
 				this.findProfiler(member);
+				this.findFilterPeer(member);
+			}
 		});
 	}
 
 	protected void handle(MemberUp message) {
 		this.findProfiler(message.member());
+		this.findFilterPeer(message.member());
 	}
 
 	protected void findProfiler(Member member) {
-		if (member.hasRole(OctopusMaster.MASTER_ROLE))
+		if (member.hasRole(OctopusMaster.MASTER_ROLE)) {
 			this.profiler = this.getContext().actorSelection(member.address() + "/user/" + Profiler.DEFAULT_NAME);
+			this.dataName = member.address().hostPort().replaceAll("[^a-zA-Z0-9]", "_") + "_" + member.uniqueAddress().longUid();
+		}
+	}
+	
+	protected void findFilterPeer(Member member) {
+		if (!this.shareFilter || member.address().equals(this.cluster.selfAddress()))
+			return;
+		
+		// Register at the member's storekeeper, which registers back so that both know each other's actor reference
+		this.getContext().actorSelection(member.address() + "/user/" + DEFAULT_NAME).tell(new RegisterFilterPeerMessage(), this.self());
 	}
 	
-	private void handle(SendDataMessage message) {
+	private void handle(RegisterFilterPeerMessage message) {
+		if (!this.shareFilter || !this.filterPeers.add(this.sender()))
+			return;
+		
+		this.context().watch(this.sender());
+		this.sender().tell(new RegisterFilterPeerMessage(), this.self());
+		
+		// The new peer missed all our earlier deltas
+		if (this.sharedFilter != null) {
+			final byte[] snapshot = this.sharedFilter.snapshot();
+			if (snapshot != null)
+				this.largeMessageProxy.tell(new LargeMessage<>(new FilterDeltaMessage(snapshot), this.sender()), this.self());
+		}
+	}
+	
+	private void handle(Terminated message) {
+		this.filterPeers.remove(message.getActor());
+	}
+	
+	private void handle(GossipFilterMessage message) {
+		if (this.filterPeers.isEmpty())
+			return;
+		
+		final byte[] delta = this.sharedFilter.drainDelta();
+		if (delta == null)
+			return;
+		
+		for (ActorRef peer : this.filterPeers)
+			this.largeMessageProxy.tell(new LargeMessage<>(new FilterDeltaMessage(delta), peer), this.self());
+	}
+	
+	private void handle(FilterDeltaMessage message) {
+		if (!this.shareFilter)
+			return;
+		
+		if (this.sharedFilter == null) {
+			this.pendingFilterDeltas.add(message.getDelta());
+			return;
+		}
+		this.applyFilterDelta(message.getDelta());
+	}
+	
+	private void applyFilterDelta(byte[] delta) {
+		try {
+			this.sharedFilter.applyDelta(delta);
+		}
+		catch (IllegalArgumentException e) {
+			this.log().warning("Dropped a filter delta of another storekeeper: {}", e.getMessage());
+		}
+	}
+	
+	private void handle(SendDataMessage message) throws IOException {
 		// If the data is already present, send the data
-		if (this.dataset != null) {
-			final DataMessage dataMessage = new DataMessage(this.dataset.getPlis(), this.dataset.getRecords(), this.pliCache, this.pliCacheManipulator, this.filter, this.filterManipulator);
+		if (this.plis != null) {
+			final DataMessage dataMessage = new DataMessage(this.plis, this.records, this.pliCache, this.filter);
 			this.sender().tell(dataMessage, this.self());
 			return;
 		}
 		
 		// If the data has not yet been requested, send data request
 		if (this.waitingWorkers.isEmpty())
-			this.profiler.tell(new SendPlisMessage(), this.self());
+			this.requestData();
 		
 		// Put the sender of the current request to the waiting list
 		this.waitingWorkers.add(this.sender());
 	}
+	
+	private void requestData() throws IOException {
+		// Without a data directory, we cannot share the data with other storekeepers on this host
+		if (ConfigurationSingleton.get().getDataDirectory() == null) {
+			this.profiler.tell(new SendPlisMessage(), this.self());
+			return;
+		}
+		
+		// The first storekeeper on this host to create the lock file requests and writes the data; all others attach to its files
+		Files.createDirectories(this.getDataDirectory());
+		try {
+			Files.createFile(this.getDataPath(".lock"));
+			this.dataFiles.add(this.getDataPath(".lock"));
+			this.profiler.tell(new SendPlisMessage(), this.self());
+		}
+		catch (FileAlreadyExistsException e) {
+			this.log().info("Waiting for the data of another storekeeper in {}", this.getDataDirectory());
+			this.attachDeadline = System.currentTimeMillis() + ATTACH_TIMEOUT;
+			this.self().tell(new AttachDataMessage(), this.self());
+		}
+	}
+	
+	private void handle(AttachDataMessage message) throws IOException {
+		// The plis file is moved into place last; hence, if it exists, the data is complete
+		if (Files.exists(this.getDataPath(".plis"))) {
+			final MappedRecordStore records = MappedRecordStore.read(this.getDataPath(".records"));
+			final MappedPliStore plis = MappedPliStore.read(this.getDataPath(".plis"));
+			this.log().info("Attached to the data in {}", this.getDataDirectory());
+			
+			this.initialize(plis, records);
+			return;
+		}
+		
+		// If the other storekeeper does not finish in time, request the data ourselves
+		if (System.currentTimeMillis() > this.attachDeadline) {
+			this.log().warning("Timed out waiting for the data in {}; requesting the data from the master", this.getDataDirectory());
+			this.dataName = null;
+			this.profiler.tell(new SendPlisMessage(), this.self());
+			return;
+		}
+		
+		this.context().system().scheduler().scheduleOnce(
+				Duration.create(ATTACH_INTERVAL, TimeUnit.MILLISECONDS), 
+				this.self(), 
+				message, 
+				this.context().dispatcher(), 
+				this.self());
+	}
 
-	private void handle(PlisMessage message) {
+	private void handle(PlisMessage message) throws IOException {
 		// Store plis; this also generates and stores the pli-records
-		this.dataset = new Dataset(message, this.log());
+		final Dataset dataset = this.createDataset(message);
+		this.initialize(this.createPliStore(dataset), dataset.getRecords());
+		
+		// Write dataset to disk for debugging
+//		dataset.writeToDisk("dataset");
+	}
+	
+	private void initialize(PliStore plis, RecordStore records) {
+		this.plis = plis;
+		this.records = records;
 		
-		// Create a pliCache for this dataset
-		this.pliCache = new PliCache(message.getPlis());
-		this.pliCacheManipulator = this.context().actorOf(PliCacheManipulator.props(this.pliCache), PliCacheManipulator.DEFAULT_NAME);
+		// Create a pliCache for this dataset that all validators on this node share
+		this.pliCache = new PliCache(plis, this.maxCacheSize());
 		
-		// Create a filter for this dataset
-		this.filter = new BloomFilter();
-		this.filterManipulator = this.context().actorOf(FilterManipulator.props(this.filter), FilterManipulator.DEFAULT_NAME);
+		// Create a filter for this dataset that all samplers and validators on this node share
+		this.filter = createFilter(ConfigurationSingleton.get().getFilterType(), plis.getNumAttributes());
+		
+		// Add the agree-sets that other nodes found meanwhile and start sharing our own ones
+		if (this.shareFilter) {
+			this.sharedFilter = (BloomFilter) this.filter;
+			for (byte[] delta : this.pendingFilterDeltas)
+				this.applyFilterDelta(delta);
+			this.pendingFilterDeltas.clear();
+			
+			final long gossipInterval = ConfigurationSingleton.get().getFilterGossipInterval();
+			this.filterGossip = this.context().system().scheduler().schedule(
+					Duration.create(gossipInterval, TimeUnit.MILLISECONDS), 
+					Duration.create(gossipInterval, TimeUnit.MILLISECONDS), 
+					this.self(), 
+					new GossipFilterMessage(), 
+					this.context().dispatcher(), 
+					this.self());
+		}
 		
 		// Send the plis, pli-records, cache, and filter to all workers waiting for it
-		final DataMessage dataMessage = new DataMessage(this.dataset.getPlis(), this.dataset.getRecords(), this.pliCache, this.pliCacheManipulator, this.filter, this.filterManipulator);
+		final DataMessage dataMessage = new DataMessage(this.plis, this.records, this.pliCache, this.filter);
 		for (ActorRef worker : this.waitingWorkers)
 			worker.tell(dataMessage, this.self());
 		this.waitingWorkers.clear();
+	}
+
+	/**
+	 * @return true if filters of the given type can be shared between nodes; only Bloom filters encode their changes as deltas
+	 */
+	private static boolean isShareable(final String type) {
+		return "bloom".equals(type);
+	}
+	
+	private static MatchFilter createFilter(final String type, final int numAttributes) {
+		switch (type) {
+			case "bloom":
+				return new BloomFilter(ConfigurationSingleton.get().getFilterExpectedInsertions(), ConfigurationSingleton.get().getFilterFalsePositiveRate());
+			case "exact":
+				return new MatchSet(numAttributes);
+			default:
+				throw new IllegalArgumentException("Unknown filter type: " + type);
+		}
+	}
+	
+	private long maxCacheSize() {
+		Runtime.getRuntime().gc();
 		
-		// Write dataset to disk for debugging
-//		this.dataset.writeToDisk("dataset");
+		long maxMemory = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getMax();
+		long usedMemory = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+		
+		return (long) (0.5 * (maxMemory - usedMemory)); // TODO: parameter? use fix 50% of available memory for cache?
+	}
+	
+	private Dataset createDataset(PlisMessage message) throws IOException {
+		if (ConfigurationSingleton.get().getDataDirectory() == null)
+			return new Dataset(message, this.log());
+		
+		final Path directory = this.getDataDirectory();
+		Files.createDirectories(directory);
+		
+		// Without a shared data name (i.e. attaching failed), we write private files
+		if (this.dataName == null) {
+			final Path recordsFile = Files.createTempFile(directory, this.context().system().name() + "-", ".records");
+			this.dataFiles.add(recordsFile);
+			
+			final MappedRecordStore records = MappedRecordStore.write(recordsFile, message.getPlis(), message.getNumRecords(), ConfigurationSingleton.get().isCompactRecords());
+			this.log().info("Mapped pli-records to {}", recordsFile);
+			
+			return new Dataset(message, records, this.log());
+		}
+		
+		// Write the pli-records into a temporary file and move it into place so that other storekeepers never see a partial file
+		final Path recordsFile = this.getDataPath(".records");
+		final Path tempRecordsFile = this.getDataPath(".records.tmp");
+		this.dataFiles.add(recordsFile);
+		this.dataFiles.add(tempRecordsFile);
+		
+		final MappedRecordStore records = MappedRecordStore.write(tempRecordsFile, message.getPlis(), message.getNumRecords(), ConfigurationSingleton.get().isCompactRecords());
+		Files.move(tempRecordsFile, recordsFile, StandardCopyOption.ATOMIC_MOVE); // The mapping stays valid
+		
+		return new Dataset(message, records, this.log());
+	}
+	
+	private PliStore createPliStore(Dataset dataset) throws IOException {
+		// Without a shared data name, no other storekeeper maps our plis and we keep them on the heap
+		if ((ConfigurationSingleton.get().getDataDirectory() == null) || (this.dataName == null))
+			return new ArrayPliStore(dataset.getPlis());
+		
+		// Write the (sorted) plis into a temporary file and move it into place last, which tells the other storekeepers that the data is complete;
+		// we use the mapped plis ourselves, too, so that the plis on the heap can be collected
+		final Path plisFile = this.getDataPath(".plis");
+		final Path tempPlisFile = this.getDataPath(".plis.tmp");
+		this.dataFiles.add(plisFile);
+		this.dataFiles.add(tempPlisFile);
+		
+		final MappedPliStore plis = MappedPliStore.write(tempPlisFile, dataset.getPlis(), dataset.getNumRecords());
+		Files.move(tempPlisFile, plisFile, StandardCopyOption.ATOMIC_MOVE); // The mapping stays valid
+		this.log().info("Shared plis and pli-records in {}", this.getDataDirectory());
+		
+		return plis;
+	}
+	
+	private Path getDataDirectory() {
+		return Paths.get(ConfigurationSingleton.get().getDataDirectory());
+	}
+	
+	private Path getDataPath(String suffix) {
+		return this.getDataDirectory().resolve(this.dataName + suffix);
 	}
 }
@@ -3,17 +3,11 @@ package de.hpi.octopus.actors;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import akka.actor.AbstractLoggingActor;
 import akka.actor.ActorRef;
 import akka.actor.Props;
-import de.hpi.octopus.actors.FilterManipulator.AddAllMessage;
-import de.hpi.octopus.actors.PliCacheManipulator.BlacklistMessage;
-import de.hpi.octopus.actors.PliCacheManipulator.CacheMessage;
-import de.hpi.octopus.actors.PliCacheManipulator.NotifyMessage;
 import de.hpi.octopus.actors.slaves.Worker.DetailedValidationResultMessage;
 import de.hpi.octopus.actors.slaves.Worker.ValidationMessage;
 import de.hpi.octopus.configuration.ConfigurationSingleton;
@@ -21,9 +15,12 @@ import de.hpi.octopus.logic.ConversionLogic;
 import de.hpi.octopus.logic.MatchingLogic;
 import de.hpi.octopus.structures.BitSet;
 import de.hpi.octopus.structures.FunctionalDependency;
+import de.hpi.octopus.structures.MatchFilter;
 import de.hpi.octopus.structures.PliCache;
 import de.hpi.octopus.structures.PliCacheElement;
-import de.hpi.octopus.structures.ValueCombination;
+import de.hpi.octopus.structures.PliStore;
+import de.hpi.octopus.structures.RecordStore;
+import de.hpi.octopus.structures.ValueCombinationMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.ints.IntArrayList;
 import it.unimi.dsi.fastutil.ints.IntList;
@@ -39,18 +36,18 @@ public class Validator extends AbstractLoggingActor {
 	
 	public static final String DEFAULT_NAME = "validator";
 
-	public static Props props(final int[][] records, final int[][][] plis, final PliCache pliCache, final ActorRef pliCacheManipulator, final ActorRef filterManipulator) {
-		return Props.create(Validator.class, () -> new Validator(records, plis, pliCache, pliCacheManipulator, filterManipulator));
+	public static Props props(final RecordStore records, final PliStore plis, final PliCache pliCache, final MatchFilter filter) {
+		return Props.create(Validator.class, () -> new Validator(records, plis, pliCache, filter));
 	}
 
-	public Validator(final int[][] records, final int[][][] plis, final PliCache pliCache, final ActorRef pliCacheManipulator, final ActorRef filterManipulator) {
+	public Validator(final RecordStore records, final PliStore plis, final PliCache pliCache, final MatchFilter filter) {
 		this.records = records;
 		this.plis = plis;
 		this.pliCache = pliCache;
-		this.pliCacheManipulator = pliCacheManipulator;
 		this.pliCachePrefixLength = ConfigurationSingleton.get().getPliCachePrefixLength();
 		this.validationSmallClusterSize = ConfigurationSingleton.get().getValidationSmallClusterSize();
-		this.filterManipulator = filterManipulator;
+		this.filter = filter;
+		this.lhsValue2rhsValue = new ValueCombinationMap(records);
 	}
 
 	////////////////////
@@ -70,26 +67,17 @@ public class Validator extends AbstractLoggingActor {
 		private boolean[] finishedRhsAttributes;
 	}
 
-	@Data @NoArgsConstructor
-	public static class CacheUpdatedMessage implements Serializable {
-		private static final long serialVersionUID = 4154638604842955833L;
-	}
-	
 	/////////////////
 	// Actor State //
 	/////////////////
 
-	private final int[][] records;
-	private final int[][][] plis;
+	private final RecordStore records;
+	private final PliStore plis;
 	private final PliCache pliCache;
-	private final ActorRef pliCacheManipulator;
 	private final int pliCachePrefixLength;
 	private final int validationSmallClusterSize;
-	private final ActorRef filterManipulator;
-	
-	private boolean cacheUpdateInProgress = false;
-	private DetailedValidationMessage detailedValidationMessage;
-	private ActorRef detailedValidationMessageSender;
+	private final MatchFilter filter;
+	private final ValueCombinationMap lhsValue2rhsValue; // Reused for all large clusters to avoid allocations
 	
 	/////////////////////
 	// Actor Lifecycle //
@@ -103,34 +91,14 @@ public class Validator extends AbstractLoggingActor {
 	public Receive createReceive() {
 		return receiveBuilder()
 				.match(DetailedValidationMessage.class, this::handle)
-				.match(CacheUpdatedMessage.class, this::handle)
 				.matchAny(object -> this.log().info("Received unknown message: \"{}\"", object.toString()))
 				.build();
 	}
 
 	protected void handle(DetailedValidationMessage message) {
-		// Wait processing this message if there is still some pending cache update (if we do not wait for cache updates, the updates could accumulate and exhaust either the memory or the pliCacheManipulator's mail box)
-		if (this.cacheUpdateInProgress) {
-			this.detailedValidationMessage = message;
-			this.detailedValidationMessageSender = this.sender();
-			return;
-		}
-		
-		// Process the message
+		// Process the message; the pli cache is shared by all validators of this node and updated in place, so there are no cache updates to wait for
 		this.process(message, this.sender());
 	}
-
-	protected void handle(CacheUpdatedMessage message) {
-		// Mark update as completed
-		this.cacheUpdateInProgress = false;
-		
-		// Process the pending validation message if one exists
-		if (this.detailedValidationMessage != null) {
-			this.process(this.detailedValidationMessage, this.detailedValidationMessageSender);
-			this.detailedValidationMessage = null;
-			this.detailedValidationMessageSender = null;
-		}
-	}
 	
 	protected void process(DetailedValidationMessage message, ActorRef sender) {
 		// Initialize a container for the invalid FDs
@@ -150,20 +118,16 @@ public class Validator extends AbstractLoggingActor {
 		//	invalidFDs.add(new FunctionalDependency(lhsBitSet, rhs)); // Not necessary, because we compare the two records and find and add this non-FD again 
 			
 			// Compare the two records that caused the violation to find violations for other FDs (= execute comparison suggestion)
-			matches.add(MatchingLogic.match(this.records[violation[0]], this.records[violation[1]]));
+			matches.add(MatchingLogic.match(this.records, violation[0], violation[1]));
 		}
 
-		// Send the matches to the filterManipulator to add the comparison result to the filter so that we do not report the same result again during sampling
+		// Add the comparison results to the filter so that we do not report the same result again during sampling
 		if (!matches.isEmpty())
-			this.filterManipulator.tell(new AddAllMessage(matches), this.self());
-		
-		// Send a notification request to the pliCacheManipulator to wait for the cache to finish all pending updates for this validator before sending more updates
-		if (this.cacheUpdateInProgress)
-			this.pliCacheManipulator.tell(new NotifyMessage(), this.self());
+			this.filter.addAll(matches);
 		
 		// Derive the fds from the match results
 		for (BitSet invalidLhs : matches)
-			for (int invalidRhs = 0; invalidRhs < this.plis.length; invalidRhs++)
+			for (int invalidRhs = 0; invalidRhs < this.plis.getNumAttributes(); invalidRhs++)
 				if (!invalidLhs.get(invalidRhs) && !message.getFinishedRhsAttributes()[invalidRhs])
 					invalidFDs.add(new FunctionalDependency(invalidLhs, invalidRhs));
 		
@@ -207,7 +171,7 @@ public class Validator extends AbstractLoggingActor {
 	// Found 169316 FDs in 17844 ms
 	// With reduction sensitive cache, i.e., only cache if average cluster size decreases to at least 80% (blacklisting)
 	// Found 169316 FDs in 15480 ms
-	private int[] findViolation(int[] lhs, int rhs) {
+	protected int[] findViolation(int[] lhs, int rhs) {
 		// Find a small pli to start with in the cache; create it if necessary
 		int[][] pivotPli = this.getPivotPliWithCache(lhs);
 		
@@ -220,9 +184,7 @@ public class Validator extends AbstractLoggingActor {
 					for (int j = i + 1; j < cluster.length; j++) {
 						final int recordID2 = cluster[j];
 						
-						final int[] record1 = this.records[recordID1];
-						final int[] record2 = this.records[recordID2];
-						if (MatchingLogic.isMatch(record1, record2, lhs) && !MatchingLogic.isMatch(record1, record2, rhs)) {
+						if (MatchingLogic.isMatch(this.records, recordID1, recordID2, lhs) && !MatchingLogic.isMatch(this.records, recordID1, recordID2, rhs)) {
 							final int[] violation = {recordID1, recordID2};
 							return violation;
 						}
@@ -230,28 +192,23 @@ public class Validator extends AbstractLoggingActor {
 				}
 			}
 			else { // For large clusters, compare the records via hashing
-				final Map<ValueCombination, int[]> lhsValue2rhsValue = new HashMap<>();
+				this.lhsValue2rhsValue.reset(cluster.length);
 				for (int i = 0; i < cluster.length; i++) {
 					final int recordID = cluster[i];
 					
 					// If the lhs value is unique, continue
-					if (ValueCombination.isUnique(this.records[recordID], lhs))
+					if (MatchingLogic.isUnique(this.records, recordID, lhs))
 						continue;
 					
-					ValueCombination lhsValue = new ValueCombination(this.records[recordID], lhs);
-					final int rhsValue = this.records[recordID][rhs];
-					
 					// If the lhs value is new, add a new mapping to the rhs value
-					if (!lhsValue2rhsValue.containsKey(lhsValue)) {
-						final int[] rhsValueAndRecord = {rhsValue, recordID};
-						lhsValue2rhsValue.put(lhsValue, rhsValueAndRecord);
+					final int rhsValue = this.records.get(recordID, rhs);
+					final int slot = this.lhsValue2rhsValue.putIfAbsent(recordID, lhs, rhsValue);
+					if (slot < 0)
 						continue;
-					}
 					
 					// If the lhs value hash is known, test if the rhs value is the same and return a violation if not
-					final int[] rhsValueAndRecord = lhsValue2rhsValue.get(lhsValue);
-					if (!MatchingLogic.isEqual(rhsValueAndRecord[0], rhsValue)) {
-						final int[] violation = {recordID, rhsValueAndRecord[1]};
+					if (!MatchingLogic.isEqual(this.lhsValue2rhsValue.getValue(slot), rhsValue)) {
+						final int[] violation = {recordID, this.lhsValue2rhsValue.getRecordId(slot)};
 						return violation;
 					}
 				}
@@ -260,9 +217,9 @@ public class Validator extends AbstractLoggingActor {
 		return null;
 	}
 	
-	private int[][] getPivotPliWithCache(int[] lhs) {
-		// Find a small pli to start with in the cache; create it if necessary
-		int[][] pivotPli = this.plis[lhs[0]];
+	protected int[][] getPivotPliWithCache(int[] lhs) {
+		// Find a small pli to start with in the cache; create it if necessary (a mapped unary pli is copied for this validation only)
+		int[][] pivotPli = this.plis.getPli(lhs[0]);
 		
 		for (int i = 2; (i <= lhs.length) && (i <= this.pliCachePrefixLength); i++) {
 			int[] prefix = Arrays.copyOf(lhs, i);
@@ -274,9 +231,12 @@ public class Validator extends AbstractLoggingActor {
 			if (pliCacheElement != null && pliCacheElement.isBlacklisted())
 				break;
 			
-			// Continue if privotPli was found in the cache
+			// Continue if privotPli was found in the cache; break if it has been evicted meanwhile
 			if (pliCacheElement != null) {
-				pivotPli = pliCacheElement.getPli();
+				final int[][] cachedPli = pliCacheElement.getPli();
+				if (cachedPli == null)
+					break;
+				pivotPli = cachedPli;
 				continue;
 			}
 			
@@ -284,13 +244,12 @@ public class Validator extends AbstractLoggingActor {
 			int[][] intersectionPli = this.intersect(pivotPli, lhs[i - 1]);
 			
 			// Cache or blacklist the intersected pli depending on its reduction 
-			this.cacheUpdateInProgress = true;
 			if (this.pliCache.isWorthCaching(intersectionPli, prefix, pivotPli)) {
-				this.pliCacheManipulator.tell(new CacheMessage(intersectionPli, prefix), this.self());
+				this.pliCache.add(prefix, intersectionPli);
 				pivotPli = intersectionPli;
 			}
 			else {
-				this.pliCacheManipulator.tell(new BlacklistMessage(prefix), this.self());
+				this.pliCache.blacklist(prefix);
 				pivotPli = intersectionPli;
 				break;
 			}
@@ -298,7 +257,7 @@ public class Validator extends AbstractLoggingActor {
 		return pivotPli;
 	}
 	
-	private int[][] intersect(int[][] pli, int attribute) {
+	protected int[][] intersect(int[][] pli, int attribute) {
 		List<IntList> clusters = new ArrayList<>(pli.length);
 		
 		// Intersect the given pli with the pli of the specified attribute
@@ -306,7 +265,7 @@ public class Validator extends AbstractLoggingActor {
 			final Int2ObjectOpenHashMap<IntList> clusterMap = new Int2ObjectOpenHashMap<>();
 			for (int i = 0; i < cluster.length; i++) {
 				final int recordId1 = cluster[i];
-				final int clusterId2 = this.records[recordId1][attribute];
+				final int clusterId2 = this.records.get(recordId1, attribute);
 				
 				if (!clusterMap.containsKey(clusterId2)) {
 					IntArrayList newCluster = new IntArrayList();
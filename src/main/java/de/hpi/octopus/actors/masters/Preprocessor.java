@@ -7,6 +7,11 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
 
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoSerializable;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
 import akka.actor.ActorRef;
 import akka.actor.PoisonPill;
 import akka.actor.Props;
@@ -22,6 +27,7 @@ import de.hpi.octopus.actors.slaves.Indexer.SendAttributesMessage;
 import de.hpi.octopus.configuration.ConfigurationSingleton;
 import de.hpi.octopus.configuration.DatasetDescriptorSingleton;
 import de.hpi.octopus.io.RelationalInputGeneratorSingleton;
+import de.hpi.octopus.serialization.PliCodec;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.objects.Object2IntMap.Entry;
 import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
@@ -51,12 +57,26 @@ public class Preprocessor extends AbstractMaster {
 	}
 	
 	@Data @NoArgsConstructor @AllArgsConstructor
-	public static class IndexingResultMessage implements Serializable {
+	public static class IndexingResultMessage implements Serializable, KryoSerializable {
 		private static final long serialVersionUID = 5074517366545874380L;
 		private int attribute;
 		private int[][] pli;
 		private int inputLength;
 		private int watermark;
+		@Override
+		public void write(Kryo kryo, Output output) {
+			output.writeVarInt(this.attribute, true);
+			output.writeVarInt(this.inputLength, true);
+			output.writeInt(this.watermark);
+			PliCodec.write(output, this.pli);
+		}
+		@Override
+		public void read(Kryo kryo, Input input) {
+			this.attribute = input.readVarInt(true);
+			this.inputLength = input.readVarInt(true);
+			this.watermark = input.readInt();
+			this.pli = PliCodec.read(input);
+		}
 	}
 
 	@Data @NoArgsConstructor @AllArgsConstructor
@@ -8,6 +8,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoSerializable;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
 import akka.actor.ActorRef;
 import akka.actor.PoisonPill;
 import akka.actor.Props;
@@ -16,6 +21,7 @@ import de.hpi.octopus.actors.masters.Preprocessor;
 import de.hpi.octopus.actors.masters.Preprocessor.IndexingDoneMessage;
 import de.hpi.octopus.actors.masters.Preprocessor.IndexingResultMessage;
 import de.hpi.octopus.actors.masters.Preprocessor.ReallocationMessage;
+import de.hpi.octopus.serialization.PliCodec;
 import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.ints.IntArrayList;
@@ -73,13 +79,40 @@ public class Indexer extends AbstractSlave {
 	}
 
 	@Data @NoArgsConstructor @AllArgsConstructor
-	public static class ReceiveAttributesCompactMessage implements Serializable {
+	public static class ReceiveAttributesCompactMessage implements Serializable, KryoSerializable {
 		private static final long serialVersionUID = 9204994179561311962L;
 		private int[] attributes;
 		private int[] offsets;
 		private String[][] values;
 		private int[][][] positions;
 		private int watermark;
+		@Override
+		public void write(Kryo kryo, Output output) {
+			output.writeVarInt(this.attributes.length, true);
+			output.writeInts(this.attributes, true);
+			output.writeInts(this.offsets, true);
+			for (String[] attributeValues : this.values) {
+				output.writeVarInt(attributeValues.length, true);
+				for (String value : attributeValues)
+					output.writeString(value);
+			}
+			PliCodec.write(output, this.positions);
+			output.writeInt(this.watermark);
+		}
+		@Override
+		public void read(Kryo kryo, Input input) {
+			int numAttributes = input.readVarInt(true);
+			this.attributes = input.readInts(numAttributes, true);
+			this.offsets = input.readInts(numAttributes, true);
+			this.values = new String[numAttributes][];
+			for (int i = 0; i < numAttributes; i++) {
+				this.values[i] = new String[input.readVarInt(true)];
+				for (int j = 0; j < this.values[i].length; j++)
+					this.values[i][j] = input.readString();
+			}
+			this.positions = PliCodec.readPlis(input);
+			this.watermark = input.readInt();
+		}
 	}
 	
 	/////////////////
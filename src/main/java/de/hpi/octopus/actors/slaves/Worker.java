@@ -18,9 +18,11 @@ import de.hpi.octopus.actors.masters.Profiler;
 import de.hpi.octopus.actors.masters.Profiler.SamplingResultMessage;
 import de.hpi.octopus.actors.masters.Profiler.ValidationResultMessage;
 import de.hpi.octopus.structures.BitSet;
-import de.hpi.octopus.structures.BloomFilter;
+import de.hpi.octopus.structures.MatchFilter;
 import de.hpi.octopus.structures.FunctionalDependency;
 import de.hpi.octopus.structures.PliCache;
+import de.hpi.octopus.structures.PliStore;
+import de.hpi.octopus.structures.RecordStore;
 import it.unimi.dsi.fastutil.ints.IntArrayList;
 import it.unimi.dsi.fastutil.ints.IntList;
 import lombok.AllArgsConstructor;
@@ -79,12 +81,10 @@ public class Worker extends AbstractSlave {
 	@Data @NoArgsConstructor @AllArgsConstructor
 	public static class DataMessage implements Serializable {
 		private static final long serialVersionUID = -850201357295330326L;
-		private int[][][] plis;
-		private int[][] records;
+		private PliStore plis;
+		private RecordStore records;
 		private PliCache pliCache;
-		private ActorRef pliCacheManipulator;
-		private BloomFilter filter;
-		private ActorRef filterManipulator;
+		private MatchFilter filter;
 	}
 	
 	@Data @AllArgsConstructor @SuppressWarnings("unused")
@@ -161,13 +161,13 @@ public class Worker extends AbstractSlave {
 	
 	private void handle(DataMessage message) {
 		// Store the data
-		this.finishedRhsAttributes = new boolean[message.getPlis().length];
+		this.finishedRhsAttributes = new boolean[message.getPlis().getNumAttributes()];
 		Arrays.fill(this.finishedRhsAttributes, false);
 		this.finishedRhsAttributesCache.forEach(m -> this.finishedRhsAttributes[m.getAttribute()] = true);
 		this.finishedRhsAttributesCache = null;
 		
-		this.validator = this.context().actorOf(Validator.props(message.getRecords(), message.getPlis(), message.getPliCache(), message.getPliCacheManipulator(), message.getFilterManipulator()), Validator.DEFAULT_NAME);
-		this.sampler = this.context().actorOf(Sampler.props(message.getRecords(), message.getPlis(), message.getFilter(), message.getFilterManipulator()), Sampler.DEFAULT_NAME);
+		this.validator = this.context().actorOf(Validator.props(message.getRecords(), message.getPlis(), message.getPliCache(), message.getFilter()), Validator.DEFAULT_NAME);
+		this.sampler = this.context().actorOf(Sampler.props(message.getRecords(), message.getPlis(), message.getFilter()), Sampler.DEFAULT_NAME);
 		
 		// Remove waiting message and sender
 		Object waitingMessage = this.waitingMessage;
@@ -15,13 +15,40 @@ public abstract class Command {
 	@Parameter(names = { "-w", "--numWorkers" }, description = "The number of workers (indexers/validators) to start locally; should be at least one if the algorithm is started standalone (otherwise there are no workers to run the discovery)", required = false)
 	int numWorkers = ConfigurationSingleton.get().getNumWorkers();
 	
-	@Parameter(names = { "-mms", "--maxMessageSize" }, description = "Maximum size of messages in bytes; larger messages will be broken into chunks of this size; needs to be the same value for all actor systems in the cluster", required = false)
+	@Parameter(names = { "-mms", "--maxMessageSize" }, description = "Maximum size of messages in bytes; larger messages will be broken into chunks of at most this size; must fit into Akka's maximum frame size", required = false)
 	int maxMessageSize = ConfigurationSingleton.get().getMaxMessageSize();
 	
+	@Parameter(names = { "-mins", "--minMessageSize" }, description = "Size of the first chunk of a large message in bytes; the chunks of a large message double in size up to the maxMessageSize", required = false)
+	int minMessageSize = ConfigurationSingleton.get().getMinMessageSize();
+	
+	@Parameter(names = { "-lmws", "--largeMessageWindowSize" }, description = "Maximum number of chunks of one large message that are in flight, i.e., sent but not yet acknowledged by the receiver", required = false)
+	int largeMessageWindowSize = ConfigurationSingleton.get().getLargeMessageWindowSize();
+	
+	@Parameter(names = { "-slm", "--streamLargeMessages" }, description = "Transfer plis and indexing results as Akka streams with backpressure instead of the windowed chunk protocol of the large message proxy", required = false, arity = 1)
+	boolean streamLargeMessages = ConfigurationSingleton.get().isStreamLargeMessages();
+	
 	@Parameter(names = { "-pcpl", "--pliCachePrefixLength" }, description = "The maximum number of lhs prefix attributes for which the FD candidate validation should calculate and cache intermediate plis; e.g. for prefix 3 and candidate ABCD->E, we calculate the plis for A, AB, and ABC, cache them and use ABC for validation", required = false)
 	int pliCachePrefixLength = ConfigurationSingleton.get().getPliCachePrefixLength();
 	
 	@Parameter(names = { "-vscs", "--validationSmallClusterSize" }, description = "The maximum size of pli clusters that are validated (i.e. intersected) via nested-loops; larger clusters use hash-maps for validation", required = false)
 	int validationSmallClusterSize = ConfigurationSingleton.get().getPliCachePrefixLength();
 	
+	@Parameter(names = { "-cr", "--compactRecords" }, description = "Store the cluster ids of the pli-records with byte or short width if an attribute has few enough clusters; saves memory but costs some decoding time", required = false, arity = 1)
+	boolean compactRecords = ConfigurationSingleton.get().isCompactRecords();
+	
+	@Parameter(names = { "-dd", "--dataDirectory" }, description = "Directory for the memory-mapped plis and pli-records; if set, the plis and pli-records are stored off-heap in this directory and all storekeepers on the same host share one copy of them that is fetched from the master only once", required = false)
+	String dataDirectory = ConfigurationSingleton.get().getDataDirectory();
+	
+	@Parameter(names = { "-ft", "--filterType" }, description = "The data structure that remembers the agree-sets that the samplers and validators of a node already reported: \"bloom\" (BloomFilter; small, but may drop new agree-sets) or \"exact\" (MatchSet; never drops agree-sets, but needs memory for each of them)", required = false)
+	String filterType = ConfigurationSingleton.get().getFilterType();
+	
+	@Parameter(names = { "-fei", "--filterExpectedInsertions" }, description = "The number of distinct agree-sets that the Bloom filter of a node is sized for; more agree-sets raise the filter's false positive rate, which lets the samplers drop new agree-sets", required = false)
+	long filterExpectedInsertions = ConfigurationSingleton.get().getFilterExpectedInsertions();
+	
+	@Parameter(names = { "-ffpr", "--filterFalsePositiveRate" }, description = "The false positive rate that the Bloom filter of a node should have when it holds filterExpectedInsertions agree-sets", required = false)
+	double filterFalsePositiveRate = ConfigurationSingleton.get().getFilterFalsePositiveRate();
+	
+	@Parameter(names = { "-fgi", "--filterGossipInterval" }, description = "Time in ms between two rounds in which each storekeeper sends the changed words of its Bloom filter to all other storekeepers so that no node reports agree-sets that another node already reported; 0 disables the gossip, which never runs for the exact filter type", required = false)
+	long filterGossipInterval = ConfigurationSingleton.get().getFilterGossipInterval();
+	
 }
@@ -24,6 +24,9 @@ public class CommandMaster extends Command {
 
 	@Parameter(names = { "-emg", "--enableMemoryGuardian" }, description = "The memory guardian monitors the memory consumption and automatically lowers the maxLhsSize if memory is exhausted", required = false)
 	boolean enableMemoryGuardian = ConfigurationSingleton.get().isEnableMemoryGuardian();
+
+	@Parameter(names = { "-mhu", "--maxHeapUsage" }, description = "The share of the maximum heap above which the memory guardian lowers the maxLhsSize", required = false)
+	double maxHeapUsage = ConfigurationSingleton.get().getMaxHeapUsage();
 	
 	@Parameter(names = { "-sp", "--startPaused" }, description = "Wait for some console input to start the discovery; useful, if we want to wait manually until all ActorSystems in the cluster are started (e.g. to avoid work stealing effects in performance evaluations)", required = false)
 	boolean startPaused = ConfigurationSingleton.get().isStartPaused();
@@ -31,6 +34,9 @@ public class CommandMaster extends Command {
 	@Parameter(names = { "-mcpr", "--maxCandidatesPerRequest" }, description = "Maximum number of FD candidates per candidate validation request; these batches of candidates are validated sequentially", required = false)
 	int maxCandidatesPerRequest = ConfigurationSingleton.get().getMaxCandidatesPerRequest();
 
+	@Parameter(names = { "-fds", "--fdStore" }, description = "The data structure that holds the FD candidates of a dependency steward: \"tree\" (FDTree), \"bittree\" (FDTree with child bitmaps; smaller and faster on wide relations), \"arena\" (FDTree in a primitive int arena; for very many candidates) or \"set\" (FDSet)", required = false)
+	String fdStore = ConfigurationSingleton.get().getFdStore();
+
 	@Parameter(names = { "-bs", "--bufferSize" }, description = "Buffer for input reading (the DatasetReader pre-fetches and buffers this many records)", required = false)
 	int bufferSize = ConfigurationSingleton.get().getBufferSize();
 	
@@ -24,17 +24,28 @@ public class Configuration {
 	private int inputRowLimit = -1;					// Maximum number of rows to be read from for analysis; values smaller or equal 0 will cause the algorithm to read all rows
 	private boolean nullEqualsNull = true;			// The null semantic for comparing null values; null is always in-equal to any other value, but null==null might evaluate to true or false; true is used by most FD discovery algorithms
 	private boolean enableMemoryGuardian = false;	// The memory guardian monitors the memory consumption and automatically lowers the maxLhsSize if memory is exhausted
+	private double maxHeapUsage = 0.85;				// The share of the maximum heap above which the memory guardian lowers the maxLhsSize
 	
 	private boolean startPaused = false;			// Wait for some console input to start the discovery; useful, if we want to wait manually until all ActorSystems in the cluster are started (e.g. to avoid work stealing effects in performance evaluations)
 	
 	private int bufferSize = 100; 					// Buffer for input reading (the DatasetReader pre-fetches and buffers this many records)
-	private int maxMessageSize = 1000;				// Maximum size of messages in bytes; larger messages will be broken into chunks of this size; needs to be the same value for all actor systems in the cluster; hence, its not a parameter of the algorithm
+	private int maxMessageSize = 128 * 1024;		// Maximum size of messages in bytes; larger messages will be broken into chunks of at most this size; must fit into Akka's maximum frame size
+	private int minMessageSize = 1000;				// Size of the first chunk of a large message in bytes; the chunks of a large message double in size up to the maxMessageSize so that small messages are not padded into large chunks
+	private int largeMessageWindowSize = 16;		// Maximum number of chunks of one large message that are in flight, i.e., sent but not yet acknowledged by the receiver
+	private boolean streamLargeMessages = false;	// Transfer plis and indexing results as Akka streams with backpressure instead of the windowed chunk protocol of the large message proxy
 	
 	private int maxCandidatesPerRequest = 30;		// Maximum number of FD candidates per candidate validation request; these batches of candidates are validated sequentially
 	private double validationThreshold = 0.8;		// Proportion of true FD candidates in all FD candidates of one validation request; validationThreshold = true/all; if the actual validation efficiency is below that threshold, the dependency Steward switches its discovery strategy from candidate validation to sampling
+	private String fdStore = "tree";				// The data structure that holds the FD candidates of a dependency steward: "tree" (FDTree), "bittree" (FDTree with child bitmaps; smaller and faster on wide relations), "arena" (FDTree in a primitive int arena; for very many candidates) or "set" (FDSet)
 	
 	private int pliCachePrefixLength = 3;			// The maximum number of lhs prefix attributes for which the FD candidate validation should calculate and cache intermediate plis; e.g. for prefix 3 and candidate ABCD->E, we calculate the plis for A, AB, and ABC, cache them and use ABC for validation
 	private int validationSmallClusterSize = 40;	// The maximum size of pli clusters that are validated (i.e. intersected) via nested-loops; larger clusters use hash-maps for validation
+	private boolean compactRecords = true;			// Store the cluster ids of the pli-records with byte or short width if an attribute has few enough clusters; saves memory but costs some decoding time
+	private String dataDirectory = null;			// Directory for the memory-mapped plis and pli-records; if set, the plis and pli-records are stored off-heap in this directory and all storekeepers on the same host share one copy of them that is fetched from the master only once
+	private String filterType = "bloom";			// The data structure that remembers the agree-sets that the samplers and validators of a node already reported: "bloom" (BloomFilter; small, but may drop new agree-sets) or "exact" (MatchSet; never drops agree-sets, but needs memory for each of them)
+	private long filterExpectedInsertions = 10000000;	// The number of distinct agree-sets that the Bloom filter of a node is sized for; more agree-sets raise the filter's false positive rate, which lets the samplers drop new agree-sets
+	private double filterFalsePositiveRate = 0.01;	// The false positive rate that the Bloom filter of a node should have when it holds filterExpectedInsertions agree-sets
+	private long filterGossipInterval = 1000;		// Time in ms between two rounds in which each storekeeper sends the changed words of its Bloom filter to all other storekeepers so that no node reports agree-sets that another node already reported; 0 disables the gossip, which never runs for the exact filter type
 	
 	private static String getDefaultHost() {
         try {
@@ -52,13 +63,24 @@ public class Configuration {
 		this.inputRowLimit = commandMaster.inputRowLimit;
 		this.nullEqualsNull = commandMaster.nullEqualsNull;
 		this.enableMemoryGuardian = commandMaster.enableMemoryGuardian;
+		this.maxHeapUsage = commandMaster.maxHeapUsage;
 		this.startPaused = commandMaster.startPaused;
 		this.bufferSize = commandMaster.bufferSize;
 		this.maxMessageSize = commandMaster.maxMessageSize;
+		this.minMessageSize = commandMaster.minMessageSize;
+		this.largeMessageWindowSize = commandMaster.largeMessageWindowSize;
+		this.streamLargeMessages = commandMaster.streamLargeMessages;
 		this.validationThreshold = commandMaster.validationThreshold;
 		this.maxCandidatesPerRequest = commandMaster.maxCandidatesPerRequest;
+		this.fdStore = commandMaster.fdStore;
 		this.pliCachePrefixLength = commandMaster.pliCachePrefixLength;
 		this.validationSmallClusterSize = commandMaster.validationSmallClusterSize;
+		this.compactRecords = commandMaster.compactRecords;
+		this.dataDirectory = commandMaster.dataDirectory;
+		this.filterType = commandMaster.filterType;
+		this.filterExpectedInsertions = commandMaster.filterExpectedInsertions;
+		this.filterFalsePositiveRate = commandMaster.filterFalsePositiveRate;
+		this.filterGossipInterval = commandMaster.filterGossipInterval;
 	}
 
 	public void update(CommandSlave commandSlave) {
@@ -68,7 +90,16 @@ public class Configuration {
 		this.masterPort = commandSlave.masterport;
 		this.numWorkers = commandSlave.numWorkers;
 		this.maxMessageSize = commandSlave.maxMessageSize;
+		this.minMessageSize = commandSlave.minMessageSize;
+		this.largeMessageWindowSize = commandSlave.largeMessageWindowSize;
+		this.streamLargeMessages = commandSlave.streamLargeMessages;
 		this.pliCachePrefixLength = commandSlave.pliCachePrefixLength;
 		this.validationSmallClusterSize = commandSlave.validationSmallClusterSize;
+		this.compactRecords = commandSlave.compactRecords;
+		this.dataDirectory = commandSlave.dataDirectory;
+		this.filterType = commandSlave.filterType;
+		this.filterExpectedInsertions = commandSlave.filterExpectedInsertions;
+		this.filterFalsePositiveRate = commandSlave.filterFalsePositiveRate;
+		this.filterGossipInterval = commandSlave.filterGossipInterval;
 	}
 }
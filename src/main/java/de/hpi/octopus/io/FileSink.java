@@ -12,10 +12,11 @@ import akka.event.LoggingAdapter;
 import de.hpi.octopus.structures.BitSet;
 import de.hpi.octopus.structures.Dataset;
 import de.hpi.octopus.structures.FunctionalDependency;
+import de.hpi.octopus.structures.RecordStore;
 
 public class FileSink {
 
-	public static void write(int[][][] plis, int[][] records, String path) {
+	public static void write(int[][][] plis, RecordStore records, String path) {
 		try (BufferedWriter writer = createWriter(Paths.get(path))) {
 			for (int[][] pli : plis) {
 				writer.write("[");
@@ -28,9 +29,9 @@ public class FileSink {
 				writer.write("]\r\n");
 			}
 		    
-		    for (int[] record : records)
-		    	for (int val : record)
-		    		writer.write(val + " ");
+		    for (int record = 0; record < records.getNumRecords(); record++)
+		    	for (int attribute = 0; attribute < records.getNumAttributes(); attribute++)
+		    		writer.write(records.get(record, attribute) + " ");
 		}
 		catch (IOException e) {
 			System.out.println(e.getMessage());
@@ -1,29 +1,49 @@
 package de.hpi.octopus.logic;
 
 import de.hpi.octopus.structures.BitSet;
+import de.hpi.octopus.structures.RecordStore;
 
 public class MatchingLogic {
 
-	public static BitSet match(final int[] record1, final int[] record2) {
-		BitSet matches = new BitSet(record1.length);
-		for (int attribute = 0; attribute < record1.length; attribute++)
-			if (isEqual(record1[attribute], record2[attribute]))
-				matches.set(attribute);
+	public static BitSet match(final RecordStore records, final int record1, final int record2) {
+		BitSet matches = new BitSet(records.getNumAttributes());
+		records.match(record1, record2, matches);
 		return matches;
 	}
 	
-	public static boolean isMatch(final int[] record1, final int[] record2, final int[] attributes) {
+	/**
+	 * Compare the two records in all attributes at once and write their agree-set into the given BitSet, overwriting all its bits.
+	 */
+	public static void match(final RecordStore records, final int record1, final int record2, final BitSet matches) {
+		records.match(record1, record2, matches);
+	}
+	
+	/**
+	 * Compare the two records in all attributes at once and write their agree-set into the given words, overwriting all of them.
+	 */
+	public static void match(final RecordStore records, final int record1, final int record2, final long[] words) {
+		records.match(record1, record2, words);
+	}
+	
+	public static boolean isMatch(final RecordStore records, final int record1, final int record2, final int[] attributes) {
 		for (int i = 0; i < attributes.length; i++)
-			if (!isEqual(record1[attributes[i]], record2[attributes[i]]))
+			if (!isEqual(records.get(record1, attributes[i]), records.get(record2, attributes[i])))
 				return false;
 		return true;
 	}
 	
-	public static boolean isMatch(final int[] record1, final int[] record2, final int attribute) {
-		return isEqual(record1[attribute], record2[attribute]);
+	public static boolean isMatch(final RecordStore records, final int record1, final int record2, final int attribute) {
+		return isEqual(records.get(record1, attribute), records.get(record2, attribute));
 	}
 
 	public static boolean isEqual(final int value1, final int value2) {
 		return (value1 == value2) && (value1 != -1);
 	}
+	
+	public static boolean isUnique(final RecordStore records, final int record, final int[] attributes) {
+		for (int i = 0; i < attributes.length; i++)
+			if (records.get(record, attributes[i]) == -1)
+				return true;
+		return false;
+	}
 }
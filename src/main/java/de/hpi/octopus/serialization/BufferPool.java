@@ -0,0 +1,125 @@
+package de.hpi.octopus.serialization;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, thread-safe pool of direct ByteBuffers and heap byte arrays. The buffers are organized in power-of-two size classes; a request
+ * is served from the smallest class that fits it, so a buffer can be larger than requested. Every size class keeps at most a fixed number of
+ * free buffers and requests larger than the largest size class are not pooled at all, which bounds the memory that the pool retains.
+ * The counters report how many buffers the pool had to allocate, how many it could reuse and how many released buffers it dropped.
+ */
+public class BufferPool {
+
+	private static final int MIN_SIZE_CLASS = 10; // 1 KB
+	private static final int MAX_SIZE_CLASS = 22; // 4 MB
+	
+	private final ArrayBlockingQueue<ByteBuffer>[] buffers;
+	private final ArrayBlockingQueue<byte[]>[] arrays;
+	
+	private final AtomicLong numAllocations = new AtomicLong();
+	private final AtomicLong numReuses = new AtomicLong();
+	private final AtomicLong numDrops = new AtomicLong();
+	
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public BufferPool(int maxBuffersPerSizeClass) {
+		this.buffers = new ArrayBlockingQueue[MAX_SIZE_CLASS - MIN_SIZE_CLASS + 1];
+		this.arrays = new ArrayBlockingQueue[MAX_SIZE_CLASS - MIN_SIZE_CLASS + 1];
+		for (int i = 0; i < this.buffers.length; i++) {
+			this.buffers[i] = new ArrayBlockingQueue<>(maxBuffersPerSizeClass);
+			this.arrays[i] = new ArrayBlockingQueue<>(maxBuffersPerSizeClass);
+		}
+	}
+	
+	/**
+	 * Calculates the size of the buffers that the pool hands out for the given request size.
+	 * @param size the requested number of bytes
+	 * @return the smallest power of two that is at least the requested size and the minimum size class; or the size itself, if it is too large for pooling
+	 */
+	public static int capacityFor(int size) {
+		if (size > (1 << MAX_SIZE_CLASS))
+			return size;
+		return Math.max(1 << MIN_SIZE_CLASS, Integer.highestOneBit(size - 1) << 1);
+	}
+	
+	private static int indexOf(int capacity) {
+		if ((capacity > (1 << MAX_SIZE_CLASS)) || (capacity < (1 << MIN_SIZE_CLASS)) || (Integer.bitCount(capacity) != 1))
+			return -1;
+		return Integer.numberOfTrailingZeros(capacity) - MIN_SIZE_CLASS;
+	}
+	
+	/**
+	 * Takes a direct buffer with at least the given capacity from the pool or allocates a new one.
+	 * @param size the minimum capacity of the buffer
+	 * @return a cleared direct buffer in big endian byte order
+	 */
+	public ByteBuffer acquire(int size) {
+		final int capacity = capacityFor(size);
+		final int index = indexOf(capacity);
+		
+		ByteBuffer buffer = (index < 0) ? null : this.buffers[index].poll();
+		if (buffer == null) {
+			this.numAllocations.incrementAndGet();
+			return ByteBuffer.allocateDirect(capacity);
+		}
+		this.numReuses.incrementAndGet();
+		buffer.clear();
+		return buffer;
+	}
+	
+	/**
+	 * Returns a buffer that was acquired from this pool; the caller must not use the buffer afterwards.
+	 * @param buffer the buffer to be returned
+	 */
+	public void release(ByteBuffer buffer) {
+		final int index = indexOf(buffer.capacity());
+		if ((index < 0) || !buffer.isDirect() || !this.buffers[index].offer(buffer))
+			this.numDrops.incrementAndGet();
+	}
+	
+	/**
+	 * Takes a heap array with at least the given length from the pool or allocates a new one; the content of the array is undefined.
+	 * @param size the minimum length of the array
+	 * @return the array
+	 */
+	public byte[] acquireArray(int size) {
+		final int capacity = capacityFor(size);
+		final int index = indexOf(capacity);
+		
+		byte[] array = (index < 0) ? null : this.arrays[index].poll();
+		if (array == null) {
+			this.numAllocations.incrementAndGet();
+			return new byte[capacity];
+		}
+		this.numReuses.incrementAndGet();
+		return array;
+	}
+	
+	/**
+	 * Returns an array that was acquired from this pool; the caller must not use the array afterwards.
+	 * @param array the array to be returned
+	 */
+	public void releaseArray(byte[] array) {
+		final int index = indexOf(array.length);
+		if ((index < 0) || !this.arrays[index].offer(array))
+			this.numDrops.incrementAndGet();
+	}
+	
+	public long getNumAllocations() {
+		return this.numAllocations.get();
+	}
+	
+	public long getNumReuses() {
+		return this.numReuses.get();
+	}
+	
+	public long getNumDrops() {
+		return this.numDrops.get();
+	}
+	
+	@Override
+	public String toString() {
+		return "BufferPool[allocations=" + this.getNumAllocations() + ", reuses=" + this.getNumReuses() + ", drops=" + this.getNumDrops() + "]";
+	}
+}
@@ -0,0 +1,11 @@
+package de.hpi.octopus.serialization;
+
+public class BufferPoolSingleton {
+
+	private static final int MAX_BUFFERS_PER_SIZE_CLASS = 16;
+	private static final BufferPool pool = new BufferPool(MAX_BUFFERS_PER_SIZE_CLASS);
+	
+	public static BufferPool get() {
+		return pool;
+	}
+}
@@ -0,0 +1,65 @@
+package de.hpi.octopus.serialization;
+
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * An InputStream that reads a list of chunks one after the other without assembling them. Chunks that have been read completely are removed
+ * from the list so that they can be garbage collected while the rest of the stream is still being read. If a BufferPool is given,
+ * these chunks are released into the pool instead.
+ */
+public class ChunkedInputStream extends InputStream {
+
+	private final List<byte[]> chunks;
+	private final BufferPool pool;
+	private int chunkIndex = 0;
+	private int position = 0;
+	
+	public ChunkedInputStream(List<byte[]> chunks) {
+		this(chunks, null);
+	}
+	
+	public ChunkedInputStream(List<byte[]> chunks, BufferPool pool) {
+		this.chunks = chunks;
+		this.pool = pool;
+	}
+	
+	private boolean nextChunk() {
+		while (this.chunkIndex < this.chunks.size() && this.position == this.chunks.get(this.chunkIndex).length) {
+			byte[] chunk = this.chunks.set(this.chunkIndex, null);
+			if (this.pool != null)
+				this.pool.releaseArray(chunk);
+			this.chunkIndex++;
+			this.position = 0;
+		}
+		return this.chunkIndex < this.chunks.size();
+	}
+	
+	@Override
+	public int read() {
+		if (!this.nextChunk())
+			return -1;
+		return this.chunks.get(this.chunkIndex)[this.position++] & 0xFF;
+	}
+	
+	@Override
+	public int read(byte[] bytes, int offset, int length) {
+		if (length == 0)
+			return 0;
+		if (!this.nextChunk())
+			return -1;
+		
+		final byte[] chunk = this.chunks.get(this.chunkIndex);
+		final int n = Math.min(length, chunk.length - this.position);
+		System.arraycopy(chunk, this.position, bytes, offset, n);
+		this.position += n;
+		return n;
+	}
+	
+	@Override
+	public int available() {
+		if (this.chunkIndex >= this.chunks.size())
+			return 0;
+		return this.chunks.get(this.chunkIndex).length - this.position;
+	}
+}
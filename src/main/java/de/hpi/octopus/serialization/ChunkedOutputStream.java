@@ -0,0 +1,96 @@
+package de.hpi.octopus.serialization;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An OutputStream that writes into a list of chunks instead of one contiguous array, so that the chunks can be sent as they are.
+ * The chunks start with a minimum size and double in size up to a maximum size, so that small streams produce small chunks and large
+ * streams quickly reach the maximum chunk size. All chunks but the last one are full; the last chunk is trimmed to its content.
+ * If a BufferPool is given, the full chunks are taken from the pool; their sizes are then rounded to the pool's power-of-two size classes
+ * (the maximum size is rounded down) and the owner of the chunks may release them into the pool once they are no longer needed.
+ */
+public class ChunkedOutputStream extends OutputStream {
+
+	private final int maxChunkSize;
+	private final BufferPool pool;
+	private final List<byte[]> chunks = new ArrayList<>();
+	private byte[] chunk;
+	private int position;
+	
+	public ChunkedOutputStream(int chunkSize) {
+		this(chunkSize, chunkSize);
+	}
+	
+	public ChunkedOutputStream(int minChunkSize, int maxChunkSize) {
+		this(minChunkSize, maxChunkSize, null);
+	}
+	
+	public ChunkedOutputStream(int minChunkSize, int maxChunkSize, BufferPool pool) {
+		maxChunkSize = Math.max(minChunkSize, maxChunkSize);
+		
+		// Use only chunk sizes that match the pool's size classes exactly and do not exceed the maximum chunk size
+		if ((pool != null) && (BufferPool.capacityFor(1) <= maxChunkSize)) {
+			maxChunkSize = Integer.highestOneBit(maxChunkSize);
+			minChunkSize = Math.min(maxChunkSize, BufferPool.capacityFor(minChunkSize));
+		}
+		else {
+			pool = null;
+		}
+		
+		this.maxChunkSize = maxChunkSize;
+		this.pool = pool;
+		this.chunk = this.allocate(minChunkSize);
+	}
+	
+	private byte[] allocate(int size) {
+		return (this.pool == null) ? new byte[size] : this.pool.acquireArray(size);
+	}
+	
+	@Override
+	public void write(int b) {
+		if (this.position == this.chunk.length)
+			this.nextChunk();
+		this.chunk[this.position++] = (byte) b;
+	}
+	
+	@Override
+	public void write(byte[] bytes, int offset, int length) {
+		while (length > 0) {
+			if (this.position == this.chunk.length)
+				this.nextChunk();
+			
+			final int n = Math.min(length, this.chunk.length - this.position);
+			System.arraycopy(bytes, offset, this.chunk, this.position, n);
+			this.position += n;
+			offset += n;
+			length -= n;
+		}
+	}
+	
+	private void nextChunk() {
+		this.chunks.add(this.chunk);
+		this.chunk = this.allocate((int) Math.min((long) this.chunk.length << 1, this.maxChunkSize));
+		this.position = 0;
+	}
+	
+	/**
+	 * Finishes the stream and returns its chunks; the stream must not be written afterwards.
+	 * @return the chunks of the stream; at least one chunk, which is empty if nothing was written
+	 */
+	public List<byte[]> getChunks() {
+		if (this.position == this.chunk.length) {
+			this.chunks.add(this.chunk);
+		}
+		else {
+			if ((this.position > 0) || this.chunks.isEmpty())
+				this.chunks.add(Arrays.copyOf(this.chunk, this.position));
+			if (this.pool != null)
+				this.pool.releaseArray(this.chunk);
+		}
+		this.chunk = null;
+		return this.chunks;
+	}
+}
@@ -5,11 +5,31 @@ import java.nio.ByteBuffer;
 
 import akka.serialization.ByteBufferSerializer;
 import akka.serialization.SerializerWithStringManifest;
+import de.hpi.octopus.actors.DependencySteward.CandidateRequestMessage;
+import de.hpi.octopus.actors.DependencySteward.InvalidFDsMessage;
+import de.hpi.octopus.actors.masters.Profiler.CandidateMessage;
+import de.hpi.octopus.actors.masters.Profiler.FDsUpdatedMessage;
+import de.hpi.octopus.actors.masters.Profiler.SamplingResultMessage;
+import de.hpi.octopus.actors.masters.Profiler.SendPlisMessage;
+import de.hpi.octopus.actors.masters.Profiler.ValidationResultMessage;
+import de.hpi.octopus.actors.slaves.Worker.AttributeFinishedMessage;
+import de.hpi.octopus.actors.slaves.Worker.SamplingMessage;
 import de.hpi.octopus.actors.slaves.Worker.ValidationMessage;
 import de.hpi.octopus.structures.BitSet;
 
+/**
+ * Serializes the messages that the Profiler, the Workers and the DependencyStewards exchange. The manifest is the simple class name of
+ * the message; each BitSet is written either as raw words or, if only few of its bits are set, as the list of its set bit indexes
+ * (see BitSet.toCompactBinary()). The serializer is bound to the messages in the application.conf.
+ */
 public class OctopusMessageSerializer extends SerializerWithStringManifest implements ByteBufferSerializer {
 
+	private static final byte UPDATE_PREFERENCE = 1;
+	private static final byte VALIDATION = 2;
+	private static final byte CANDIDATES_AVAILABLE = 4;
+	
+	private final BufferPool pool = BufferPoolSingleton.get();
+	
 	@Override
 	public int identifier() {
 		return 10081987;
@@ -22,25 +42,53 @@ public class OctopusMessageSerializer extends SerializerWithStringManifest imple
 
 	@Override
 	public byte[] toBinary(Object o) {
-		if (o instanceof ValidationMessage) {
-			return this.toBinary((ValidationMessage) o);
+		// Akka owns the returned array, so only the staging buffer can be pooled; it lets binarySizeOf() be an upper bound instead of the exact size
+		// (Artery does not use this method, but calls toBinary(Object, ByteBuffer) with its own pooled buffers)
+		ByteBuffer buf = this.pool.acquire(this.binarySizeOf(o));
+		try {
+			this.toBinary(o, buf);
+			buf.flip();
+			byte[] bytes = new byte[buf.remaining()];
+			buf.get(bytes);
+			return bytes;
 		}
-		else {		
-			throw new IllegalArgumentException("Unknown type: " + o);
+		finally {
+			this.pool.release(buf);
 		}
 	}
 	
 	public byte[] toBinary(ValidationMessage msg) {
-		byte[] bytes = new byte[4 + this.binarySizeOf(msg.getLhss())]; // rhs + lhss
-		ByteBuffer buf = ByteBuffer.wrap(bytes); // TODO: use buffer pool for bytebuffers
-		this.toBinary(msg, buf);
-		return bytes;
+		return this.toBinary((Object) msg);
 	}
 
 	@Override
 	public void toBinary(Object o, ByteBuffer buf) {
 		if (o instanceof ValidationMessage) {
-			this.toBinary((ValidationMessage) o);
+			this.toBinary((ValidationMessage) o, buf);
+		}
+		else if (o instanceof SamplingMessage) {
+			this.toBinary((SamplingMessage) o, buf);
+		}
+		else if (o instanceof AttributeFinishedMessage) {
+			buf.putInt(((AttributeFinishedMessage) o).getAttribute());
+		}
+		else if (o instanceof CandidateMessage) {
+			this.toBinary((CandidateMessage) o, buf);
+		}
+		else if (o instanceof ValidationResultMessage) {
+			this.toBinary((ValidationResultMessage) o, buf);
+		}
+		else if (o instanceof SamplingResultMessage) {
+			this.toBinary((SamplingResultMessage) o, buf);
+		}
+		else if (o instanceof FDsUpdatedMessage) {
+			this.toBinary((FDsUpdatedMessage) o, buf);
+		}
+		else if (o instanceof InvalidFDsMessage) {
+			this.toBinary((InvalidFDsMessage) o, buf);
+		}
+		else if ((o instanceof CandidateRequestMessage) || (o instanceof SendPlisMessage)) {
+			// These messages have no content
 		}
 		else {		
 			throw new IllegalArgumentException("Unknown type: " + o);
@@ -51,6 +99,46 @@ public class OctopusMessageSerializer extends SerializerWithStringManifest imple
 		buf.putInt(msg.getRhs());
 		this.putBitSets(msg.getLhss(), buf);
 	}
+	
+	public void toBinary(SamplingMessage msg, ByteBuffer buf) {
+		buf.putInt(msg.getAttribute());
+		buf.putInt(msg.getDistance());
+	}
+	
+	public void toBinary(CandidateMessage msg, ByteBuffer buf) {
+		buf.putInt(msg.getRhs());
+		this.putBitSets(msg.getLhss(), buf);
+	}
+	
+	public void toBinary(ValidationResultMessage msg, ByteBuffer buf) {
+		buf.putInt(msg.getNumCandidates());
+		this.putInts(msg.getInvalidRhss(), buf);
+		this.putBitSets(msg.getInvalidLhss(), buf);
+	}
+	
+	public void toBinary(SamplingResultMessage msg, ByteBuffer buf) {
+		buf.putInt(msg.getNumComparisons());
+		buf.putInt(msg.getNumMatches());
+		this.putInts(msg.getInvalidRhss(), buf);
+		this.putBitSets(msg.getInvalidLhss(), buf);
+	}
+	
+	public void toBinary(FDsUpdatedMessage msg, ByteBuffer buf) {
+		buf.putInt(msg.getRhs());
+		byte flags = 0;
+		if (msg.isUpdatePreference())
+			flags |= UPDATE_PREFERENCE;
+		if (msg.isValidation())
+			flags |= VALIDATION;
+		if (msg.isCandidatesAvailable())
+			flags |= CANDIDATES_AVAILABLE;
+		buf.put(flags);
+	}
+	
+	public void toBinary(InvalidFDsMessage msg, ByteBuffer buf) {
+		buf.putInt(msg.getNumCandidates());
+		this.putBitSets(msg.getInvalidLhss(), buf);
+	}
 
 	@Override
 	public Object fromBinary(byte[] bytes, String manifest) throws NotSerializableException {
@@ -63,8 +151,44 @@ public class OctopusMessageSerializer extends SerializerWithStringManifest imple
 		if (manifest.equals(ValidationMessage.class.getSimpleName())) {
 			return this.fromBinaryValidationMessage(buf);
 		}
+		else if (manifest.equals(SamplingMessage.class.getSimpleName())) {
+			return new SamplingMessage(buf.getInt(), buf.getInt());
+		}
+		else if (manifest.equals(AttributeFinishedMessage.class.getSimpleName())) {
+			return new AttributeFinishedMessage(buf.getInt());
+		}
+		else if (manifest.equals(CandidateMessage.class.getSimpleName())) {
+			final int rhs = buf.getInt();
+			return new CandidateMessage(this.getBitSets(buf), rhs);
+		}
+		else if (manifest.equals(ValidationResultMessage.class.getSimpleName())) {
+			final int numCandidates = buf.getInt();
+			final int[] invalidRhss = this.getInts(buf);
+			return new ValidationResultMessage(this.getBitSetArrays(buf), invalidRhss, numCandidates);
+		}
+		else if (manifest.equals(SamplingResultMessage.class.getSimpleName())) {
+			final int numComparisons = buf.getInt();
+			final int numMatches = buf.getInt();
+			final int[] invalidRhss = this.getInts(buf);
+			return new SamplingResultMessage(this.getBitSetArrays(buf), invalidRhss, numComparisons, numMatches);
+		}
+		else if (manifest.equals(FDsUpdatedMessage.class.getSimpleName())) {
+			final int rhs = buf.getInt();
+			final byte flags = buf.get();
+			return new FDsUpdatedMessage(rhs, (flags & UPDATE_PREFERENCE) != 0, (flags & VALIDATION) != 0, (flags & CANDIDATES_AVAILABLE) != 0);
+		}
+		else if (manifest.equals(InvalidFDsMessage.class.getSimpleName())) {
+			final int numCandidates = buf.getInt();
+			return new InvalidFDsMessage(this.getBitSets(buf), numCandidates);
+		}
+		else if (manifest.equals(CandidateRequestMessage.class.getSimpleName())) {
+			return new CandidateRequestMessage();
+		}
+		else if (manifest.equals(SendPlisMessage.class.getSimpleName())) {
+			return new SendPlisMessage();
+		}
 		else {		
-			throw new IllegalArgumentException("Unknown type: " + manifest);
+			throw new NotSerializableException("Unknown manifest: " + manifest);
 		}
 	}
 	
@@ -74,21 +198,91 @@ public class OctopusMessageSerializer extends SerializerWithStringManifest imple
 		return new ValidationMessage(lhss, rhs);
 	}
 	
+	/**
+	 * Calculates an upper bound for the binary size of the given message; the actual size is smaller if some BitSets are written sparsely.
+	 * @param o the message
+	 * @return the maximum number of bytes that toBinary() writes for the message
+	 */
+	public int binarySizeOf(Object o) {
+		if (o instanceof ValidationMessage)
+			return 4 + this.binarySizeOf(((ValidationMessage) o).getLhss()); // rhs + lhss
+		if (o instanceof SamplingMessage)
+			return 4 + 4;
+		if (o instanceof AttributeFinishedMessage)
+			return 4;
+		if (o instanceof CandidateMessage)
+			return 4 + this.binarySizeOf(((CandidateMessage) o).getLhss());
+		if (o instanceof ValidationResultMessage) {
+			ValidationResultMessage msg = (ValidationResultMessage) o;
+			return 4 + this.binarySizeOf(msg.getInvalidRhss()) + this.binarySizeOf(msg.getInvalidLhss());
+		}
+		if (o instanceof SamplingResultMessage) {
+			SamplingResultMessage msg = (SamplingResultMessage) o;
+			return 4 + 4 + this.binarySizeOf(msg.getInvalidRhss()) + this.binarySizeOf(msg.getInvalidLhss());
+		}
+		if (o instanceof FDsUpdatedMessage)
+			return 4 + 1;
+		if (o instanceof InvalidFDsMessage)
+			return 4 + this.binarySizeOf(((InvalidFDsMessage) o).getInvalidLhss());
+		if ((o instanceof CandidateRequestMessage) || (o instanceof SendPlisMessage))
+			return 0;
+		throw new IllegalArgumentException("Unknown type: " + o);
+	}
+	
 	public int binarySizeOf(BitSet[] bitsets) {
-		int bitsetBinarySize = bitsets[0].binarySize(); // all bitsets in Octopus are initialized with the same size of words, so we check only the first bitset for its size and use it for all bitsets
+		if (bitsets.length == 0)
+			return 4;
+		int bitsetBinarySize = bitsets[0].binarySize(); // all bitsets in Octopus are initialized with the same size of words, so we check only the first bitset for its size and use it for all bitsets; the dense size is an upper bound for the compact size
 		return 4 + bitsets.length * bitsetBinarySize; // array length (1 int) + size of each bitset
 	}
 	
+	public int binarySizeOf(BitSet[][] bitsets) {
+		int size = 4;
+		for (BitSet[] array : bitsets)
+			size += this.binarySizeOf(array);
+		return size;
+	}
+	
+	public int binarySizeOf(int[] ints) {
+		return 4 + 4 * ints.length;
+	}
+	
 	public void putBitSets(BitSet[] bitsets, ByteBuffer buf) {
 		buf.putInt(bitsets.length);
 		for (BitSet bitset : bitsets)
-			bitset.toBinary(buf);
+			bitset.toCompactBinary(buf);
 	}
 	
 	public BitSet[] getBitSets(ByteBuffer buf) {
 		final BitSet[] bitsets = new BitSet[buf.getInt()];
 		for (int i = 0; i < bitsets.length; i++)
-			bitsets[i] = BitSet.fromBinary(buf);
+			bitsets[i] = BitSet.fromCompactBinary(buf);
+		return bitsets;
+	}
+	
+	public void putBitSets(BitSet[][] bitsets, ByteBuffer buf) {
+		buf.putInt(bitsets.length);
+		for (BitSet[] array : bitsets)
+			this.putBitSets(array, buf);
+	}
+	
+	public BitSet[][] getBitSetArrays(ByteBuffer buf) {
+		final BitSet[][] bitsets = new BitSet[buf.getInt()][];
+		for (int i = 0; i < bitsets.length; i++)
+			bitsets[i] = this.getBitSets(buf);
 		return bitsets;
 	}
+	
+	public void putInts(int[] ints, ByteBuffer buf) {
+		buf.putInt(ints.length);
+		for (int value : ints)
+			buf.putInt(value);
+	}
+	
+	public int[] getInts(ByteBuffer buf) {
+		final int[] ints = new int[buf.getInt()];
+		for (int i = 0; i < ints.length; i++)
+			ints[i] = buf.getInt();
+		return ints;
+	}
 }
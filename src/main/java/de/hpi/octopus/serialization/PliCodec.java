@@ -0,0 +1,52 @@
+package de.hpi.octopus.serialization;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/**
+ * A compact binary encoding for plis and other cluster lists. The records of a cluster are usually sorted, because the Indexer adds them in
+ * input order; hence, the codec writes each record as the difference to its predecessor in the cluster. The differences are written as
+ * zig-zag varints, so small differences take one or two bytes instead of four and unsorted clusters still work (negative differences
+ * are merely larger). Sizes are written as unsigned varints.
+ */
+public class PliCodec {
+
+	public static void write(Output output, int[][][] plis) {
+		output.writeVarInt(plis.length, true);
+		for (int[][] pli : plis)
+			write(output, pli);
+	}
+
+	public static int[][][] readPlis(Input input) {
+		final int[][][] plis = new int[input.readVarInt(true)][][];
+		for (int i = 0; i < plis.length; i++)
+			plis[i] = read(input);
+		return plis;
+	}
+
+	public static void write(Output output, int[][] pli) {
+		output.writeVarInt(pli.length, true);
+		for (int[] cluster : pli) {
+			output.writeVarInt(cluster.length, true);
+			int previous = 0;
+			for (int record : cluster) {
+				output.writeVarInt(record - previous, false);
+				previous = record;
+			}
+		}
+	}
+
+	public static int[][] read(Input input) {
+		final int[][] pli = new int[input.readVarInt(true)][];
+		for (int clusterId = 0; clusterId < pli.length; clusterId++) {
+			final int[] cluster = new int[input.readVarInt(true)];
+			int previous = 0;
+			for (int i = 0; i < cluster.length; i++) {
+				previous += input.readVarInt(false);
+				cluster[i] = previous;
+			}
+			pli[clusterId] = cluster;
+		}
+		return pli;
+	}
+}
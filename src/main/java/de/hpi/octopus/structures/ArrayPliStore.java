@@ -0,0 +1,28 @@
+package de.hpi.octopus.structures;
+
+/**
+ * Keeps the plis on the heap as they are; getPli() returns the stored plis, which must, hence, not be changed.
+ */
+public class ArrayPliStore implements PliStore {
+
+	private final int[][][] plis;
+
+	public ArrayPliStore(int[][][] plis) {
+		this.plis = plis;
+	}
+
+	@Override
+	public int getNumAttributes() {
+		return this.plis.length;
+	}
+
+	@Override
+	public long getNumClusteredRecords(int attribute) {
+		return PliCacheElement.countRecords(this.plis[attribute]);
+	}
+
+	@Override
+	public int[][] getPli(int attribute) {
+		return this.plis[attribute];
+	}
+}
@@ -85,6 +85,80 @@ public class BitSet implements Cloneable, Serializable {
 		return 4 + this.words.length * BYTES_PER_WORD;
 	}
 
+	/**
+	 * Write this {@code BitSet} either densely as words or sparsely as the indexes of its set bits, whichever is smaller. The dense encoding
+	 * is the one of {@code toBinary()}; the sparse encoding starts with the negative number of words minus one, followed by the number of set bits
+	 * and their indexes, which are unsigned shorts if the {@code BitSet} has less than 1024 words and ints otherwise.
+	 * @param buffer to write this {@code BitSet} into
+	 */
+	public void toCompactBinary(ByteBuffer buffer) {
+		final int cardinality = this.cardinality();
+		if (denseBinarySize(this.words.length) <= sparseBinarySize(this.words.length, cardinality)) {
+			this.toBinary(buffer);
+			return;
+		}
+
+		buffer.putInt(-this.words.length - 1);
+		if (isNarrow(this.words.length)) {
+			buffer.putShort((short) cardinality);
+			for (int i = this.nextSetBit(0); i >= 0; i = this.nextSetBit(i + 1))
+				buffer.putShort((short) i);
+		}
+		else {
+			buffer.putInt(cardinality);
+			for (int i = this.nextSetBit(0); i >= 0; i = this.nextSetBit(i + 1))
+				buffer.putInt(i);
+		}
+	}
+
+	/**
+	 * Read a {@code BitSet} that was written with {@code toCompactBinary()} or {@code toBinary()}.
+	 * @param buffer to read the {@code BitSet} from
+	 * @return the {@code BitSet}
+	 */
+	public static BitSet fromCompactBinary(ByteBuffer buffer) {
+		final int header = buffer.getInt();
+		if (header >= 0) {
+			buffer.position(buffer.position() - 4);
+			return fromBinary(buffer);
+		}
+
+		final int numWords = -header - 1;
+		final BitSet bitset = new BitSet();
+		bitset.words = new long[numWords];
+		if (isNarrow(numWords)) {
+			final int cardinality = buffer.getShort() & 0xFFFF;
+			for (int i = 0; i < cardinality; i++)
+				bitset.set(buffer.getShort() & 0xFFFF);
+		}
+		else {
+			final int cardinality = buffer.getInt();
+			for (int i = 0; i < cardinality; i++)
+				bitset.set(buffer.getInt());
+		}
+		return bitset;
+	}
+
+	/**
+	 * Calculate the binary size in bytes of this object when being serialized with {@code toCompactBinary()}.
+	 * @return the binary size of this object
+	 */
+	public int compactBinarySize() {
+		return Math.min(denseBinarySize(this.words.length), sparseBinarySize(this.words.length, this.cardinality()));
+	}
+
+	private static boolean isNarrow(int numWords) {
+		return numWords < 1024; // All bit indexes and the cardinality fit into an unsigned short
+	}
+
+	private static int denseBinarySize(int numWords) {
+		return 4 + numWords * BYTES_PER_WORD;
+	}
+
+	private static int sparseBinarySize(int numWords, int cardinality) {
+		return isNarrow(numWords) ? 4 + 2 + 2 * cardinality : 4 + 4 + 4 * cardinality;
+	}
+
 	/**
 	 * Flip the bit at the specified index.
 	 * @param bitIndex to be flipped
@@ -323,6 +397,23 @@ public class BitSet implements Cloneable, Serializable {
 	public int physicalLength() {
 		return this.words.length;
 	}
+
+	/**
+	 * Read one word of the internal words array, e.g., to intersect this {@code BitSet} with other word-based bitmaps.
+	 * @param wordIndex the index of the word; must be smaller than the physical length
+	 * @return the word at the given index
+	 */
+	long word(int wordIndex) {
+		return this.words[wordIndex];
+	}
+	
+	/**
+	 * Access the internal words array, e.g., to write entire words of this {@code BitSet} in place.
+	 * @return the internal words array
+	 */
+	long[] words() {
+		return this.words;
+	}
 	
 	/**
 	 * Calculate the number of bits set to {@code true} in this {@code BitSet}.
@@ -432,6 +523,15 @@ public class BitSet implements Cloneable, Serializable {
 		return (int) ((h >> 32) ^ h);
 	}
 
+	/**
+	 * Calculate a well-distributed 64 bit hash of this {@code BitSet}; unlike {@code hashCode()}, it is suitable for probabilistic
+	 * structures that derive several hash values from one hash.
+	 * @return the MurmurHash of this {@code BitSet}'s words
+	 */
+	public long longHashCode() {
+		return MurmurHash.hash(this.words);
+	}
+
 	@Override
 	public boolean equals(Object obj) {
 		if (!(obj instanceof BitSet))
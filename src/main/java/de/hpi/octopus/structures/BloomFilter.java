@@ -1,107 +1,290 @@
 package de.hpi.octopus.structures;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
 
-public class BloomFilter {
+/**
+ * A Bloom filter over agree-sets. Each element sets numHashFunctions bits that are derived by double hashing from a 64 bit MurmurHash
+ * of the element's words. The filter is sized from the number of elements that it is expected to hold and the false positive
+ * probability that it should have at that number; because the actual probability grows with every element, the filter keeps track
+ * of its set bits so that its fill ratio and the false positive rate can be monitored while it is in use.
+ * 
+ * The bits live in an AtomicLongArray and are set with compare-and-set, so all samplers and validators of a node insert directly
+ * into the filter. Two threads that add the same new element at the very same time may both see it as absent; any later add sees it.
+ * 
+ * To share the filter with the filters of other nodes, it marks every word that gained bits in a dirty bitmap. A delta holds only the
+ * dirty words, deflated, and clears their marks; applying a delta ORs its words into this filter without marking them, so deltas are
+ * not echoed back to the nodes that sent them.
+ */
+public class BloomFilter implements MatchFilter {
 
-	public static int DEFAULT_SIZE = 83886080; // 10 MB
+	public static final long DEFAULT_EXPECTED_INSERTIONS = 10000000;
+	public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
 	
-	private final BitSet bits;
-	private final int size;
+	private static final int BITSHIFTS_TO_WORD_SIZE = 6;
+	private static final long MAX_NUM_BITS = ((long) Integer.MAX_VALUE) << BITSHIFTS_TO_WORD_SIZE;
+	
+	private final AtomicLongArray words;
+	private final long numBits;
+	private final int numHashFunctions;
+	private final LongAdder numSetBits;
+	private final AtomicLongArray dirtyWords;	// One bit per word that gained bits since the last drained delta
 	
 	public BloomFilter() {
-		this.bits = new BitSet(DEFAULT_SIZE);
-		this.size = DEFAULT_SIZE;
+		this(DEFAULT_EXPECTED_INSERTIONS, DEFAULT_FALSE_POSITIVE_RATE);
 	}
 	
 	/**
-	 * Retrieves the BitSet that stores the elements of this BloomFilter
-	 * @return the BitSet that stores the elements of this BloomFilter
+	 * Create a BloomFilter that has the given false positive rate once it holds the expected number of elements.
+	 * @param expectedInsertions the number of elements that the filter is expected to hold
+	 * @param falsePositiveRate the false positive rate at the expected number of elements
 	 */
-	public BitSet getBits() {
-		return this.bits;
+	public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+		if ((expectedInsertions <= 0) || (falsePositiveRate <= 0) || (falsePositiveRate >= 1))
+			throw new IllegalArgumentException("A BloomFilter needs a positive number of expected insertions and a false positive rate in (0, 1).");
+		
+		this.numBits = optimalNumBits(expectedInsertions, falsePositiveRate);
+		this.numHashFunctions = optimalNumHashFunctions(expectedInsertions, this.numBits);
+		this.words = new AtomicLongArray((int) ((this.numBits + (1 << BITSHIFTS_TO_WORD_SIZE) - 1) >>> BITSHIFTS_TO_WORD_SIZE));
+		this.numSetBits = new LongAdder();
+		this.dirtyWords = new AtomicLongArray((this.words.length() + (1 << BITSHIFTS_TO_WORD_SIZE) - 1) >>> BITSHIFTS_TO_WORD_SIZE);
+	}
+	
+	private static long optimalNumBits(long expectedInsertions, double falsePositiveRate) {
+		final long numBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+		return Math.max(1 << BITSHIFTS_TO_WORD_SIZE, Math.min(numBits, MAX_NUM_BITS));
+	}
+	
+	private static int optimalNumHashFunctions(long expectedInsertions, long numBits) {
+		return Math.max(1, (int) Math.round((double) numBits / expectedInsertions * Math.log(2)));
+	}
+	
+	public long getNumBits() {
+		return this.numBits;
+	}
+	
+	public int getNumHashFunctions() {
+		return this.numHashFunctions;
 	}
 	
 	/**
-	 * Merge all elements of the other BloomFilter into this BloomFilter.
-	 * @param other the other BloomFilter whose elements are to be added
+	 * @return the share of bits that are set
 	 */
-	public void merge(BloomFilter other) {
-		this.bits.or(other.getBits());
+	public double getFillRatio() {
+		return (double) this.numSetBits.sum() / this.numBits;
 	}
 	
 	/**
-	 * Add the element to the BloomFilter.
-	 * @param element the element to be added
-	 * @return true if the element was added; false if it existed already
+	 * @return the probability that contains() reports an element that was never added, given the current fill ratio
+	 */
+	public double getFalsePositiveRate() {
+		return Math.pow(this.getFillRatio(), this.numHashFunctions);
+	}
+	
+	/**
+	 * @return the estimated number of distinct elements in this BloomFilter, derived from its fill ratio
+	 */
+	public long getApproximateElementCount() {
+		if (this.numSetBits.sum() >= this.numBits)
+			return Long.MAX_VALUE;
+		return Math.round(-Math.log(1 - this.getFillRatio()) * this.numBits / this.numHashFunctions);
+	}
+	
+	@Override
+	public String getStatistics() {
+		return String.format("Bloom filter holds about %d agree-sets with %d hash functions; fill ratio %.4f, false positive rate %.6f", 
+				this.getApproximateElementCount(), this.numHashFunctions, this.getFillRatio(), this.getFalsePositiveRate());
+	}
+	
+	/**
+	 * Merge all elements of the other BloomFilter into this BloomFilter.
+	 * @param other the other BloomFilter whose elements are to be added; it must have the same size and number of hash functions
 	 */
-	public boolean add(BitSet element) {
-		int code = element.hashCode();
-		//int hash = MurmurHash.hash(code); // TODO: really needed or is hashCode() already good enough?
-		int bucket = Math.abs(code % this.size);
+	@Override
+	public void merge(MatchFilter other) {
+		if (!(other instanceof BloomFilter))
+			throw new IllegalArgumentException("A BloomFilter can only be merged with another BloomFilter.");
 		
-		if (this.bits.get(bucket))
-			return false;
+		final BloomFilter otherFilter = (BloomFilter) other;
+		if ((this.numBits != otherFilter.numBits) || (this.numHashFunctions != otherFilter.numHashFunctions))
+			throw new IllegalArgumentException("Only BloomFilters with equal sizes and numbers of hash functions can be merged.");
 		
-		this.set(bucket);
-		return true;
+		for (int i = 0; i < this.words.length(); i++) {
+			final long otherWord = otherFilter.words.get(i);
+			final long word = this.words.getAndAccumulate(i, otherWord, (a, b) -> a | b);
+			final int newBits = Long.bitCount(otherWord & ~word);
+			if (newBits > 0) {
+				this.numSetBits.add(newBits);
+				this.markDirty(i);
+			}
+		}
+	}
+	
+	/**
+	 * Encode all words that gained bits since the last call and clear their dirty marks; bits that are set concurrently are either
+	 * part of this delta or of the next one.
+	 * @return the compressed delta or null if no word changed
+	 */
+	public byte[] drainDelta() {
+		return this.encode(true);
+	}
+	
+	/**
+	 * Encode all non-empty words of this filter, e.g., for a node that joins late and missed earlier deltas; does not touch the dirty
+	 * marks.
+	 * @return the compressed words or null if the filter is empty
+	 */
+	public byte[] snapshot() {
+		return this.encode(false);
+	}
+	
+	/**
+	 * OR the words of a delta or snapshot of another BloomFilter into this BloomFilter; the words are not marked dirty.
+	 * @param delta a delta of a BloomFilter with the same size and number of hash functions
+	 */
+	public void applyDelta(byte[] delta) {
+		try (DataInputStream input = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(delta)))) {
+			if ((input.readLong() != this.numBits) || (input.readInt() != this.numHashFunctions))
+				throw new IllegalArgumentException("Only deltas of BloomFilters with equal sizes and numbers of hash functions can be applied.");
+			
+			for (int wordIndex = -1, gap = input.readInt(); gap > 0; gap = input.readInt()) {
+				wordIndex += gap;
+				final long deltaWord = input.readLong();
+				final long word = this.words.getAndAccumulate(wordIndex, deltaWord, (a, b) -> a | b);
+				this.numSetBits.add(Long.bitCount(deltaWord & ~word));
+			}
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	/**
+	 * Write the header and the (gap to the previous word index, word) pairs of all dirty or all non-empty words, terminated by gap 0.
+	 */
+	private byte[] encode(boolean onlyDirty) {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		boolean empty = true;
+		try (DataOutputStream output = new DataOutputStream(new DeflaterOutputStream(bytes, new Deflater(Deflater.BEST_SPEED)))) {
+			output.writeLong(this.numBits);
+			output.writeInt(this.numHashFunctions);
+			
+			int previousWordIndex = -1;
+			for (int i = 0; i < this.dirtyWords.length(); i++) {
+				long candidates = onlyDirty ? this.clearDirty(i) : -1L;
+				for (; candidates != 0; candidates &= candidates - 1) {
+					final int wordIndex = (i << BITSHIFTS_TO_WORD_SIZE) + Long.numberOfTrailingZeros(candidates);
+					if (wordIndex >= this.words.length())
+						break;
+					
+					final long word = this.words.get(wordIndex);
+					if (word == 0)
+						continue;
+					
+					output.writeInt(wordIndex - previousWordIndex);
+					output.writeLong(word);
+					previousWordIndex = wordIndex;
+					empty = false;
+				}
+			}
+			output.writeInt(0);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return empty ? null : bytes.toByteArray();
+	}
+	
+	private long clearDirty(int i) {
+		return (this.dirtyWords.get(i) == 0) ? 0 : this.dirtyWords.getAndSet(i, 0);
+	}
+	
+	private void markDirty(int wordIndex) {
+		final int i = wordIndex >>> BITSHIFTS_TO_WORD_SIZE;
+		final long mask = 1L << wordIndex;
+		if ((this.dirtyWords.get(i) & mask) == 0)
+			this.dirtyWords.getAndAccumulate(i, mask, (a, b) -> a | b);
 	}
 	
 	/**
-	 * Add the element to the BloomFilter. This method is synchronized for concurrent calls.
+	 * Add the element to the BloomFilter if it is not yet contained; this method is thread-safe and lock-free.
 	 * @param element the element to be added
-	 * @return true if the element was added; false if it existed already
+	 * @return true if the element was added, i.e., this call set at least one of its bits; false if it existed already
 	 */
-	public synchronized boolean addSynchronized(BitSet element) {
-		int code = element.hashCode();
-		//int hash = MurmurHash.hash(code); // TODO: really needed or is hashCode() already good enough?
-		int bucket = Math.abs(code % this.size);
+	@Override
+	public boolean addIfAbsent(BitSet element) {
+		final long hash = element.longHashCode();
+		final int hash1 = (int) hash;
+		final int hash2 = (int) (hash >>> 32);
 		
-		if (this.bits.get(bucket))
-			return false;
-		
-		this.set(bucket);
-		return true;
+		boolean added = false;
+		for (int i = 1; i <= this.numHashFunctions; i++)
+			added |= this.set(this.bitIndex(hash1, hash2, i));
+		return added;
 	}
 	
 	/**
 	 * Adds all the elements to the BloomFilter.
-	 * @param element the element to be added
-	 * @return true if the element was added; false if it existed already
+	 * @param elements the elements to be added
 	 */
+	@Override
 	public void addAll(List<BitSet> elements) {
-		int[] buckets = new int[elements.size()];
-		for (int i = 0; i < elements.size(); i++) {
-			int code = elements.get(i).hashCode();
-			//int hash = MurmurHash.hash(code); // TODO: really needed or is hashCode() already good enough?
-			buckets[i] = Math.abs(code % this.size);
-		}
-		this.setAll(buckets);
+		for (BitSet element : elements)
+			this.addIfAbsent(element);
 	}
 	
 	/**
 	 * Test if this BloomFilter contains the element.
 	 * @param element the element to be tested
 	 */
+	@Override
 	public boolean contains(BitSet element) {
-		int code = element.hashCode();
-		//int hash = MurmurHash.hash(code); // TODO: really needed or is hashCode() already good enough?
-		int bucket = Math.abs(code % this.size);
+		final long hash = element.longHashCode();
+		final int hash1 = (int) hash;
+		final int hash2 = (int) (hash >>> 32);
 		
-		return this.bits.get(bucket);
+		for (int i = 1; i <= this.numHashFunctions; i++)
+			if (!this.get(this.bitIndex(hash1, hash2, i)))
+				return false;
+		return true;
 	}
 	
-//	static final int hash(Object key) {
-//        int h;
-//        return (key == null) ? 0 : (h = key.hashCode()) ^ (h >>> 16);
-//    }
-
-	private void set(int bucket) {
-		this.bits.set(bucket);
+	/**
+	 * Derive the i-th bit index of an element from the two halves of its hash (Kirsch and Mitzenmacher's double hashing).
+	 */
+	private long bitIndex(int hash1, int hash2, int i) {
+		long combinedHash = hash1 + (long) i * hash2;
+		return (combinedHash & Long.MAX_VALUE) % this.numBits;
 	}
 	
-	private void setAll(int[] buckets) {
-		for (int i = 0; i < buckets.length; i++)
-			this.bits.set(buckets[i]);
+	private boolean get(long bitIndex) {
+		return (this.words.get((int) (bitIndex >>> BITSHIFTS_TO_WORD_SIZE)) & (1L << bitIndex)) != 0;
+	}
+	
+	private boolean set(long bitIndex) {
+		final int wordIndex = (int) (bitIndex >>> BITSHIFTS_TO_WORD_SIZE);
+		final long mask = 1L << bitIndex;
+		while (true) {
+			final long word = this.words.get(wordIndex);
+			if ((word & mask) != 0)
+				return false;
+			
+			// Retry if another thread changed some bit of the word meanwhile
+			if (this.words.compareAndSet(wordIndex, word, word | mask)) {
+				this.numSetBits.increment();
+				this.markDirty(wordIndex);
+				return true;
+			}
+		}
 	}
 }
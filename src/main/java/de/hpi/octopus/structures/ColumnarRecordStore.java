@@ -0,0 +1,131 @@
+package de.hpi.octopus.structures;
+
+import java.util.Arrays;
+
+/**
+ * Stores the pli-records column-wise in one array per attribute, which avoids an object per record and keeps each column within the array size limit.
+ * If compact, each column uses the narrowest of byte, short and int that can hold the attribute's cluster ids. Narrow columns store the cluster id + 1
+ * as an unsigned value so that 0 represents unique values (-1).
+ */
+public class ColumnarRecordStore implements RecordStore {
+
+	static final byte BYTE = 1;
+	static final byte SHORT = 2;
+	static final byte INT = 4;
+
+	private static final int MAX_BYTE_CLUSTERS = 0xFF;
+	private static final int MAX_SHORT_CLUSTERS = 0xFFFF;
+
+	private final byte[] widths;
+	private final byte[][] byteColumns;
+	private final short[][] shortColumns;
+	private final int[][] intColumns;
+	private final int numRecords;
+
+	public ColumnarRecordStore(int[][][] plis, int numRecords) {
+		this(plis, numRecords, true);
+	}
+	
+	public ColumnarRecordStore(int[][][] plis, int numRecords, boolean compact) {
+		this.widths = new byte[plis.length];
+		this.byteColumns = new byte[plis.length][];
+		this.shortColumns = new short[plis.length][];
+		this.intColumns = new int[plis.length][];
+		this.numRecords = numRecords;
+
+		for (int attribute = 0; attribute < plis.length; attribute++) {
+			int[][] pli = plis[attribute];
+
+			this.widths[attribute] = widthOf(pli.length, compact);
+			
+			if (this.widths[attribute] == BYTE) {
+				byte[] column = new byte[numRecords];
+				for (int clusterId = 0; clusterId < pli.length; clusterId++)
+					for (int record : pli[clusterId])
+						column[record] = (byte) (clusterId + 1);
+				this.byteColumns[attribute] = column;
+			}
+			else if (this.widths[attribute] == SHORT) {
+				short[] column = new short[numRecords];
+				for (int clusterId = 0; clusterId < pli.length; clusterId++)
+					for (int record : pli[clusterId])
+						column[record] = (short) (clusterId + 1);
+				this.shortColumns[attribute] = column;
+			}
+			else {
+				int[] column = new int[numRecords];
+				Arrays.fill(column, -1);
+				for (int clusterId = 0; clusterId < pli.length; clusterId++)
+					for (int record : pli[clusterId])
+						column[record] = clusterId;
+				this.intColumns[attribute] = column;
+			}
+		}
+	}
+
+	static byte widthOf(int numClusters, boolean compact) {
+		if (compact && (numClusters <= MAX_BYTE_CLUSTERS))
+			return BYTE;
+		if (compact && (numClusters <= MAX_SHORT_CLUSTERS))
+			return SHORT;
+		return INT;
+	}
+
+	@Override
+	public int getNumRecords() {
+		return this.numRecords;
+	}
+
+	@Override
+	public int getNumAttributes() {
+		return this.widths.length;
+	}
+
+	@Override
+	public int get(int record, int attribute) {
+		final byte width = this.widths[attribute];
+		if (width == BYTE)
+			return (this.byteColumns[attribute][record] & 0xFF) - 1;
+		if (width == SHORT)
+			return (this.shortColumns[attribute][record] & 0xFFFF) - 1;
+		return this.intColumns[attribute][record];
+	}
+
+	/**
+	 * Compare the encoded cluster ids directly, because the encoding keeps equality and maps unique values to 0 or -1; this saves the
+	 * decoding and the interface call per attribute.
+	 */
+	@Override
+	public void match(int record1, int record2, long[] words) {
+		for (int wordIndex = 0; wordIndex < words.length; wordIndex++) {
+			long word = 0;
+			for (int attribute = wordIndex << 6; attribute < Math.min((wordIndex + 1) << 6, this.widths.length); attribute++) {
+				final byte width = this.widths[attribute];
+				final boolean agree;
+				if (width == BYTE) {
+					final byte[] column = this.byteColumns[attribute];
+					agree = (column[record1] != 0) && (column[record1] == column[record2]);
+				}
+				else if (width == SHORT) {
+					final short[] column = this.shortColumns[attribute];
+					agree = (column[record1] != 0) && (column[record1] == column[record2]);
+				}
+				else {
+					final int[] column = this.intColumns[attribute];
+					agree = (column[record1] != -1) && (column[record1] == column[record2]);
+				}
+				if (agree)
+					word |= 1L << attribute;
+			}
+			words[wordIndex] = word;
+		}
+	}
+
+	@Override
+	public long getByteSize() {
+		long byteSize = 0;
+		for (byte width : this.widths)
+			byteSize += (long) width * this.numRecords;
+		return byteSize;
+	}
+}
@@ -11,6 +11,7 @@ import java.util.Comparator;
 import akka.event.LoggingAdapter;
 import de.hpi.octopus.actors.Storekeeper.PlisMessage;
 import de.hpi.octopus.actors.masters.Profiler.DiscoveryTaskMessage;
+import de.hpi.octopus.configuration.ConfigurationSingleton;
 import de.hpi.octopus.io.FileSink;
 import de.metanome.algorithm_integration.ColumnIdentifier;
 import it.unimi.dsi.fastutil.ints.IntArrayList;
@@ -25,7 +26,7 @@ public class Dataset {
 	private final String relationName;
 	private final String[] columnNames;
 	private final int numRecords;
-	private final int[][] records;
+	private final RecordStore records;
 
 	public int getNumAtrributes() {
 		return this.plis.length;
@@ -85,31 +86,22 @@ public class Dataset {
 	}
 	
 	public Dataset(PlisMessage message, LoggingAdapter log) {
+		this(message, new ColumnarRecordStore(message.getPlis(), message.getNumRecords(), ConfigurationSingleton.get().isCompactRecords()), log);
+	}
+	
+	public Dataset(PlisMessage message, RecordStore records, LoggingAdapter log) {
 		this.plis = message.getPlis();
 		this.relationName = null;
 		this.columnNames = null;
 		this.numRecords = message.getNumRecords();
-		this.records = new int[message.getNumRecords()][];
+		this.records = records;
 		
 		// Debug output
 //		for (int[][] pli : this.plis)
 //			log.info(ConversionLogic.pli2String(pli));
 //		log.info("-------oo---------");
 		
-		// Generate and store pli-records
-		for (int r = 0; r < message.getNumRecords(); r++) {
-			this.records[r] = new int[this.plis.length];
-			Arrays.fill(this.records[r], -1);
-		}
-		for (int attr = 0; attr < this.plis.length; attr++) {
-			int[][] pli = this.plis[attr];
-			for (int val = 0; val < pli.length; val++) {
-				for (int rec : pli[val]) {
-					this.records[rec][attr] = val;
-				}
-			}
-		}
-		log.info("Done creating pli records");
+		log.info("Done creating pli records ({} MB)", records.getByteSize() / 1000 / 1000);
 		
 		// Debug output
 //		for (int i = 0; i < 1000; i++) {
@@ -138,10 +130,10 @@ public class Dataset {
 					comparator = new Comparator<Integer>() {
 						@Override
 						public int compare(Integer record1, Integer record2) {
-							int compare = records[record1][attribute + 1] - records[record1][attribute + 1];
+							int compare = records.get(record1, attribute + 1) - records.get(record2, attribute + 1);
 					    	
 					    	if (compare == 0)
-					    		compare = records[record1][plis.length - 1] - records[record1][pli.length - 1];
+					    		compare = records.get(record1, plis.length - 1) - records.get(record2, plis.length - 1);
 					    	
 					        return compare;
 						}
@@ -151,10 +143,10 @@ public class Dataset {
 					comparator = new Comparator<Integer>() {
 						@Override
 						public int compare(Integer record1, Integer record2) {
-							int compare = records[record1][0] - records[record1][0];
+							int compare = records.get(record1, 0) - records.get(record2, 0);
 					    	
 					    	if (compare == 0)
-					    		compare = records[record1][attribute - 1] - records[record1][attribute - 1];
+					    		compare = records.get(record1, attribute - 1) - records.get(record2, attribute - 1);
 					    	
 					        return compare;
 						}
@@ -164,10 +156,10 @@ public class Dataset {
 					comparator = new Comparator<Integer>() {
 						@Override
 					    public int compare(Integer record1, Integer record2) {
-					    	int compare = records[record1][attribute + 1] - records[record1][attribute + 1];
+					    	int compare = records.get(record1, attribute + 1) - records.get(record2, attribute + 1);
 					    	
 					    	if (compare == 0)
-					    		compare = records[record1][attribute - 1] - records[record1][attribute - 1];
+					    		compare = records.get(record1, attribute - 1) - records.get(record2, attribute - 1);
 					    	
 					        return compare;
 					    }
@@ -0,0 +1,455 @@
+package de.hpi.octopus.structures;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An FDTree variant whose nodes live in a single int arena instead of being individual heap objects. Every node occupies
+ * NODE_SIZE consecutive ints that hold its attribute, its parent, its first child, its next sibling, the links of the queue of
+ * unannounced candidates and its leaf flag; the children of a node form a sibling list that is ordered by attribute. Leaves do
+ * not store their lhs, because it is the path from the root to the leaf, which the parent links reconstruct on demand. Hence,
+ * a tree with millions of candidates consists of one large int array that the garbage collector never needs to trace.
+ */
+public class FDArenaTree implements FDStore {
+
+	private static final int NONE = -1;
+	private static final int ROOT = 0;
+	private static final int INITIAL_CAPACITY = 1024;
+
+	// The fields of a node; the node with id n occupies the ints [n * NODE_SIZE, (n + 1) * NODE_SIZE) of the arena
+	private static final int ATTRIBUTE = 0;			// The attribute that leads from the parent to this node
+	private static final int PARENT = 1;			// The parent of this node
+	private static final int FIRST_CHILD = 2;		// The child with the smallest attribute
+	private static final int NEXT_SIBLING = 3;		// The sibling with the next larger attribute; for free nodes, the next free node
+	private static final int NEXT = 4;				// If this is an unannounced candidate, next points to the next unannounced candidate
+	private static final int PREVIOUS = 5;			// If this is an unannounced candidate, previous points to the previous unannounced candidate
+	private static final int LEAF = 6;				// 1 if this node is a leaf, i.e., an FD candidate; 0 otherwise
+	private static final int NODE_SIZE = 7;
+
+	protected final int numAttributes;
+	protected int depth;
+
+	private int[] arena;
+	private int numNodes;			// The number of nodes that have ever been allocated, i.e., the smallest never used id
+	private int freeNodes = NONE;	// The head of the list of freed nodes, which are linked via their NEXT_SIBLING field
+
+	private int first = NONE;
+	private int last = NONE;
+
+	public FDArenaTree(int numAttributes, int rhsAttribute) {
+		this.numAttributes = numAttributes;
+		this.depth = 1;
+
+		this.arena = new int[INITIAL_CAPACITY * NODE_SIZE];
+		this.newNode(NONE, NONE); // The root
+
+		this.addMostGeneralDependencies(rhsAttribute);
+	}
+
+	protected void addMostGeneralDependencies(int rhsAttribute) {
+		BitSet lhs = new BitSet(this.numAttributes);
+		for (int i = 0; i < this.numAttributes; i++) {
+			if (i == rhsAttribute)
+				continue;
+
+			lhs.set(i);
+			this.addLhs(lhs);
+			lhs.clear(i);
+		}
+	}
+
+	@Override
+	public int getNumAttributes() {
+		return this.numAttributes;
+	}
+
+	@Override
+	public int getDepth() {
+		return this.depth;
+	}
+
+	/**
+	 * @return the number of nodes that have ever been allocated; freed nodes are reused before this number grows
+	 */
+	int getNumAllocatedNodes() {
+		return this.numNodes;
+	}
+
+	///////////
+	// Arena //
+	///////////
+
+	private int get(int node, int field) {
+		return this.arena[node * NODE_SIZE + field];
+	}
+
+	private void set(int node, int field, int value) {
+		this.arena[node * NODE_SIZE + field] = value;
+	}
+
+	private boolean isLeaf(int node) {
+		return this.get(node, LEAF) != 0;
+	}
+
+	private boolean isEmpty(int node) {
+		return !this.isLeaf(node) && (this.get(node, FIRST_CHILD) == NONE);
+	}
+
+	private int newNode(int attribute, int parent) {
+		final int node;
+		if (this.freeNodes != NONE) {
+			node = this.freeNodes;
+			this.freeNodes = this.get(node, NEXT_SIBLING);
+		}
+		else {
+			node = this.numNodes++;
+			if (node * NODE_SIZE >= this.arena.length)
+				this.arena = Arrays.copyOf(this.arena, this.arena.length << 1);
+		}
+
+		this.set(node, ATTRIBUTE, attribute);
+		this.set(node, PARENT, parent);
+		this.set(node, FIRST_CHILD, NONE);
+		this.set(node, NEXT_SIBLING, NONE);
+		this.set(node, NEXT, NONE);
+		this.set(node, PREVIOUS, NONE);
+		this.set(node, LEAF, 0);
+		return node;
+	}
+
+	/**
+	 * Return the given node to the free list; its children must have been freed already.
+	 */
+	private void freeNode(int node) {
+		this.set(node, NEXT_SIBLING, this.freeNodes);
+		this.freeNodes = node;
+	}
+
+	/**
+	 * Free all nodes below the given node and unlink their candidates from the queue.
+	 */
+	private void freeChildren(int node) {
+		for (int child = this.get(node, FIRST_CHILD); child != NONE; ) {
+			final int sibling = this.get(child, NEXT_SIBLING);
+			this.freeChildren(child);
+			if (this.isLeaf(child))
+				this.unlink(child);
+			this.freeNode(child);
+			child = sibling;
+		}
+		this.set(node, FIRST_CHILD, NONE);
+	}
+
+	private int getChild(int node, int attribute) {
+		int child = this.get(node, FIRST_CHILD);
+		while ((child != NONE) && (this.get(child, ATTRIBUTE) < attribute))
+			child = this.get(child, NEXT_SIBLING);
+		return ((child != NONE) && (this.get(child, ATTRIBUTE) == attribute)) ? child : NONE;
+	}
+
+	private int getOrAddChild(int node, int attribute) {
+		int previous = NONE;
+		int child = this.get(node, FIRST_CHILD);
+		while ((child != NONE) && (this.get(child, ATTRIBUTE) < attribute)) {
+			previous = child;
+			child = this.get(child, NEXT_SIBLING);
+		}
+		if ((child != NONE) && (this.get(child, ATTRIBUTE) == attribute))
+			return child;
+
+		final int newChild = this.newNode(attribute, node);
+		this.set(newChild, NEXT_SIBLING, child);
+		if (previous == NONE)
+			this.set(node, FIRST_CHILD, newChild);
+		else
+			this.set(previous, NEXT_SIBLING, newChild);
+		return newChild;
+	}
+
+	/**
+	 * Remove the given child from the sibling list of the node; previous must be the child's predecessor in that list or NONE.
+	 */
+	private void removeChild(int node, int previous, int child) {
+		if (previous == NONE)
+			this.set(node, FIRST_CHILD, this.get(child, NEXT_SIBLING));
+		else
+			this.set(previous, NEXT_SIBLING, this.get(child, NEXT_SIBLING));
+		this.freeNode(child);
+	}
+
+	private BitSet lhsOf(int node) {
+		BitSet lhs = new BitSet(this.numAttributes);
+		for (; node != ROOT; node = this.get(node, PARENT))
+			lhs.set(this.get(node, ATTRIBUTE));
+		return lhs;
+	}
+
+	///////////
+	// Queue //
+	///////////
+
+	private void append(int leaf) {
+		this.set(leaf, NEXT, NONE);
+		this.set(leaf, PREVIOUS, this.last);
+		if (this.first == NONE)
+			this.first = leaf;
+		else
+			this.set(this.last, NEXT, leaf);
+		this.last = leaf;
+	}
+
+	private void unlink(int leaf) {
+		final int next = this.get(leaf, NEXT);
+		final int previous = this.get(leaf, PREVIOUS);
+		if (this.first == leaf)
+			this.first = next;
+		if (this.last == leaf)
+			this.last = previous;
+		if (previous != NONE)
+			this.set(previous, NEXT, next);
+		if (next != NONE)
+			this.set(next, PREVIOUS, previous);
+		this.set(leaf, NEXT, NONE);
+		this.set(leaf, PREVIOUS, NONE);
+	}
+
+	@Override
+	public BitSet[] announceLhss(int amount) {
+		BitSet[] lhss = new BitSet[amount];
+		for (int i = 0; i < amount; i++) {
+			if (this.first == NONE)
+				return Arrays.copyOf(lhss, i);
+
+			final int leaf = this.first;
+			lhss[i] = this.lhsOf(leaf);
+			this.unlink(leaf);
+		}
+		return lhss;
+	}
+
+	@Override
+	public boolean hasUnannounceLhss() {
+		return this.first != NONE;
+	}
+
+	//////////
+	// Tree //
+	//////////
+
+	@Override
+	public boolean containsLhs(BitSet lhs) {
+		if (lhs.isEmpty())
+			return false;
+
+		int node = ROOT;
+		for (int attribute = lhs.nextSetBit(0); attribute >= 0; attribute = lhs.nextSetBit(attribute + 1)) {
+			node = this.getChild(node, attribute);
+			if (node == NONE)
+				return false;
+		}
+		return this.isLeaf(node);
+	}
+
+	@Override
+	public boolean containsLhsOrGeneralization(BitSet lhs) {
+		return this.containsLhsOrGeneralization(ROOT, lhs);
+	}
+
+	private boolean containsLhsOrGeneralization(int node, BitSet lhs) {
+		if (this.isLeaf(node))
+			return true;
+
+		for (int child = this.get(node, FIRST_CHILD); child != NONE; child = this.get(child, NEXT_SIBLING))
+			if (lhs.get(this.get(child, ATTRIBUTE)) && this.containsLhsOrGeneralization(child, lhs))
+				return true;
+		return false;
+	}
+
+	@Override
+	public List<BitSet> getLhsAndGeneralizations(BitSet lhs) {
+		List<BitSet> result = new ArrayList<>();
+		this.collectLhsAndGeneralizations(ROOT, lhs, result);
+		return result;
+	}
+
+	private void collectLhsAndGeneralizations(int node, BitSet lhs, List<BitSet> result) {
+		if (this.isLeaf(node))
+			result.add(this.lhsOf(node));
+
+		for (int child = this.get(node, FIRST_CHILD); child != NONE; child = this.get(child, NEXT_SIBLING))
+			if (lhs.get(this.get(child, ATTRIBUTE)))
+				this.collectLhsAndGeneralizations(child, lhs, result);
+	}
+
+	@Override
+	public void addLhs(BitSet lhs) {
+		// Add the inner nodes and the leaf for the lhs
+		int node = ROOT;
+		for (int attribute = lhs.nextSetBit(0); attribute >= 0; attribute = lhs.nextSetBit(attribute + 1))
+			node = this.getOrAddChild(node, attribute);
+
+		// The leaf replaces an existing sub-tree, which takes its candidates with it, and an existing leaf is queued again
+		this.freeChildren(node);
+		if (this.isLeaf(node))
+			this.unlink(node);
+		this.set(node, LEAF, 1);
+		this.append(node);
+
+		// Adjust the depth of this tree
+		this.depth = Math.max(this.depth, lhs.cardinality());
+	}
+
+	@Override
+	public void removeLhs(BitSet lhs) {
+		final int lhsCardinality = lhs.cardinality();
+
+		// Collect all nodes of the lhs from this tree
+		int[] lhsNodes = new int[lhsCardinality + 1];
+		lhsNodes[0] = ROOT;
+		for (int attribute = lhs.nextSetBit(0), i = 1; attribute >= 0; attribute = lhs.nextSetBit(attribute + 1), i++) {
+			lhsNodes[i] = this.getChild(lhsNodes[i - 1], attribute);
+			if (lhsNodes[i] == NONE)
+				return;
+		}
+
+		final int leaf = lhsNodes[lhsCardinality];
+		if (!this.isLeaf(leaf))
+			return;
+
+		this.unlink(leaf);
+		this.set(leaf, LEAF, 0);
+
+		// Remove the nodes of the given lhs path that became empty; the root is never removed
+		for (int i = lhsCardinality; i > 0; i--) {
+			if (!this.isEmpty(lhsNodes[i]))
+				return;
+
+			int previous = NONE;
+			for (int child = this.get(lhsNodes[i - 1], FIRST_CHILD); child != lhsNodes[i]; child = this.get(child, NEXT_SIBLING))
+				previous = child;
+			this.removeChild(lhsNodes[i - 1], previous, lhsNodes[i]);
+		}
+	}
+
+	@Override
+	public void specializeAll(BitSet[] invalidLhss, int rhs, int maxDepth) {
+		final BitSet candidates = new BitSet(this.numAttributes);
+		final BitSet allowed = new BitSet(this.numAttributes);
+		final BitSet blocked = new BitSet(this.numAttributes);
+
+		for (BitSet invalidLhs : FDStore.sortAndDeduplicate(invalidLhss)) {
+			// Remove all generalizations in one traversal; afterwards, no generalization of any of them is left in the tree
+			List<BitSet> generalLhss = new ArrayList<>();
+			this.removeLhsAndGeneralizations(ROOT, invalidLhs, generalLhss);
+			if (generalLhss.isEmpty())
+				continue;
+
+			// The specialization attributes are all attributes that are neither in the invalid lhs nor the rhs
+			candidates.set(0, this.numAttributes);
+			candidates.andNot(invalidLhs);
+			candidates.clear(rhs);
+
+			for (BitSet generalLhs : generalLhss) {
+				if ((maxDepth > 0) && (generalLhs.cardinality() >= maxDepth))
+					continue;
+
+				// Find all non-minimal specializations with one traversal instead of one generalization lookup per attribute
+				allowed.clear();
+				allowed.or(generalLhs);
+				allowed.or(candidates);
+				blocked.clear();
+				this.collectBlockedSpecializations(ROOT, generalLhs, allowed, -1, blocked);
+
+				BitSet specLhs = generalLhs.clone();
+				for (int attribute = candidates.nextSetBit(0); attribute >= 0; attribute = candidates.nextSetBit(attribute + 1)) {
+					if (blocked.get(attribute))
+						continue;
+
+					specLhs.set(attribute);
+					this.addLhs(specLhs);
+					specLhs.clear(attribute);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Remove the lhs and all of its generalizations below the given node and collect them in the result.
+	 * @return true if the node became empty and should be removed from its parent
+	 */
+	private boolean removeLhsAndGeneralizations(int node, BitSet lhs, List<BitSet> result) {
+		if (this.isLeaf(node)) {
+			this.unlink(node);
+			result.add(this.lhsOf(node));
+			this.set(node, LEAF, 0);
+		}
+
+		int previous = NONE;
+		for (int child = this.get(node, FIRST_CHILD); child != NONE; ) {
+			final int sibling = this.get(child, NEXT_SIBLING);
+			if (lhs.get(this.get(child, ATTRIBUTE)) && this.removeLhsAndGeneralizations(child, lhs, result))
+				this.removeChild(node, previous, child);
+			else
+				previous = child;
+			child = sibling;
+		}
+		return (node != ROOT) && this.isEmpty(node);
+	}
+
+	/**
+	 * Find the attributes a for which lhs + a has a generalization below the given node that contains a. The search follows only paths
+	 * whose attributes are in the lhs except for at most one attribute of the allowed attributes, which is the specialization attribute.
+	 */
+	private void collectBlockedSpecializations(int node, BitSet lhs, BitSet allowed, int specAttribute, BitSet blocked) {
+		if (this.isLeaf(node)) {
+			if (specAttribute >= 0)
+				blocked.set(specAttribute);
+			else
+				blocked.or(allowed); // This leaf generalizes the lhs itself and, hence, all of its specializations
+			return;
+		}
+		if ((specAttribute >= 0) && blocked.get(specAttribute))
+			return;
+
+		// Once a specialization attribute is on the path, only the attributes of the lhs may follow
+		final BitSet attributes = (specAttribute < 0) ? allowed : lhs;
+		for (int child = this.get(node, FIRST_CHILD); child != NONE; child = this.get(child, NEXT_SIBLING)) {
+			final int attribute = this.get(child, ATTRIBUTE);
+			if (attributes.get(attribute))
+				this.collectBlockedSpecializations(child, lhs, allowed, lhs.get(attribute) ? specAttribute : attribute, blocked);
+		}
+	}
+
+	@Override
+	public void trimTree(int toDepth) {
+		if (this.depth <= toDepth)
+			return;
+
+		this.depth = toDepth;
+		this.trim(ROOT, 0, toDepth);
+	}
+
+	/**
+	 * Remove all leaves below the given node whose lhs is larger than toDepth.
+	 * @return true if the node became empty and should be removed from its parent
+	 */
+	private boolean trim(int node, int level, int toDepth) {
+		// All children of the node's last allowed level are too large: drop them at once
+		if (level >= toDepth) {
+			this.freeChildren(node);
+			return this.isEmpty(node);
+		}
+
+		int previous = NONE;
+		for (int child = this.get(node, FIRST_CHILD); child != NONE; ) {
+			final int sibling = this.get(child, NEXT_SIBLING);
+			if (this.trim(child, level + 1, toDepth))
+				this.removeChild(node, previous, child);
+			else
+				previous = child;
+			child = sibling;
+		}
+		return (node != ROOT) && this.isEmpty(node);
+	}
+}
@@ -0,0 +1,550 @@
+package de.hpi.octopus.structures;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An FDTree variant whose nodes store a child-presence bitmap and a compact, exactly sized child array instead of a full array
+ * with one slot per attribute. The children are ordered by attribute so that the position of a child is the number of bits
+ * set below its attribute in the bitmap. Generalization lookups intersect the bitmap of a node word-wise with the lhs and
+ * visit only those children that actually exist, which is what makes the tree fast and small for wide relations: an inner node
+ * of a 200 column relation costs four longs plus its actual children instead of a 200 slot reference array.
+ */
+public class FDBitTree implements FDStore {
+
+	private static final int BITSHIFTS_TO_WORD_SIZE = 6;
+	private static final long WORD_MASK = 0xffffffffffffffffL;
+
+	protected final int numAttributes;
+	protected final int numWords;
+
+	protected final Node root;
+	protected int depth;
+
+	protected Node first;
+	protected Node last;
+
+	public FDBitTree(int numAttributes, int rhsAttribute) {
+		this.numAttributes = numAttributes;
+		this.numWords = ((numAttributes - 1) >>> BITSHIFTS_TO_WORD_SIZE) + 1;
+		this.root = new Node(null);
+		this.depth = 1;
+
+		this.addMostGeneralDependencies(rhsAttribute);
+	}
+
+	protected void addMostGeneralDependencies(int rhsAttribute) {
+		BitSet lhs = new BitSet(this.numAttributes);
+		for (int i = 0; i < this.numAttributes; i++) {
+			if (i == rhsAttribute)
+				continue;
+
+			lhs.set(i);
+			this.addLhs(lhs);
+			lhs.clear(i);
+		}
+	}
+
+	/**
+	 * A node of the tree; it is an inner node if it has children and a leaf, i.e., an FD candidate, if its lhs is set.
+	 */
+	protected static class Node {
+
+		private long[] childMask;	// The attributes of the children; null if this node has no children
+		private Node[] children;	// The children ordered by their attributes; null if this node has no children
+
+		private BitSet lhs;			// If this is a leaf: the lhs of this candidate
+		private Node next;			// If this is an unannounced candidate, next points to the next unannounced candidate
+		private Node previous;		// If this is an unannounced candidate, previous points to the previous unannounced candidate
+
+		protected Node(BitSet lhs) {
+			this.lhs = lhs;
+		}
+
+		protected boolean isLeaf() {
+			return this.lhs != null;
+		}
+
+		protected boolean hasChildren() {
+			return this.children != null;
+		}
+
+		protected boolean hasChild(int attribute) {
+			return (this.childMask != null) && ((this.childMask[attribute >>> BITSHIFTS_TO_WORD_SIZE] & (1L << attribute)) != 0);
+		}
+
+		protected int rank(int attribute) {
+			final int wordIndex = attribute >>> BITSHIFTS_TO_WORD_SIZE;
+			int rank = Long.bitCount(this.childMask[wordIndex] & ~(WORD_MASK << attribute));
+			for (int i = 0; i < wordIndex; i++)
+				rank += Long.bitCount(this.childMask[i]);
+			return rank;
+		}
+
+		protected Node getChild(int attribute) {
+			if (!this.hasChild(attribute))
+				return null;
+			return this.children[this.rank(attribute)];
+		}
+
+		/**
+		 * Add the child for the given attribute or replace the existing one.
+		 * @return the replaced child or null if no child existed for the attribute
+		 */
+		protected Node putChild(int numWords, int attribute, Node child) {
+			if (this.childMask == null) {
+				this.childMask = new long[numWords];
+				this.children = new Node[0];
+			}
+
+			final int rank = this.rank(attribute);
+			if (this.hasChild(attribute)) {
+				Node replaced = this.children[rank];
+				this.children[rank] = child;
+				return replaced;
+			}
+
+			Node[] children = new Node[this.children.length + 1];
+			System.arraycopy(this.children, 0, children, 0, rank);
+			System.arraycopy(this.children, rank, children, rank + 1, this.children.length - rank);
+			children[rank] = child;
+
+			this.children = children;
+			this.childMask[attribute >>> BITSHIFTS_TO_WORD_SIZE] |= (1L << attribute);
+			return null;
+		}
+
+		protected void removeChildren(long[] attributes) {
+			int numChildren = 0;
+			for (int i = 0; i < this.childMask.length; i++) {
+				this.childMask[i] &= ~attributes[i];
+				numChildren += Long.bitCount(this.childMask[i]);
+			}
+
+			if (numChildren == 0) {
+				this.childMask = null;
+				this.children = null;
+				return;
+			}
+
+			Node[] children = new Node[numChildren];
+			for (int i = 0, from = 0, to = 0; i < attributes.length; i++) {
+				for (long bits = this.childMask[i] | attributes[i]; bits != 0; bits &= bits - 1, from++) {
+					if ((attributes[i] & bits & -bits) == 0)
+						children[to++] = this.children[from];
+				}
+			}
+			this.children = children;
+		}
+
+		protected void removeChild(int attribute) {
+			if (!this.hasChild(attribute))
+				return;
+
+			if (this.children.length == 1) {
+				this.childMask = null;
+				this.children = null;
+				return;
+			}
+
+			final int rank = this.rank(attribute);
+			Node[] children = new Node[this.children.length - 1];
+			System.arraycopy(this.children, 0, children, 0, rank);
+			System.arraycopy(this.children, rank + 1, children, rank, children.length - rank);
+
+			this.children = children;
+			this.childMask[attribute >>> BITSHIFTS_TO_WORD_SIZE] &= ~(1L << attribute);
+		}
+	}
+
+	@Override
+	public int getNumAttributes() {
+		return this.numAttributes;
+	}
+
+	@Override
+	public int getDepth() {
+		return this.depth;
+	}
+
+	@Override
+	public boolean containsLhs(BitSet lhs) {
+		if (lhs.isEmpty())
+			return false;
+
+		Node node = this.root;
+		for (int attribute = lhs.nextSetBit(0); attribute >= 0; attribute = lhs.nextSetBit(attribute + 1)) {
+			node = node.getChild(attribute);
+			if (node == null)
+				return false;
+		}
+		return node.isLeaf();
+	}
+
+	@Override
+	public boolean containsLhsOrGeneralization(BitSet lhs) {
+		return this.containsLhsOrGeneralization(this.root, lhs, 0);
+	}
+
+	protected boolean containsLhsOrGeneralization(Node node, BitSet lhs, int fromAttribute) {
+		if (node.isLeaf())
+			return true;
+		if (!node.hasChildren())
+			return false;
+
+		// Intersect the child bitmap with the lhs word-wise and descend only into the children that exist
+		final long[] childMask = node.childMask;
+		final int fromWord = fromAttribute >>> BITSHIFTS_TO_WORD_SIZE;
+		final int toWord = Math.min(childMask.length, lhs.physicalLength());
+
+		int rank = 0;
+		for (int i = 0; i < Math.min(fromWord, childMask.length); i++)
+			rank += Long.bitCount(childMask[i]);
+
+		for (int i = fromWord; i < toWord; i++) {
+			long matches = childMask[i] & lhs.word(i);
+			if (i == fromWord)
+				matches &= (WORD_MASK << fromAttribute);
+
+			while (matches != 0) {
+				final long bit = matches & -matches;
+				final int attribute = (i << BITSHIFTS_TO_WORD_SIZE) + Long.numberOfTrailingZeros(bit);
+				final Node child = node.children[rank + Long.bitCount(childMask[i] & (bit - 1))];
+
+				if (this.containsLhsOrGeneralization(child, lhs, attribute + 1))
+					return true;
+
+				matches ^= bit;
+			}
+			rank += Long.bitCount(childMask[i]);
+		}
+		return false;
+	}
+
+	@Override
+	public List<BitSet> getLhsAndGeneralizations(BitSet lhs) {
+		List<BitSet> result = new ArrayList<>();
+		this.collectLhsAndGeneralizations(this.root, lhs, 0, result);
+		return result;
+	}
+
+	protected void collectLhsAndGeneralizations(Node node, BitSet lhs, int fromAttribute, List<BitSet> result) {
+		if (node.isLeaf())
+			result.add(node.lhs);
+		if (!node.hasChildren())
+			return;
+
+		final long[] childMask = node.childMask;
+		final int fromWord = fromAttribute >>> BITSHIFTS_TO_WORD_SIZE;
+		final int toWord = Math.min(childMask.length, lhs.physicalLength());
+
+		int rank = 0;
+		for (int i = 0; i < Math.min(fromWord, childMask.length); i++)
+			rank += Long.bitCount(childMask[i]);
+
+		for (int i = fromWord; i < toWord; i++) {
+			long matches = childMask[i] & lhs.word(i);
+			if (i == fromWord)
+				matches &= (WORD_MASK << fromAttribute);
+
+			while (matches != 0) {
+				final long bit = matches & -matches;
+				final int attribute = (i << BITSHIFTS_TO_WORD_SIZE) + Long.numberOfTrailingZeros(bit);
+				final Node child = node.children[rank + Long.bitCount(childMask[i] & (bit - 1))];
+
+				this.collectLhsAndGeneralizations(child, lhs, attribute + 1, result);
+
+				matches ^= bit;
+			}
+			rank += Long.bitCount(childMask[i]);
+		}
+	}
+
+	@Override
+	public void addLhs(BitSet lhs) {
+		// Add the inner nodes for the lhs
+		Node node = this.root;
+		int attribute = lhs.nextSetBit(0);
+		for (int next = lhs.nextSetBit(attribute + 1); next >= 0; next = lhs.nextSetBit(next + 1)) {
+			Node child = node.getChild(attribute);
+			if (child == null) {
+				child = new Node(null);
+				node.putChild(this.numWords, attribute, child);
+			}
+			node = child;
+			attribute = next;
+		}
+
+		// Add the last node as a leaf that indicates an FD; a replaced sub-tree takes its candidates with it
+		Node leaf = new Node(lhs.clone());
+		Node replaced = node.putChild(this.numWords, attribute, leaf);
+		if (replaced != null)
+			this.unlinkAll(replaced);
+
+		// Add the leaf to the tail of the linked list of unannounced leaves
+		if (this.first == null) {
+			this.first = leaf;
+		}
+		else {
+			this.last.next = leaf;
+			leaf.previous = this.last;
+		}
+		this.last = leaf;
+
+		// Adjust the depth of this tree
+		this.depth = Math.max(this.depth, lhs.cardinality());
+	}
+
+	@Override
+	public void removeLhs(BitSet lhs) {
+		final int lhsCardinality = lhs.cardinality();
+
+		// Collect all nodes of the lhs from this tree
+		int[] lhsAttributes = new int[lhsCardinality + 1];
+		Node[] lhsNodes = new Node[lhsCardinality + 1];
+		lhsNodes[0] = this.root;
+		for (int attribute = lhs.nextSetBit(0), i = 1; attribute >= 0; attribute = lhs.nextSetBit(attribute + 1), i++) {
+			lhsAttributes[i] = attribute;
+			lhsNodes[i] = lhsNodes[i - 1].getChild(attribute);
+			if (lhsNodes[i] == null)
+				return;
+		}
+
+		Node leaf = lhsNodes[lhsCardinality];
+		if (!leaf.isLeaf())
+			return;
+
+		this.unlink(leaf);
+		leaf.lhs = null;
+
+		// Remove the nodes of the given lhs path that became empty; the root is never removed
+		for (int i = lhsCardinality; i > 0; i--) {
+			if (lhsNodes[i].isLeaf() || lhsNodes[i].hasChildren())
+				return;
+			lhsNodes[i - 1].removeChild(lhsAttributes[i]);
+		}
+	}
+
+	@Override
+	public void specializeAll(BitSet[] invalidLhss, int rhs, int maxDepth) {
+		final BitSet candidates = new BitSet(this.numAttributes);
+		final BitSet allowed = new BitSet(this.numAttributes);
+		final BitSet blocked = new BitSet(this.numAttributes);
+
+		for (BitSet invalidLhs : FDStore.sortAndDeduplicate(invalidLhss)) {
+			// Remove all generalizations in one traversal; afterwards, no generalization of any of them is left in the tree
+			List<BitSet> generalLhss = new ArrayList<>();
+			this.removeLhsAndGeneralizations(this.root, invalidLhs, 0, generalLhss);
+			if (generalLhss.isEmpty())
+				continue;
+
+			// The specialization attributes are all attributes that are neither in the invalid lhs nor the rhs
+			candidates.set(0, this.numAttributes);
+			candidates.andNot(invalidLhs);
+			candidates.clear(rhs);
+
+			for (BitSet generalLhs : generalLhss) {
+				if ((maxDepth > 0) && (generalLhs.cardinality() >= maxDepth))
+					continue;
+
+				// Find all non-minimal specializations with one traversal instead of one generalization lookup per attribute
+				allowed.clear();
+				allowed.or(generalLhs);
+				allowed.or(candidates);
+				blocked.clear();
+				this.collectBlockedSpecializations(this.root, generalLhs, allowed, 0, -1, blocked);
+
+				BitSet specLhs = generalLhs.clone();
+				for (int attribute = candidates.nextSetBit(0); attribute >= 0; attribute = candidates.nextSetBit(attribute + 1)) {
+					if (blocked.get(attribute))
+						continue;
+
+					specLhs.set(attribute);
+					this.addLhs(specLhs);
+					specLhs.clear(attribute);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Remove the lhs and all of its generalizations below the given node and collect them in the result.
+	 * @return true if the node became empty and should be removed from its parent
+	 */
+	protected boolean removeLhsAndGeneralizations(Node node, BitSet lhs, int fromAttribute, List<BitSet> result) {
+		if (node.isLeaf()) {
+			this.unlink(node);
+			result.add(node.lhs);
+			node.lhs = null;
+		}
+		if (!node.hasChildren())
+			return true;
+
+		final long[] childMask = node.childMask;
+		final int fromWord = fromAttribute >>> BITSHIFTS_TO_WORD_SIZE;
+		final int toWord = Math.min(childMask.length, lhs.physicalLength());
+
+		int rank = 0;
+		for (int i = 0; i < Math.min(fromWord, childMask.length); i++)
+			rank += Long.bitCount(childMask[i]);
+
+		// Collect the removed children first and compact the child array once
+		long[] emptyChildren = null;
+		for (int i = fromWord; i < toWord; i++) {
+			long matches = childMask[i] & lhs.word(i);
+			if (i == fromWord)
+				matches &= (WORD_MASK << fromAttribute);
+
+			while (matches != 0) {
+				final long bit = matches & -matches;
+				final int attribute = (i << BITSHIFTS_TO_WORD_SIZE) + Long.numberOfTrailingZeros(bit);
+				final Node child = node.children[rank + Long.bitCount(childMask[i] & (bit - 1))];
+
+				if (this.removeLhsAndGeneralizations(child, lhs, attribute + 1, result)) {
+					if (emptyChildren == null)
+						emptyChildren = new long[childMask.length];
+					emptyChildren[i] |= bit;
+				}
+
+				matches ^= bit;
+			}
+			rank += Long.bitCount(childMask[i]);
+		}
+
+		if (emptyChildren != null)
+			node.removeChildren(emptyChildren);
+		return (node != this.root) && !node.hasChildren();
+	}
+
+	/**
+	 * Find the attributes a for which lhs + a has a generalization below the given node that contains a. The search follows only paths
+	 * whose attributes are in the lhs except for at most one attribute of the allowed attributes, which is the specialization attribute.
+	 */
+	protected void collectBlockedSpecializations(Node node, BitSet lhs, BitSet allowed, int fromAttribute, int specAttribute, BitSet blocked) {
+		if (node.isLeaf()) {
+			if (specAttribute >= 0)
+				blocked.set(specAttribute);
+			else
+				blocked.or(allowed); // This leaf generalizes the lhs itself and, hence, all of its specializations
+			return;
+		}
+		if (!node.hasChildren() || ((specAttribute >= 0) && blocked.get(specAttribute)))
+			return;
+
+		// Once a specialization attribute is on the path, only the attributes of the lhs may follow
+		final BitSet attributes = (specAttribute < 0) ? allowed : lhs;
+		final long[] childMask = node.childMask;
+		final int fromWord = fromAttribute >>> BITSHIFTS_TO_WORD_SIZE;
+		final int toWord = Math.min(childMask.length, attributes.physicalLength());
+
+		int rank = 0;
+		for (int i = 0; i < Math.min(fromWord, childMask.length); i++)
+			rank += Long.bitCount(childMask[i]);
+
+		for (int i = fromWord; i < toWord; i++) {
+			long matches = childMask[i] & attributes.word(i);
+			if (i == fromWord)
+				matches &= (WORD_MASK << fromAttribute);
+
+			while (matches != 0) {
+				final long bit = matches & -matches;
+				final int attribute = (i << BITSHIFTS_TO_WORD_SIZE) + Long.numberOfTrailingZeros(bit);
+				final Node child = node.children[rank + Long.bitCount(childMask[i] & (bit - 1))];
+
+				this.collectBlockedSpecializations(child, lhs, allowed, attribute + 1, lhs.get(attribute) ? specAttribute : attribute, blocked);
+
+				matches ^= bit;
+			}
+			rank += Long.bitCount(childMask[i]);
+		}
+	}
+
+	private void unlink(Node leaf) {
+		if (this.first == leaf)
+			this.first = leaf.next;
+		if (this.last == leaf)
+			this.last = leaf.previous;
+		if (leaf.previous != null)
+			leaf.previous.next = leaf.next;
+		if (leaf.next != null)
+			leaf.next.previous = leaf.previous;
+		leaf.next = null;
+		leaf.previous = null;
+	}
+
+	private void unlinkAll(Node node) {
+		if (node.isLeaf())
+			this.unlink(node);
+		if (node.hasChildren())
+			for (Node child : node.children)
+				this.unlinkAll(child);
+	}
+
+	@Override
+	public BitSet[] announceLhss(int amount) {
+		// Collect "amount"-many lhss from the head of the leaf list and disconnect them from the list
+		BitSet[] lhss = new BitSet[amount];
+		for (int i = 0; i < amount; i++) {
+			if (this.first == null) {
+				lhss = Arrays.copyOf(lhss, i);
+				break;
+			}
+
+			Node leaf = this.first;
+			lhss[i] = leaf.lhs;
+			this.first = leaf.next;
+			leaf.next = null;
+			leaf.previous = null;
+		}
+
+		if (this.first == null)
+			this.last = null;
+		else
+			this.first.previous = null;
+
+		return lhss;
+	}
+
+	@Override
+	public boolean hasUnannounceLhss() {
+		return this.first != null;
+	}
+
+	@Override
+	public void trimTree(int toDepth) {
+		if (this.depth <= toDepth)
+			return;
+
+		this.depth = toDepth;
+		this.trim(this.root, 0, toDepth);
+	}
+
+	/**
+	 * Remove all leaves below the given node whose lhs is larger than toDepth.
+	 * @return true if the node became empty and should be removed from its parent
+	 */
+	private boolean trim(Node node, int level, int toDepth) {
+		if (!node.hasChildren())
+			return !node.isLeaf();
+
+		// All children of the node's last allowed level are too large: drop them at once
+		if (level >= toDepth) {
+			for (Node child : node.children)
+				this.unlinkAll(child);
+			node.childMask = null;
+			node.children = null;
+			return !node.isLeaf();
+		}
+
+		final long[] childMask = node.childMask.clone();
+		final Node[] children = node.children;
+		for (int i = 0, rank = 0; i < childMask.length; i++) {
+			for (long bits = childMask[i]; bits != 0; bits &= bits - 1, rank++) {
+				if (this.trim(children[rank], level + 1, toDepth))
+					node.removeChild((i << BITSHIFTS_TO_WORD_SIZE) + Long.numberOfTrailingZeros(bits));
+			}
+		}
+		return !node.isLeaf() && !node.hasChildren();
+	}
+}
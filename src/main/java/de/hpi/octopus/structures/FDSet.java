@@ -1,30 +1,59 @@
 package de.hpi.octopus.structures;
 
 import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Set;
 
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+/**
+ * Stores the lhss under int ids and keeps an inverted index that maps each attribute to the bitmap of ids whose lhs contains it.
+ * An lhs X is a generalization of some lhs if X contains none of the attributes outside that lhs, so generalization lookups are
+ * word-wise intersections of the complemented attribute bitmaps. The unannounced lhss form a queue that is linked via id arrays,
+ * which makes removals O(1). The set needs numAttributes bits per stored lhs for the index and no tree nodes at all.
+ */
 public class FDSet implements FDStore {
 
-	private Set<BitSet> lhss;
-	private LinkedList<BitSet> unannounced;
-	private int numAttributes;
-	
+	private static final int BITSHIFTS_TO_WORD_SIZE = 6;
+	private static final int INITIAL_CAPACITY = 1024;
+	private static final int NONE = -1;
+
+	private final int numAttributes;
+	private int depth;				// The size of the largest lhs that has been added since the last trim
+
+	private BitSet[] lhss;			// The lhss by id; null if the id is free
+	private long[][] index;			// The inverted index: attribute -> bitmap of ids whose lhs contains the attribute
+	private long[] used;			// The bitmap of ids that store an lhs
+	private final IntArrayList freeIds = new IntArrayList();
+	private int numIds;				// The number of ids that have ever been handed out, i.e., the smallest never used id
+
+	private int[] next;				// If the id is an unannounced lhs, next points to the next unannounced lhs
+	private int[] previous;			// If the id is an unannounced lhs, previous points to the previous unannounced lhs
+	private int first = NONE;
+	private int last = NONE;
+
 	public FDSet(int numAttributes, int rhsAttribute) {
-		this.lhss = new HashSet<>(numAttributes);
-		this.unannounced = new LinkedList<>();
 		this.numAttributes = numAttributes;
-		
+
+		this.lhss = new BitSet[INITIAL_CAPACITY];
+		this.index = new long[numAttributes][INITIAL_CAPACITY >>> BITSHIFTS_TO_WORD_SIZE];
+		this.used = new long[INITIAL_CAPACITY >>> BITSHIFTS_TO_WORD_SIZE];
+		this.next = new int[INITIAL_CAPACITY];
+		this.previous = new int[INITIAL_CAPACITY];
+
 		this.addMostGeneralDependencies(rhsAttribute);
 	}
-	
+
 	@Override
 	public int getNumAttributes() {
 		return this.numAttributes;
 	}
-	
+
+	@Override
+	public int getDepth() {
+		return this.depth;
+	}
+
 	protected void addMostGeneralDependencies(int rhsAttribute) {
 		for (int i = 0; i < this.numAttributes; i++) {
 			if (i != rhsAttribute) {
@@ -34,79 +63,238 @@ public class FDSet implements FDStore {
 			}
 		}
 	}
-	
+
+	private void ensureCapacity(int id) {
+		if (id < this.lhss.length)
+			return;
+
+		final int capacity = this.lhss.length << 1;
+		this.lhss = Arrays.copyOf(this.lhss, capacity);
+		for (int attribute = 0; attribute < this.numAttributes; attribute++)
+			this.index[attribute] = Arrays.copyOf(this.index[attribute], capacity >>> BITSHIFTS_TO_WORD_SIZE);
+		this.used = Arrays.copyOf(this.used, capacity >>> BITSHIFTS_TO_WORD_SIZE);
+		this.next = Arrays.copyOf(this.next, capacity);
+		this.previous = Arrays.copyOf(this.previous, capacity);
+	}
+
+	private int numWords() {
+		return (this.numIds + (1 << BITSHIFTS_TO_WORD_SIZE) - 1) >>> BITSHIFTS_TO_WORD_SIZE;
+	}
+
+	/**
+	 * Find the id of the given lhs by intersecting the bitmaps of its attributes.
+	 * @return the id of the lhs or -1 if it is not stored
+	 */
+	private int idOf(BitSet lhs) {
+		if (lhs.isEmpty() || (this.numIds == 0))
+			return NONE;
+
+		final int firstAttribute = lhs.nextSetBit(0);
+		for (int word = 0; word < this.numWords(); word++) {
+			long ids = this.index[firstAttribute][word];
+			for (int attribute = lhs.nextSetBit(firstAttribute + 1); (attribute >= 0) && (ids != 0); attribute = lhs.nextSetBit(attribute + 1))
+				ids &= this.index[attribute][word];
+
+			for (; ids != 0; ids &= ids - 1) {
+				final int id = (word << BITSHIFTS_TO_WORD_SIZE) + Long.numberOfTrailingZeros(ids);
+				if (this.lhss[id].equals(lhs))
+					return id;
+			}
+		}
+		return NONE;
+	}
+
+	/**
+	 * Collect the attributes that are not in the given lhs; stored lhss with any of them are no generalizations of the lhs.
+	 */
+	private int[] attributesNotIn(BitSet lhs) {
+		int[] attributes = new int[this.numAttributes];
+		int size = 0;
+		for (int attribute = lhs.nextClearBit(0); (attribute >= 0) && (attribute < this.numAttributes); attribute = lhs.nextClearBit(attribute + 1))
+			attributes[size++] = attribute;
+		return Arrays.copyOf(attributes, size);
+	}
+
+	private long generalizationsIn(int word, int[] excludedAttributes) {
+		long ids = this.used[word];
+		for (int i = 0; (i < excludedAttributes.length) && (ids != 0); i++)
+			ids &= ~this.index[excludedAttributes[i]][word];
+		return ids;
+	}
+
 	@Override
 	public void addLhs(BitSet lhs) {
-		BitSet clone = lhs.clone();
-		this.lhss.add(clone);
-		this.unannounced.add(clone);
+		if (this.idOf(lhs) != NONE)
+			return;
+
+		final int id = this.freeIds.isEmpty() ? this.numIds++ : this.freeIds.popInt();
+		this.ensureCapacity(id);
+
+		this.lhss[id] = lhs.clone();
+		for (int attribute = lhs.nextSetBit(0); attribute >= 0; attribute = lhs.nextSetBit(attribute + 1))
+			this.index[attribute][id >>> BITSHIFTS_TO_WORD_SIZE] |= (1L << id);
+		this.used[id >>> BITSHIFTS_TO_WORD_SIZE] |= (1L << id);
+		this.depth = Math.max(this.depth, lhs.cardinality());
+
+		// Add the id to the tail of the queue of unannounced lhss
+		this.next[id] = NONE;
+		this.previous[id] = this.last;
+		if (this.first == NONE)
+			this.first = id;
+		else
+			this.next[this.last] = id;
+		this.last = id;
 	}
-	
+
 	@Override
 	public void removeLhs(BitSet lhs) {
-		this.lhss.remove(lhs);
-		this.unannounced.remove(lhs);
+		final int id = this.idOf(lhs);
+		if (id == NONE)
+			return;
+
+		this.remove(id);
+	}
+
+	private void remove(int id) {
+		final BitSet lhs = this.lhss[id];
+		for (int attribute = lhs.nextSetBit(0); attribute >= 0; attribute = lhs.nextSetBit(attribute + 1))
+			this.index[attribute][id >>> BITSHIFTS_TO_WORD_SIZE] &= ~(1L << id);
+		this.used[id >>> BITSHIFTS_TO_WORD_SIZE] &= ~(1L << id);
+		this.lhss[id] = null;
+
+		this.unlink(id);
+		this.freeIds.push(id);
+	}
+
+	private void unlink(int id) {
+		if (this.first == id)
+			this.first = this.next[id];
+		if (this.last == id)
+			this.last = this.previous[id];
+		if (this.previous[id] != NONE)
+			this.next[this.previous[id]] = this.next[id];
+		if (this.next[id] != NONE)
+			this.previous[this.next[id]] = this.previous[id];
+		this.next[id] = NONE;
+		this.previous[id] = NONE;
 	}
-	
+
 	@Override
 	public BitSet[] announceLhss(int amount) {
-		BitSet[] announcees = new BitSet[Math.min(amount, this.unannounced.size())];
-		for (int i = 0; i < announcees.length; i++)
-			announcees[i] = this.unannounced.removeFirst();
+		BitSet[] announcees = new BitSet[amount];
+		for (int i = 0; i < amount; i++) {
+			if (this.first == NONE)
+				return Arrays.copyOf(announcees, i);
+
+			final int id = this.first;
+			announcees[i] = this.lhss[id];
+			this.unlink(id);
+		}
 		return announcees;
 	}
 
 	@Override
 	public boolean hasUnannounceLhss() {
-		return !this.unannounced.isEmpty();
+		return this.first != NONE;
 	}
-	
+
 	@Override
 	public List<BitSet> getLhsAndGeneralizations(BitSet lhs) {
+		final int[] excludedAttributes = this.attributesNotIn(lhs);
+
 		List<BitSet> generalizations = new ArrayList<>();
-		for (BitSet generalization : this.lhss)
-			if (this.subsetOrEqual(generalization, lhs))
-				generalizations.add(generalization);
+		for (int word = 0; word < this.numWords(); word++)
+			for (long ids = this.generalizationsIn(word, excludedAttributes); ids != 0; ids &= ids - 1)
+				generalizations.add(this.lhss[(word << BITSHIFTS_TO_WORD_SIZE) + Long.numberOfTrailingZeros(ids)]);
 		return generalizations;
 	}
-	
+
 	@Override
 	public boolean containsLhs(BitSet lhs) {
-		for (BitSet stored : this.lhss)
-			if (stored.equals(lhs))
-				return true;
-		return false;
+		return this.idOf(lhs) != NONE;
 	}
-	
+
 	@Override
 	public boolean containsLhsOrGeneralization(BitSet lhs) {
-		for (BitSet generalization : this.lhss)
-			if (this.subsetOrEqual(generalization, lhs))
+		final int[] excludedAttributes = this.attributesNotIn(lhs);
+
+		for (int word = 0; word < this.numWords(); word++)
+			if (this.generalizationsIn(word, excludedAttributes) != 0)
 				return true;
 		return false;
 	}
 
-	private boolean subsetOrEqual(BitSet subset, BitSet other) {
-		if (subset.cardinality() > other.cardinality())
-			return false;
-		
-		for (int i = subset.nextSetBit(0); i >= 0; i = subset.nextSetBit(i + 1)) {
-			if (!other.get(i))
-				return false;
+	@Override
+	public void specializeAll(BitSet[] invalidLhss, int rhs, int maxDepth) {
+		final BitSet excluded = new BitSet(this.numAttributes);
+		final BitSet blocked = new BitSet(this.numAttributes);
+
+		for (BitSet invalidLhs : FDStore.sortAndDeduplicate(invalidLhss)) {
+			List<BitSet> generalLhss = this.getLhsAndGeneralizations(invalidLhs);
+			for (BitSet generalLhs : generalLhss)
+				this.removeLhs(generalLhs);
+
+			for (BitSet generalLhs : generalLhss) {
+				if ((maxDepth > 0) && (generalLhs.cardinality() >= maxDepth))
+					continue;
+
+				// The stored lhss that contain only attributes of the generalization and the specialization attributes (i.e., neither other
+				// attributes of the invalid lhs nor the rhs) are exactly the generalizations of some specialization; as no generalization of
+				// the generalization is left, each of them adds one specialization attribute and blocks it
+				excluded.clear();
+				excluded.or(invalidLhs);
+				excluded.andNot(generalLhs);
+				excluded.set(rhs);
+				final int[] excludedAttributes = new int[excluded.cardinality()];
+				for (int attribute = excluded.nextSetBit(0), i = 0; attribute >= 0; attribute = excluded.nextSetBit(attribute + 1), i++)
+					excludedAttributes[i] = attribute;
+
+				blocked.clear();
+				for (int word = 0; word < this.numWords(); word++) {
+					for (long ids = this.generalizationsIn(word, excludedAttributes); ids != 0; ids &= ids - 1) {
+						final BitSet lhs = this.lhss[(word << BITSHIFTS_TO_WORD_SIZE) + Long.numberOfTrailingZeros(ids)];
+						final int specAttribute = this.singleAttributeNotIn(lhs, generalLhs);
+						if (specAttribute >= 0)
+							blocked.set(specAttribute);
+					}
+				}
+
+				BitSet specLhs = generalLhs.clone();
+				for (int attribute = 0; attribute < this.numAttributes; attribute++) {
+					if (invalidLhs.get(attribute) || (attribute == rhs) || blocked.get(attribute))
+						continue;
+
+					specLhs.set(attribute);
+					this.addLhs(specLhs);
+					specLhs.clear(attribute);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the only attribute of the lhs that is not in the other lhs or -1 if there are none or several such attributes
+	 */
+	private int singleAttributeNotIn(BitSet lhs, BitSet other) {
+		int single = -1;
+		for (int attribute = lhs.nextSetBit(0); attribute >= 0; attribute = lhs.nextSetBit(attribute + 1)) {
+			if (other.get(attribute))
+				continue;
+			if (single >= 0)
+				return -1;
+			single = attribute;
 		}
-		
-		return true;
+		return single;
 	}
 
 	@Override
 	public void trimTree(int toDepth) {
-		List<BitSet> toRemove = new ArrayList<>();
-		for (BitSet lhs : this.lhss) {
-			if (lhs.cardinality() > toDepth) {
-				toRemove.add(lhs);
-			}
-		}
-		this.lhss.removeAll(toRemove);
-		this.unannounced.removeAll(toRemove);
+		if (this.depth <= toDepth)
+			return;
+
+		this.depth = toDepth;
+		for (int id = 0; id < this.numIds; id++)
+			if ((this.lhss[id] != null) && (this.lhss[id].cardinality() > toDepth))
+				this.remove(id);
 	}
 }
@@ -1,5 +1,7 @@
 package de.hpi.octopus.structures;
 
+import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
 
 public interface FDStore {
@@ -22,4 +24,53 @@ public interface FDStore {
 
 	public void trimTree(int toDepth);
 
+	/**
+	 * @return the size of the largest lhs that has been added to this store since it was last trimmed; this is an upper bound for the
+	 * largest lhs in the store, because removals do not lower it
+	 */
+	public int getDepth();
+
+	/**
+	 * Remove all lhss that are generalizations of one of the given invalid lhss and add their minimal, non-redundant specializations.
+	 * This default implementation handles each generalization and specialization separately; implementations should override it with
+	 * a batched version.
+	 * @param invalidLhss the lhss that have been found to be invalid
+	 * @param rhs the rhs attribute of the FDs in this store; it is never added to an lhs
+	 * @param maxDepth the maximum lhs size; no specializations are added that are larger than this; 0 or less means unlimited
+	 */
+	public default void specializeAll(BitSet[] invalidLhss, int rhs, int maxDepth) {
+		final int numAttributes = this.getNumAttributes();
+		
+		for (BitSet invalidLhs : sortAndDeduplicate(invalidLhss)) {
+			for (BitSet generalLhs : this.getLhsAndGeneralizations(invalidLhs)) {
+				BitSet specLhs = generalLhs.clone();
+				this.removeLhs(specLhs);
+				
+				if ((maxDepth > 0) && (specLhs.cardinality() >= maxDepth))
+					continue;
+				
+				for (int attribute = 0; attribute < numAttributes; attribute++) {
+					if (invalidLhs.get(attribute) || (attribute == rhs))
+						continue;
+					
+					specLhs.set(attribute);
+					if (!this.containsLhsOrGeneralization(specLhs))
+						this.addLhs(specLhs);
+					specLhs.clear(attribute);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Sort the given lhss by descending cardinality and remove duplicates. Processing large invalid lhss first removes most invalid
+	 * candidates early so that the smaller ones find fewer generalizations and cause fewer short-lived specializations.
+	 * @param lhss the lhss to be sorted; the array is not modified
+	 * @return the sorted, duplicate-free lhss
+	 */
+	public static BitSet[] sortAndDeduplicate(BitSet[] lhss) {
+		BitSet[] sorted = new LinkedHashSet<>(Arrays.asList(lhss)).toArray(new BitSet[0]);
+		Arrays.sort(sorted, (lhs1, lhs2) -> Integer.compare(lhs2.cardinality(), lhs1.cardinality()));
+		return sorted;
+	}
 }
@@ -37,6 +37,17 @@ public class FDTree extends FDTreeElement implements FDStore {
 		return this.numAttributes;
 	}
 	
+	@Override
+	public int getDepth() {
+		return this.depth;
+	}
+	
+	@Override
+	public boolean removeLhsAndGeneralizations(FDTree tree, BitSet lhs, int currentLhsAttr, List<BitSet> result) {
+		super.removeLhsAndGeneralizations(tree, lhs, currentLhsAttr, result);
+		return false; // Never remove the root
+	}
+	
 	@Override
 	public void removeChild(int attribute) {
 		this.children[attribute] = null;
@@ -82,14 +93,12 @@ public class FDTree extends FDTreeElement implements FDStore {
 	public void addLhs(BitSet lhs) {
 		// Add the elements for the lhs
 		FDTreeElement element = this;
-		int lhsSize = 0;
 		int attribute = lhs.nextSetBit(0);
 		for (int child = lhs.nextSetBit(attribute + 1); child >= 0; child = lhs.nextSetBit(child + 1)) {
 			if (!element.hasChild(attribute))
 				element.addChild(this.numAttributes, attribute, new FDTreeElement());
 			
 			element = element.getChildren()[attribute];
-			lhsSize++;
 			attribute = child;
 		}
 		
@@ -118,7 +127,7 @@ public class FDTree extends FDTreeElement implements FDStore {
 		this.first = leaf;
 */		
 		// Adjust the depth of this tree
-		this.depth = Math.max(this.depth, lhsSize);
+		this.depth = Math.max(this.depth, lhs.cardinality());
 	}
 
 	@Override
@@ -139,7 +148,17 @@ public class FDTree extends FDTreeElement implements FDStore {
 		}
 		
 		// Remove the leaf element from the linked list of unannounced leaf elements		
-		FDTreeLeaf leaf = (FDTreeLeaf) lhsElements[lhsCardinality];
+		this.unlink((FDTreeLeaf) lhsElements[lhsCardinality]);
+		
+		// Remove FDTreeElements for the given lhs path
+		for (int i = lhsCardinality; i > 0; i--) {
+			if (lhsElements[i].getChildren() != null)
+				return;
+			lhsElements[i - 1].removeChild(lhsAttributes[i]);
+		}
+	}
+
+	protected void unlink(FDTreeLeaf leaf) {
 		if (this.first == leaf)
 			this.first = leaf.getNext();
 		if (this.last == leaf)
@@ -148,15 +167,50 @@ public class FDTree extends FDTreeElement implements FDStore {
 			leaf.getPrevious().setNext(leaf.getNext());
 		if (leaf.getNext() != null)
 			leaf.getNext().setPrevious(leaf.getPrevious());
+	}
+	
+	@Override
+	public void specializeAll(BitSet[] invalidLhss, int rhs, int maxDepth) {
+		final BitSet candidates = new BitSet(this.numAttributes);
+		final BitSet allowed = new BitSet(this.numAttributes);
+		final BitSet blocked = new BitSet(this.numAttributes);
 		
-		// Remove FDTreeElements for the given lhs path
-		for (int i = lhsCardinality; i > 0; i--) {
-			if (lhsElements[i].getChildren() != null)
-				return;
-			lhsElements[i - 1].removeChild(lhsAttributes[i]);
+		for (BitSet invalidLhs : FDStore.sortAndDeduplicate(invalidLhss)) {
+			// Remove all generalizations in one traversal; afterwards, no generalization of any of them is left in the tree
+			List<BitSet> generalLhss = new ArrayList<>();
+			this.removeLhsAndGeneralizations(this, invalidLhs, invalidLhs.nextSetBit(0), generalLhss);
+			if (generalLhss.isEmpty())
+				continue;
+			
+			// The specialization attributes are all attributes that are neither in the invalid lhs nor the rhs
+			candidates.set(0, this.numAttributes);
+			candidates.andNot(invalidLhs);
+			candidates.clear(rhs);
+			
+			for (BitSet generalLhs : generalLhss) {
+				if ((maxDepth > 0) && (generalLhs.cardinality() >= maxDepth))
+					continue;
+				
+				// Find all non-minimal specializations with one traversal instead of one generalization lookup per attribute
+				allowed.clear();
+				allowed.or(generalLhs);
+				allowed.or(candidates);
+				blocked.clear();
+				this.collectBlockedSpecializations(generalLhs, allowed, 0, -1, blocked);
+				
+				BitSet specLhs = generalLhs.clone();
+				for (int attribute = candidates.nextSetBit(0); attribute >= 0; attribute = candidates.nextSetBit(attribute + 1)) {
+					if (blocked.get(attribute))
+						continue;
+					
+					specLhs.set(attribute);
+					this.addLhs(specLhs);
+					specLhs.clear(attribute);
+				}
+			}
 		}
 	}
-
+	
 	@Override
 	public BitSet[] announceLhss(int amount) {
 		// Collect "amount"-many lhss from the head of the leaf elements list
@@ -60,6 +60,57 @@ public class FDTreeElement {
 		}
 	}
 	
+	/**
+	 * Remove the lhs and all of its generalizations from this sub-tree and collect them in the result.
+	 * @return true if this element became empty and should be removed from its parent
+	 */
+	public boolean removeLhsAndGeneralizations(FDTree tree, BitSet lhs, int currentLhsAttr, List<BitSet> result) {
+		boolean removed = false;
+		while (currentLhsAttr >= 0) {	
+			int nextLhsAttr = lhs.nextSetBit(currentLhsAttr + 1);
+
+			if ((this.children[currentLhsAttr] != null) && this.children[currentLhsAttr].removeLhsAndGeneralizations(tree, lhs, nextLhsAttr, result)) {
+				this.children[currentLhsAttr] = null;
+				removed = true;
+			}
+			
+			currentLhsAttr = nextLhsAttr;
+		}
+		
+		if (!removed)
+			return false;
+		for (int i = 0; i < this.children.length; i++)
+			if (this.children[i] != null)
+				return false;
+		return true;
+	}
+	
+	/**
+	 * Find the attributes a for which lhs + a has a generalization in this sub-tree that contains a. The search follows only paths
+	 * whose attributes are in the lhs except for at most one attribute of the allowed attributes, which is the specialization attribute.
+	 * @param lhs the lhs to be specialized
+	 * @param allowed the lhs plus all attributes that may specialize it
+	 * @param currentAttr the first attribute to be considered at this level
+	 * @param specAttr the specialization attribute on the path to this element or -1 if the path contains only lhs attributes
+	 * @param blocked the attributes that would specialize the lhs into a non-minimal lhs
+	 */
+	public void collectBlockedSpecializations(BitSet lhs, BitSet allowed, int currentAttr, int specAttr, BitSet blocked) {
+		if ((specAttr >= 0) && blocked.get(specAttr))
+			return;
+		
+		// Once a specialization attribute is on the path, only the attributes of the lhs may follow
+		final BitSet attributes = (specAttr < 0) ? allowed : lhs;
+		for (int attr = attributes.nextSetBit(currentAttr); attr >= 0; attr = attributes.nextSetBit(attr + 1)) {
+			if (this.children[attr] == null)
+				continue;
+			
+			if (lhs.get(attr))
+				this.children[attr].collectBlockedSpecializations(lhs, allowed, attr + 1, specAttr, blocked);
+			else
+				this.children[attr].collectBlockedSpecializations(lhs, allowed, attr + 1, attr, blocked);
+		}
+	}
+	
 	public boolean trim(int toDepth) {
 		for (int i = 0; i < this.children.length; i++)
 			if ((this.children[i] != null) && this.children[i].trim(toDepth))
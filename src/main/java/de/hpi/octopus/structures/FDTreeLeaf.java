@@ -33,6 +33,21 @@ public class FDTreeLeaf extends FDTreeElement {
 		result.add(this.lhs);
 	}
 	
+	@Override
+	public boolean removeLhsAndGeneralizations(FDTree tree, BitSet lhs, int currentLhsAttr, List<BitSet> result) {
+		tree.unlink(this);
+		result.add(this.lhs);
+		return true;
+	}
+	
+	@Override
+	public void collectBlockedSpecializations(BitSet lhs, BitSet allowed, int currentAttr, int specAttr, BitSet blocked) {
+		if (specAttr >= 0)
+			blocked.set(specAttr);
+		else
+			blocked.or(allowed); // This leaf generalizes the lhs itself and, hence, all of its specializations
+	}
+	
 	@Override
 	public boolean trim(int toDepth) {
 		if (this.lhs.cardinality() > toDepth) {
@@ -0,0 +1,117 @@
+package de.hpi.octopus.structures;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Stores the plis in a memory-mapped file so that they live in the page cache and not on the heap; all storekeepers that map the same
+ * file share one copy of the plis. Each attribute's pli is mapped separately to stay within the 2 GB limit of a single mapping, and
+ * getPli() copies only the requested pli onto the heap. The file is written in native byte order and, hence, meant to be read only on
+ * the machine that wrote it.
+ *
+ * File layout: numRecords (int), numAttributes (int), pli sizes (long per attribute), plis (per attribute: numClusters, then per cluster: size, records)
+ */
+public class MappedPliStore implements PliStore {
+
+	private final IntBuffer[] plis; // Read-only views that are only duplicated and never moved so that all threads can share them
+
+	private MappedPliStore(final IntBuffer[] plis) {
+		this.plis = plis;
+	}
+
+	/**
+	 * Writes the plis into the file and returns a read-only store on that file.
+	 * @param path the file to be written; an existing file is overwritten
+	 * @param plis the plis to be stored
+	 * @param numRecords the number of records in the plis
+	 * @return the store on the written file
+	 * @throws IOException if the file cannot be written
+	 */
+	public static MappedPliStore write(final Path path, final int[][][] plis, final int numRecords) throws IOException {
+		final int numAttributes = plis.length;
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			final ByteBuffer header = channel.map(MapMode.READ_WRITE, 0, headerSize(numAttributes)).order(ByteOrder.nativeOrder());
+			header.putInt(numRecords);
+			header.putInt(numAttributes);
+
+			long position = headerSize(numAttributes);
+			for (int[][] pli : plis) {
+				long size = Integer.BYTES;
+				for (int[] cluster : pli)
+					size += Integer.BYTES * (1L + cluster.length);
+				header.putLong(size);
+
+				final IntBuffer buffer = channel.map(MapMode.READ_WRITE, position, size).order(ByteOrder.nativeOrder()).asIntBuffer();
+				buffer.put(pli.length);
+				for (int[] cluster : pli) {
+					buffer.put(cluster.length);
+					buffer.put(cluster);
+				}
+				position += size;
+			}
+		}
+		return read(path);
+	}
+
+	/**
+	 * Maps the plis of a file that was written with write().
+	 * @param path the file to be read
+	 * @return the store on the file
+	 * @throws IOException if the file cannot be read
+	 */
+	public static MappedPliStore read(final Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			final ByteBuffer counts = channel.map(MapMode.READ_ONLY, 0, 8).order(ByteOrder.nativeOrder());
+			counts.getInt(); // numRecords
+			final int numAttributes = counts.getInt();
+
+			final ByteBuffer header = channel.map(MapMode.READ_ONLY, 8, headerSize(numAttributes) - 8).order(ByteOrder.nativeOrder());
+
+			// The mappings stay valid after the channel is closed
+			final IntBuffer[] plis = new IntBuffer[numAttributes];
+			long position = headerSize(numAttributes);
+			for (int attribute = 0; attribute < numAttributes; attribute++) {
+				final long size = header.getLong();
+				plis[attribute] = channel.map(MapMode.READ_ONLY, position, size).order(ByteOrder.nativeOrder()).asIntBuffer();
+				position += size;
+			}
+			return new MappedPliStore(plis);
+		}
+	}
+
+	private static int headerSize(final int numAttributes) {
+		return Integer.BYTES + Integer.BYTES + Long.BYTES * numAttributes;
+	}
+
+	@Override
+	public int getNumAttributes() {
+		return this.plis.length;
+	}
+
+	/**
+	 * Derive the number of records from the pli's size, i.e., the number of clusters and their sizes, without reading the clusters.
+	 */
+	@Override
+	public long getNumClusteredRecords(int attribute) {
+		final IntBuffer pli = this.plis[attribute];
+		return pli.limit() - 1 - pli.get(0);
+	}
+
+	@Override
+	public int[][] getPli(int attribute) {
+		final IntBuffer buffer = this.plis[attribute].duplicate();
+		final int[][] pli = new int[buffer.get()][];
+		for (int clusterId = 0; clusterId < pli.length; clusterId++) {
+			pli[clusterId] = new int[buffer.get()];
+			buffer.get(pli[clusterId]);
+		}
+		return pli;
+	}
+}
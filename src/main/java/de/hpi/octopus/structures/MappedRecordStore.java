@@ -0,0 +1,179 @@
+package de.hpi.octopus.structures;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Stores the pli-records column-wise in a memory-mapped file so that they live in the page cache and not on the heap.
+ * The columns use the same byte, short, or int encoding as the ColumnarRecordStore; each column is mapped separately to stay within the 2 GB
+ * limit of a single mapping. The file is written in native byte order and, hence, meant to be read only on the machine that wrote it.
+ *
+ * File layout: numRecords (int), numAttributes (int), widths (int per attribute), column data (numRecords * width bytes per attribute)
+ */
+public class MappedRecordStore implements RecordStore {
+
+	private static final byte BYTE = ColumnarRecordStore.BYTE;
+	private static final byte SHORT = ColumnarRecordStore.SHORT;
+
+	private final byte[] widths;
+	private final ByteBuffer[] columns;
+	private final int numRecords;
+
+	private MappedRecordStore(final byte[] widths, final ByteBuffer[] columns, final int numRecords) {
+		this.widths = widths;
+		this.columns = columns;
+		this.numRecords = numRecords;
+	}
+
+	/**
+	 * Writes the pli-records of the given plis into the file and returns a read-only store on that file.
+	 * @param path the file to be written; an existing file is overwritten
+	 * @param plis the plis whose records are to be stored
+	 * @param numRecords the number of records in the plis
+	 * @param compact true if narrow columns should be used where possible
+	 * @return the store on the written file
+	 * @throws IOException if the file cannot be written
+	 */
+	public static MappedRecordStore write(final Path path, final int[][][] plis, final int numRecords, final boolean compact) throws IOException {
+		final int numAttributes = plis.length;
+
+		final byte[] widths = new byte[numAttributes];
+		for (int attribute = 0; attribute < numAttributes; attribute++)
+			widths[attribute] = ColumnarRecordStore.widthOf(plis[attribute].length, compact);
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			final int headerSize = headerSize(numAttributes);
+			final ByteBuffer header = channel.map(MapMode.READ_WRITE, 0, headerSize).order(ByteOrder.nativeOrder());
+			header.putInt(numRecords);
+			header.putInt(numAttributes);
+			for (int attribute = 0; attribute < numAttributes; attribute++)
+				header.putInt(widths[attribute]);
+
+			long position = headerSize;
+			for (int attribute = 0; attribute < numAttributes; attribute++) {
+				final int[][] pli = plis[attribute];
+				final long size = (long) numRecords * widths[attribute];
+				final ByteBuffer column = channel.map(MapMode.READ_WRITE, position, size).order(ByteOrder.nativeOrder());
+
+				// Narrow columns store clusterId + 1 so that the zero-initialized file content encodes unique values
+				switch (widths[attribute]) {
+					case BYTE:
+						for (int clusterId = 0; clusterId < pli.length; clusterId++)
+							for (int record : pli[clusterId])
+								column.put(record, (byte) (clusterId + 1));
+						break;
+					case SHORT:
+						for (int clusterId = 0; clusterId < pli.length; clusterId++)
+							for (int record : pli[clusterId])
+								column.putShort(record << 1, (short) (clusterId + 1));
+						break;
+					default:
+						for (int record = 0; record < numRecords; record++)
+							column.putInt(record << 2, -1);
+						for (int clusterId = 0; clusterId < pli.length; clusterId++)
+							for (int record : pli[clusterId])
+								column.putInt(record << 2, clusterId);
+				}
+				position += size;
+			}
+		}
+		return read(path);
+	}
+
+	/**
+	 * Maps the pli-records of a file that was written with write().
+	 * @param path the file to be read
+	 * @return the store on the file
+	 * @throws IOException if the file cannot be read
+	 */
+	public static MappedRecordStore read(final Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			final ByteBuffer counts = channel.map(MapMode.READ_ONLY, 0, 8).order(ByteOrder.nativeOrder());
+			final int numRecords = counts.getInt();
+			final int numAttributes = counts.getInt();
+
+			final int headerSize = headerSize(numAttributes);
+			final ByteBuffer header = channel.map(MapMode.READ_ONLY, 8, headerSize - 8).order(ByteOrder.nativeOrder());
+			final byte[] widths = new byte[numAttributes];
+			for (int attribute = 0; attribute < numAttributes; attribute++)
+				widths[attribute] = (byte) header.getInt();
+
+			// The mappings stay valid after the channel is closed
+			final ByteBuffer[] columns = new ByteBuffer[numAttributes];
+			long position = headerSize;
+			for (int attribute = 0; attribute < numAttributes; attribute++) {
+				final long size = (long) numRecords * widths[attribute];
+				columns[attribute] = channel.map(MapMode.READ_ONLY, position, size).order(ByteOrder.nativeOrder());
+				position += size;
+			}
+			return new MappedRecordStore(widths, columns, numRecords);
+		}
+	}
+
+	private static int headerSize(final int numAttributes) {
+		return 4 + 4 + 4 * numAttributes;
+	}
+
+	@Override
+	public int getNumRecords() {
+		return this.numRecords;
+	}
+
+	@Override
+	public int getNumAttributes() {
+		return this.widths.length;
+	}
+
+	@Override
+	public int get(int record, int attribute) {
+		final byte width = this.widths[attribute];
+		if (width == BYTE)
+			return (this.columns[attribute].get(record) & 0xFF) - 1;
+		if (width == SHORT)
+			return (this.columns[attribute].getShort(record << 1) & 0xFFFF) - 1;
+		return this.columns[attribute].getInt(record << 2);
+	}
+
+	/**
+	 * Compare the encoded cluster ids directly as the ColumnarRecordStore does.
+	 */
+	@Override
+	public void match(int record1, int record2, long[] words) {
+		for (int wordIndex = 0; wordIndex < words.length; wordIndex++) {
+			long word = 0;
+			for (int attribute = wordIndex << 6; attribute < Math.min((wordIndex + 1) << 6, this.widths.length); attribute++) {
+				final byte width = this.widths[attribute];
+				final ByteBuffer column = this.columns[attribute];
+				final boolean agree;
+				if (width == BYTE) {
+					final byte value = column.get(record1);
+					agree = (value != 0) && (value == column.get(record2));
+				}
+				else if (width == SHORT) {
+					final short value = column.getShort(record1 << 1);
+					agree = (value != 0) && (value == column.getShort(record2 << 1));
+				}
+				else {
+					final int value = column.getInt(record1 << 2);
+					agree = (value != -1) && (value == column.getInt(record2 << 2));
+				}
+				if (agree)
+					word |= 1L << attribute;
+			}
+			words[wordIndex] = word;
+		}
+	}
+
+	@Override
+	public long getByteSize() {
+		long byteSize = 0;
+		for (byte width : this.widths)
+			byteSize += (long) width * this.numRecords;
+		return byteSize;
+	}
+}
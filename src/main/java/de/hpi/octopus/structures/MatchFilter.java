@@ -0,0 +1,40 @@
+package de.hpi.octopus.structures;
+
+import java.util.List;
+
+/**
+ * A set of agree-sets (the matches of record comparisons) that the samplers and validators of a node share to not report the same
+ * non-FD evidence twice. Implementations are thread-safe and may be lossy, i.e., report agree-sets as contained that were never added.
+ */
+public interface MatchFilter {
+
+	/**
+	 * Add the element to the filter if it is not yet contained; all threads of a node may call this method concurrently.
+	 * @param element the element to be added
+	 * @return true if the element was added; false if it existed already
+	 */
+	public boolean addIfAbsent(BitSet element);
+	
+	/**
+	 * Add all the elements to the filter; all threads of a node may call this method concurrently.
+	 * @param elements the elements to be added
+	 */
+	public void addAll(List<BitSet> elements);
+	
+	/**
+	 * Test if the filter contains the element.
+	 * @param element the element to be tested
+	 */
+	public boolean contains(BitSet element);
+	
+	/**
+	 * Merge all elements of the other filter into this filter.
+	 * @param other the other filter; it must be of the same kind and configuration as this filter
+	 */
+	public void merge(MatchFilter other);
+	
+	/**
+	 * @return a one-line summary of the filter's fill state for the logs
+	 */
+	public String getStatistics();
+}
@@ -0,0 +1,184 @@
+package de.hpi.octopus.structures;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * An exact set of agree-sets, i.e., a MatchFilter without false positives. The agree-sets are stored as packed words in open
+ * addressing tables with linear probing, which needs numWords * 8 + 4 bytes per slot and no objects per element. The set is split into
+ * segments by the high bits of the element hashes; writers lock only their segment, readers do not lock at all: a slot's tag is
+ * published after its words, and a segment grows into a new table that replaces the old one atomically.
+ */
+public class MatchSet implements MatchFilter {
+
+	private static final int BITSHIFTS_TO_NUM_SEGMENTS = 6;
+	private static final int NUM_SEGMENTS = 1 << BITSHIFTS_TO_NUM_SEGMENTS;
+	private static final int MIN_CAPACITY = 16;
+	private static final float MAX_LOAD_FACTOR = 0.75f;
+	private static final int EMPTY = 0;
+	
+	private final int numWords;
+	private final Segment[] segments;
+	
+	private static final class Segment {
+		private volatile Table table;
+		private volatile int size;	// Written only under the lock of this segment
+		
+		private Segment(int numWords) {
+			this.table = new Table(MIN_CAPACITY, numWords);
+		}
+	}
+	
+	private static final class Table {
+		private final long[] words;				// The agree-sets; slot i holds the words [i * numWords, (i + 1) * numWords)
+		private final AtomicIntegerArray tags;	// The high half of the element's hash with the lowest bit set; EMPTY if the slot is empty
+		private final int mask;
+		
+		private Table(int capacity, int numWords) {
+			this.words = new long[capacity * numWords];
+			this.tags = new AtomicIntegerArray(capacity);
+			this.mask = capacity - 1;
+		}
+		
+		private int capacity() {
+			return this.mask + 1;
+		}
+	}
+	
+	public MatchSet(int numAttributes) {
+		this.numWords = Math.max(1, (numAttributes + 63) >>> 6);
+		this.segments = new Segment[NUM_SEGMENTS];
+		for (int i = 0; i < NUM_SEGMENTS; i++)
+			this.segments[i] = new Segment(this.numWords);
+	}
+	
+	public long size() {
+		long size = 0;
+		for (Segment segment : this.segments)
+			size += segment.size;
+		return size;
+	}
+	
+	public long getByteSize() {
+		long byteSize = 0;
+		for (Segment segment : this.segments)
+			byteSize += segment.table.capacity() * (this.numWords * 8L + 4);
+		return byteSize;
+	}
+	
+	@Override
+	public String getStatistics() {
+		return String.format("Match set holds %d agree-sets in %d bytes", this.size(), this.getByteSize());
+	}
+	
+	private long hash(BitSet element) {
+		if (element.physicalLength() == this.numWords)
+			return element.longHashCode();
+		
+		// Hash the element as if it had exactly numWords words so that equal agree-sets have equal hashes
+		if (element.logicalLength() > this.numWords << 6)
+			throw new IllegalArgumentException("The agree-set " + element + " has more attributes than the match set.");
+		final long[] words = new long[this.numWords];
+		for (int i = 0; i < Math.min(this.numWords, element.physicalLength()); i++)
+			words[i] = element.word(i);
+		return MurmurHash.hash(words);
+	}
+	
+	private static int tagOf(long hash) {
+		return ((int) (hash >>> 32)) | 1;
+	}
+	
+	private Segment segmentOf(long hash) {
+		return this.segments[(int) (hash >>> (64 - BITSHIFTS_TO_NUM_SEGMENTS))];
+	}
+	
+	private boolean matches(Table table, int slot, BitSet element) {
+		final int offset = slot * this.numWords;
+		for (int i = 0; i < this.numWords; i++)
+			if (table.words[offset + i] != ((i < element.physicalLength()) ? element.word(i) : 0))
+				return false;
+		return true;
+	}
+	
+	/**
+	 * @return the slot of the element or the empty slot where it would be inserted
+	 */
+	private int find(Table table, long hash, BitSet element) {
+		final int tag = tagOf(hash);
+		for (int slot = (int) hash & table.mask; ; slot = (slot + 1) & table.mask) {
+			final int slotTag = table.tags.get(slot);
+			if ((slotTag == EMPTY) || ((slotTag == tag) && this.matches(table, slot, element)))
+				return slot;
+		}
+	}
+	
+	@Override
+	public boolean contains(BitSet element) {
+		final long hash = this.hash(element);
+		final Table table = this.segmentOf(hash).table;
+		return table.tags.get(this.find(table, hash, element)) != EMPTY;
+	}
+	
+	@Override
+	public boolean addIfAbsent(BitSet element) {
+		final long hash = this.hash(element);
+		final Segment segment = this.segmentOf(hash);
+		synchronized (segment) {
+			Table table = segment.table;
+			int slot = this.find(table, hash, element);
+			if (table.tags.get(slot) != EMPTY)
+				return false;
+			
+			if (segment.size + 1 > table.capacity() * MAX_LOAD_FACTOR) {
+				table = this.grow(table);
+				segment.table = table;
+				slot = this.find(table, hash, element);
+			}
+			
+			// Write the words before the tag so that readers that see the tag also see the words
+			final int offset = slot * this.numWords;
+			for (int i = 0; i < Math.min(this.numWords, element.physicalLength()); i++)
+				table.words[offset + i] = element.word(i);
+			table.tags.set(slot, tagOf(hash));
+			segment.size++;
+			return true;
+		}
+	}
+	
+	private Table grow(Table table) {
+		final Table grown = new Table(table.capacity() << 1, this.numWords);
+		for (int slot = 0; slot < table.capacity(); slot++) {
+			if (table.tags.get(slot) == EMPTY)
+				continue;
+			
+			final long hash = MurmurHash.hash(table.words, slot * this.numWords, this.numWords);
+			int newSlot = (int) hash & grown.mask;
+			while (grown.tags.get(newSlot) != EMPTY)
+				newSlot = (newSlot + 1) & grown.mask;
+			
+			System.arraycopy(table.words, slot * this.numWords, grown.words, newSlot * this.numWords, this.numWords);
+			grown.tags.set(newSlot, table.tags.get(slot));
+		}
+		return grown;
+	}
+	
+	@Override
+	public void addAll(List<BitSet> elements) {
+		for (BitSet element : elements)
+			this.addIfAbsent(element);
+	}
+	
+	@Override
+	public void merge(MatchFilter other) {
+		if (!(other instanceof MatchSet) || (((MatchSet) other).numWords != this.numWords))
+			throw new IllegalArgumentException("A MatchSet can only be merged with another MatchSet for the same number of attributes.");
+		
+		for (Segment segment : ((MatchSet) other).segments) {
+			final Table table = segment.table;
+			for (int slot = 0; slot < table.capacity(); slot++)
+				if (table.tags.get(slot) != EMPTY)
+					this.addIfAbsent(new BitSet(Arrays.copyOfRange(table.words, slot * this.numWords, (slot + 1) * this.numWords)));
+		}
+	}
+}
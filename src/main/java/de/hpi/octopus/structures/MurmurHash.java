@@ -16,6 +16,13 @@ public class MurmurHash {
 		return hash;
 	}
 	
+	public static int hashBy(RecordStore records, int record, int[] attributes) {
+		int hash = 0;
+		for (int i = 0; i < attributes.length; i++)
+			hash += hash(records.get(record, attributes[i]));
+		return hash;
+	}
+	
 	public static int hash(int data) {
 		int m = 0x5bd1e995;
 		int r = 24;
@@ -37,4 +44,40 @@ public class MurmurHash {
 
 		return h;
 	}
+	
+	/**
+	 * Hash the data with the body and finalization mix of the 64 bit MurmurHash3, i.e., each long is one block.
+	 */
+	public static long hash(long[] data) {
+		return hash(data, 0, data.length);
+	}
+	
+	/**
+	 * Hash the given range of the data with the body and finalization mix of the 64 bit MurmurHash3; the hash equals the hash of an
+	 * array that holds only this range.
+	 */
+	public static long hash(long[] data, int offset, int length) {
+		final long c1 = 0x87c37b91114253d5L;
+		final long c2 = 0x4cf5ad432745937fL;
+		
+		long h = length;
+		for (int i = offset; i < offset + length; i++) {
+			long k = data[i] * c1;
+			k = Long.rotateLeft(k, 31);
+			k *= c2;
+			
+			h ^= k;
+			h = Long.rotateLeft(h, 27);
+			h = h * 5 + 0x52dce729;
+		}
+		h ^= length * 8L;
+		
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		
+		return h;
+	}
 }
@@ -1,28 +1,78 @@
 package de.hpi.octopus.structures;
 
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
-import lombok.Getter;
-
+/**
+ * A trie of intersected plis. If the cache exceeds its size, it evicts the plis with the lowest score, which is their read count
+ * times the number of records that their recomputation needs to intersect per byte that they occupy. A lookup counts a read on
+ * every pli along its path, because evicting a pli also evicts all its extensions. The read counts decay by half every
+ * readsPerDecay lookups so that plis that were hot only early in the discovery do not pin memory forever; the decay depends only on
+ * the lookups and not on how often the cache is pruned. Instead of lowering all old reads, the cache doubles the weight of all later
+ * reads, which leads to the same order of scores. Hence, scores only grow: the cached plis wait in a priority queue under the score
+ * of their last scoring, and an eviction re-scores the polled pli and evicts it if its score did not grow or queues it again
+ * otherwise, which makes each eviction O(log n).
+ * 
+ * All validators of a node share the cache: they read, add, and blacklist plis directly and without locks (see PliCacheElement).
+ * New plis are handed to the eviction via a concurrent queue, and the first validator that finds the cache over its maximum size
+ * prunes it down to a low-water mark while all others continue without waiting. The read weights and scores are, hence, only
+ * approximate.
+ */
 public class PliCache {
 
-	@Getter
-	private long byteSize;					// Size of this cache in bytes
+	private static final double READS_DECAY = 0.5;			// The factor by which all reads decay every readsPerDecay lookups
+	private static final double MAX_READ_WEIGHT = 1e100;
+	private static final int DEFAULT_READS_PER_DECAY = 100000;
+	private static final double LOW_WATER_MARK = 0.9;		// The share of the maximum size to which a full cache prunes itself so that prunings are rare
+
+	private final AtomicLong byteSize;		// Size of this cache in bytes
+	private final long maxByteSize;			// Size in bytes above which the cache prunes itself
 	
 	private PliCacheElement[] children;
-	private int readsThreshold;				// Number of reads a pli needs to survive the next prune() call; increases with every prune() call
+	private PriorityQueue<PliCacheElement> evictionQueue;	// All cached, non-unary plis ordered by their score; may contain evicted and blacklisted elements; guarded by the pruneLock
+	private final Queue<PliCacheElement> additions;			// The plis that have been added since the last pruning and still need to be queued for eviction
+	private final ReentrantLock pruneLock;
+	private volatile double readWeight;		// The weight of a read; doubles every readsPerDecay lookups so that older reads decay relative to newer ones; written only under the pruneLock
+	private final int readsPerDecay;		// The number of lookups after which all reads decay
+	private int readsSinceDecay;			// Not synchronized, because a lost lookup only delays the next decay a little
 
-	public PliCache(int[][][] unaryPlis) {
-		this.children = new PliCacheElement[unaryPlis.length];
-		this.byteSize = 0;					// We ignore the size of this PliCache object and the size of the unary plis, because they are not optional, i.e., no real cache items
-		this.readsThreshold = 0;
+	public PliCache(PliStore unaryPlis) {
+		this(unaryPlis, Long.MAX_VALUE);
+	}
+	
+	public PliCache(PliStore unaryPlis, long maxByteSize) {
+		this(unaryPlis, maxByteSize, DEFAULT_READS_PER_DECAY);
+	}
+	
+	PliCache(PliStore unaryPlis, long maxByteSize, int readsPerDecay) {
+		this.children = new PliCacheElement[unaryPlis.getNumAttributes()];
+		this.byteSize = new AtomicLong(0);	// We ignore the size of this PliCache object and the size of the unary plis, because they are not optional, i.e., no real cache items
+		this.maxByteSize = maxByteSize;
+		this.evictionQueue = new PriorityQueue<>(Comparator.comparingDouble(PliCacheElement::getScore));
+		this.additions = new ConcurrentLinkedQueue<>();
+		this.pruneLock = new ReentrantLock();
+		this.readWeight = 1;
+		this.readsPerDecay = readsPerDecay;
+		this.readsSinceDecay = 0;
 		
-		for (int i = 0; i < unaryPlis.length; i++)
-			this.children[i] = new PliCacheElement(unaryPlis[i], unaryPlis.length, Integer.MAX_VALUE);
+		for (int i = 0; i < this.children.length; i++)
+			this.children[i] = new PliCacheElement(unaryPlis.getNumClusteredRecords(i), this.children.length);
 	}
 
+	public long getByteSize() {
+		return this.byteSize.get();
+	}
+	
 	public PliCacheElement get(int... attributes) {
-		return this.children[attributes[0]].get(attributes, 1);
+		final PliCacheElement element = this.children[attributes[0]].get(attributes, 1, this.readWeight);
+		if (++this.readsSinceDecay >= this.readsPerDecay)
+			this.decayReads();
+		return element;
 	}
 
 	public void blacklist(final int[] attributes) {
@@ -32,7 +82,9 @@ public class PliCache {
 		if (childIndex + 1 == attributes.length)
 			throw new IllegalArgumentException("The blacklist() method was called for a unary pli, but the unary plis should never be blacklisted.");
 		
-		this.byteSize += this.children[attributes[childIndex]].blacklist(attributes, childIndex + 1);
+		final PliCacheElement parent = this.children[attributes[childIndex]].getParent(attributes, childIndex + 1);
+		if (parent != null)
+			this.byteSize.addAndGet(parent.blacklistChild(attributes[attributes.length - 1]));
 	}
 	
 	public void add(final int[] attributes, final int[][] pli) {
@@ -44,14 +96,99 @@ public class PliCache {
 			throw new IllegalArgumentException("The add() method was called for a unary pli, but the unary plis are always present by default.");
 		}
 		
-		this.byteSize += this.children[attributes[childIndex]].add(attributes, childIndex + 1, pli);
+		// Return without adding the pli if one of its prefixes was blacklisted or evicted
+		final PliCacheElement parent = this.children[attributes[childIndex]].getParent(attributes, childIndex + 1);
+		if (parent == null)
+			return;
+		
+		final PliCacheElement element = parent.addChild(attributes[attributes.length - 1], pli, this.readWeight);
+		if (element == null)
+			return;
+		
+		// Remove the element right away if its parent has been evicted or blacklisted concurrently
+		this.byteSize.addAndGet(element.getByteSize() - parent.clearIfOrphaned(element));
+		this.additions.add(element);
+		
+		this.ensureCapacity();
+	}
+	
+	/**
+	 * Prune the cache down to the low-water mark if it exceeds its maximum size and no other thread is already pruning it; the free
+	 * space lets the following additions proceed without pruning.
+	 * @return true if this call pruned the cache
+	 */
+	public boolean ensureCapacity() {
+		if ((this.byteSize.get() <= this.maxByteSize) || !this.pruneLock.tryLock())
+			return false;
+		
+		try {
+			this.evict((long) (LOW_WATER_MARK * this.maxByteSize));
+			return true;
+		}
+		finally {
+			this.pruneLock.unlock();
+		}
 	}
 	
 	public void prune(long targetSize) {
-		while (this.byteSize > targetSize) {
-			for (int i = 0; i < this.children.length; i++)
-				this.byteSize += this.children[i].prune(this.readsThreshold);
-			this.readsThreshold++;
+		this.pruneLock.lock();
+		try {
+			this.evict(targetSize);
+		}
+		finally {
+			this.pruneLock.unlock();
+		}
+	}
+	
+	private void evict(long targetSize) {
+		// Queue the plis that have been added meanwhile
+		for (PliCacheElement element = this.additions.poll(); element != null; element = this.additions.poll()) {
+			if (!element.isCached())
+				continue;
+			element.rescore();
+			this.evictionQueue.add(element);
+		}
+		
+		while ((this.byteSize.get() > targetSize) && !this.evictionQueue.isEmpty()) {
+			final PliCacheElement element = this.evictionQueue.poll();
+			
+			// Skip elements that have been blacklisted or evicted together with one of their prefixes
+			if (!element.isCached())
+				continue;
+			
+			// Queue the element again if it has been read so often since its last scoring that its score rose
+			final double queuedScore = element.getScore();
+			if (element.rescore() > queuedScore) {
+				this.evictionQueue.add(element);
+				continue;
+			}
+			
+			this.byteSize.addAndGet(element.evict());
+		}
+	}
+	
+	/**
+	 * Double the weight of all later reads; if another thread is pruning the cache, the decay waits for the next lookup.
+	 */
+	private void decayReads() {
+		if (!this.pruneLock.tryLock())
+			return;
+		
+		try {
+			this.readsSinceDecay = 0;
+			this.readWeight /= READS_DECAY;
+			
+			// Scale all scores down before the read weight overflows; this keeps their order and, hence, the priority queue intact
+			if (this.readWeight > MAX_READ_WEIGHT) {
+				for (PliCacheElement element : this.evictionQueue)
+					element.normalize(this.readWeight);
+				for (PliCacheElement element : this.additions)
+					element.normalize(this.readWeight);
+				this.readWeight = 1;
+			}
+		}
+		finally {
+			this.pruneLock.unlock();
 		}
 	}
 	
@@ -65,8 +202,8 @@ public class PliCache {
 		if (reducedNumClusters == 0)
 			return true;
 
-		final float originalNumRecords = countRecords(originalPli);
-		final float reducedNumRecords = countRecords(reducedPli);
+		final float originalNumRecords = PliCacheElement.countRecords(originalPli);
+		final float reducedNumRecords = PliCacheElement.countRecords(reducedPli);
 		
 		final float reductionRecordsPerPli = 1 - reducedNumRecords / originalNumRecords;
 		
@@ -84,11 +221,4 @@ public class PliCache {
 */		
 		return true;
 	}
-
-	private static int countRecords(int[][] pli) {
-		int numRecords = 0;
-		for (int i = 0; i < pli.length; i++)
-			numRecords += pli[i].length;
-		return numRecords;
-	}
 }
@@ -1,36 +1,64 @@
 package de.hpi.octopus.structures;
 
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
 import lombok.Getter;
 
+/**
+ * An element of the pli cache trie. All validators of a node read and extend the trie concurrently and without locks: new children
+ * are published with a compare-and-set on their parent's children array, and an element is removed by exactly one thread, namely
+ * the one that wins the compare-and-set on its cleared flag; only that thread accounts for the freed bytes. The weighted reads are
+ * not synchronized, because they only guide the eviction and a lost read does not matter.
+ */
 @Getter
 public class PliCacheElement {
 
-	private int[][] pli;
-	private PliCacheElement[] children;
-	private int reads;
-	private long byteSize;
+	private static final AtomicIntegerFieldUpdater<PliCacheElement> CLEARED = AtomicIntegerFieldUpdater.newUpdater(PliCacheElement.class, "cleared");
+
+	private volatile int[][] pli;
+	private volatile AtomicReferenceArray<PliCacheElement> children;	// The children by attribute; null if this element is blacklisted or cleared
+	private volatile int cleared;			// 1 if this element has been removed from the cache; set exactly once
+	private final long byteSize;
 	
-	public PliCacheElement(final int[][] pli, final int numAttributes) {
-		this.pli = pli;
-		this.children = new PliCacheElement[numAttributes];
-		this.reads = 0;
-		this.byteSize = this.calculateByteSize();
+	private final PliCacheElement parent;	// The element whose pli was intersected to compute this pli; null for the unary plis
+	private final int attribute;			// The attribute that this element's pli adds to the parent's pli
+	private final long cost;				// The number of records that were intersected to compute this pli, i.e., the cost of recomputing it; for the unary plis, which the cache does not hold, the number of their records
+	
+	private double weightedReads;			// The reads, each weighted with the read weight of its time; the creation of the element counts as a read
+	private double score;					// The eviction score of the last scoring; elements with low scores are evicted first
+	
+	/**
+	 * Create the element of a unary pli. The unary plis are always available and, hence, not held by the cache; the element only
+	 * records the number of the pli's records, which is the cost of recomputing its children.
+	 */
+	public PliCacheElement(final long numRecords, final int numAttributes) {
+		this(null, numAttributes, null, -1, 0, numRecords);
 	}
 	
-	public PliCacheElement(final int[][] pli, final int numAttributes, final int reads) {
-		this(pli, numAttributes);
-		this.reads = reads;
+	private PliCacheElement(final int[][] pli, final int numAttributes, final PliCacheElement parent, final int attribute, final double readWeight, final long cost) {
+		this.pli = pli;
+		this.children = (numAttributes > 0) ? new AtomicReferenceArray<>(numAttributes) : null;
+		this.weightedReads = readWeight;
+		this.parent = parent;
+		this.attribute = attribute;
+		this.cost = cost;
+		this.byteSize = calculateByteSize(pli, numAttributes);
 	}
 	
-	public PliCacheElement() {
-		this.pli = null;
-		this.children = null;
-		this.reads = 0;
-		this.byteSize = this.calculateByteSize();
+	/**
+	 * @return the number of records in this element's pli, i.e., the cost of recomputing its children; 0 if the pli has been dropped
+	 */
+	private long countRecords() {
+		if (this.parent == null)
+			return this.cost;
+		
+		final int[][] pli = this.pli;
+		return (pli != null) ? countRecords(pli) : 0;
 	}
 	
-	public PliCacheElement read() {
-		this.reads++;
+	public PliCacheElement read(final double readWeight) {
+		this.weightedReads += readWeight;
 		return this;
 	}
 	
@@ -38,110 +66,204 @@ public class PliCacheElement {
 		return this.children == null;
 	}
 	
-	public long blacklist() {
-		long byteSizeBefore = this.getDeepByteSize();
-		this.pli = null;
+	public boolean isCached() {
+		return this.pli != null;
+	}
+	
+	public boolean isCleared() {
+		return this.cleared != 0;
+	}
+	
+	/**
+	 * Remove this element and all its descendants from the cache so that the pli can be cached again if it is needed again.
+	 * @return the change of the cache's byte size
+	 */
+	public long evict() {
+		if (this.parent != null) {
+			final AtomicReferenceArray<PliCacheElement> siblings = this.parent.children;
+			if (siblings != null)
+				siblings.compareAndSet(this.attribute, this, null);
+		}
+		return -this.clear();
+	}
+	
+	/**
+	 * Mark this element and all its descendants as removed and drop their plis.
+	 * @return the bytes that this call freed; 0 if another thread cleared this element first
+	 */
+	private long clear() {
+		if (!CLEARED.compareAndSet(this, 0, 1))
+			return 0;
+		
+		// Inserters that published a child after this point see the cleared flag and clear their child themselves
+		final AtomicReferenceArray<PliCacheElement> children = this.children;
 		this.children = null;
-		this.byteSize = this.calculateByteSize();
-		return this.byteSize - byteSizeBefore;
+		this.pli = null;
+		
+		long freedByteSize = this.byteSize;
+		if (children != null) {
+			for (int i = 0; i < children.length(); i++) {
+				final PliCacheElement child = children.get(i);
+				if (child != null)
+					freedByteSize += child.clear();
+			}
+		}
+		return freedByteSize;
+	}
+	
+	/**
+	 * Clear the given, just published child if this element has been cleared concurrently, because the thread that cleared this
+	 * element might have missed the child.
+	 * @return the bytes that this call freed
+	 */
+	long clearIfOrphaned(final PliCacheElement child) {
+		return this.isCleared() ? child.clear() : 0;
+	}
+	
+	/**
+	 * Score this element by its weighted reads times the cost of recomputing its pli per byte that it occupies.
+	 * @return the new score, which is never lower than the old score
+	 */
+	public double rescore() {
+		this.score = this.weightedReads * this.cost / this.byteSize;
+		return this.score;
+	}
+	
+	/**
+	 * Divide the weighted reads and the score by the given factor; used to keep the growing read weights in range.
+	 */
+	public void normalize(final double factor) {
+		this.weightedReads /= factor;
+		this.score /= factor;
 	}
 	
 	public long getDeepByteSize() {
 		long deepByteSize = this.byteSize;
-		if (this.children != null)
-			for (int i = 0; i < this.children.length; i++)
-				if (this.children[i] != null)
-					deepByteSize += this.children[i].getDeepByteSize();
+		final AtomicReferenceArray<PliCacheElement> children = this.children;
+		if (children != null) {
+			for (int i = 0; i < children.length(); i++) {
+				final PliCacheElement child = children.get(i);
+				if (child != null)
+					deepByteSize += child.getDeepByteSize();
+			}
+		}
 		return deepByteSize;
 	}
 	
-	public PliCacheElement get(final int[] attributes, final int childIndex) {
+	/**
+	 * Find the element for the given attributes and count a read on every element along the path, because evicting a prefix also
+	 * evicts all its extensions; hence, a prefix is at least as valuable as its most read extension.
+	 */
+	public PliCacheElement get(final int[] attributes, final int childIndex, final double readWeight) {
+		this.read(readWeight);
 		if (childIndex == attributes.length)
-			return this.read();
+			return this;
+		
+		final AtomicReferenceArray<PliCacheElement> children = this.children;
+		if (children == null)
+			return null;
 		
-		if ((this.children == null) || (this.children[attributes[childIndex]] == null))
+		final PliCacheElement child = children.get(attributes[childIndex]);
+		if (child == null)
 			return null;
 		
-		return this.children[attributes[childIndex]].get(attributes, childIndex + 1);
+		return child.get(attributes, childIndex + 1, readWeight);
 	}
 	
-	public long blacklist(final int[] attributes, final int childIndex) {
-		// Return without adding the element if this pli was pruned
-		if (this.children == null)
-			return 0;
-
-		// Let a child blacklist the pli if the pli is not this pli's direct child
-		if (childIndex + 1 < attributes.length)
-			return this.children[attributes[childIndex]].add(attributes, childIndex + 1, pli);
+	/**
+	 * @return the element that is the parent of the given attributes' element or null if the path to it was blacklisted or evicted
+	 */
+	public PliCacheElement getParent(final int[] attributes, final int childIndex) {
+		final AtomicReferenceArray<PliCacheElement> children = this.children;
+		if (children == null)
+			return null;
 		
-		// Create the blacklist cache entry if it does not exist
-		if (this.children[attributes[childIndex]] == null) {
-			this.children[attributes[childIndex]] = new PliCacheElement();
-			return this.children[attributes[childIndex]].getByteSize();
-		}
+		if (childIndex + 1 == attributes.length)
+			return this;
 		
-		// Blacklist the child read counter if it exists
-		if (!this.children[attributes[childIndex]].isBlacklisted())
-			return this.children[attributes[childIndex]].blacklist();
+		final PliCacheElement child = children.get(attributes[childIndex]);
+		if (child == null)
+			return null;
 		
-		// Do nothing, because the pli was already blacklisted
-		return 0;
+		return child.getParent(attributes, childIndex + 1);
 	}
 	
-	public long add(final int[] attributes, final int childIndex, final int[][] pli) {
-		// Return without adding the pli if this pli was pruned
-		if (this.children == null)
+	/**
+	 * Blacklist the child for the given attribute by replacing it with a blacklist entry; a cached child is cleared with all its
+	 * descendants.
+	 * @return the change of the cache's byte size
+	 */
+	public long blacklistChild(final int attribute) {
+		final AtomicReferenceArray<PliCacheElement> children = this.children;
+		if (children == null)
 			return 0;
 		
-		// Let a child add the pli if the pli is not this pli's direct child
-		if (childIndex + 1 < attributes.length)
-			return this.children[attributes[childIndex]].add(attributes, childIndex + 1, pli);
-		
-		// Create the pli cache entry if it does not exist
-		if (this.children[attributes[childIndex]] == null) {
-			this.children[attributes[childIndex]] = new PliCacheElement(pli, this.children.length);
-			return this.children[attributes[childIndex]].getByteSize();
-		}
-		
-		// Increase read counter if it exists
-		if (!this.children[attributes[childIndex]].isBlacklisted()) {
-			this.children[attributes[childIndex]].read();
-			return 0;
+		final PliCacheElement blacklistEntry = new PliCacheElement(null, 0, this, attribute, 0, this.countRecords());
+		while (true) {
+			final PliCacheElement child = children.get(attribute);
+			
+			// Do nothing, because the pli was already blacklisted
+			if ((child != null) && child.isBlacklisted())
+				return 0;
+			
+			// Retry if another thread added, evicted, or blacklisted the child meanwhile
+			if (!children.compareAndSet(attribute, child, blacklistEntry))
+				continue;
+			
+			final long freedByteSize = ((child != null) ? child.clear() : 0) + this.clearIfOrphaned(blacklistEntry);
+			return blacklistEntry.getByteSize() - freedByteSize;
 		}
-		
-		// Do nothing, because the pli was blacklisted
-		return 0;
 	}
 	
-	public long prune(int readsThreshold) {
-		if (this.reads <= readsThreshold)
-			return this.blacklist();
+	/**
+	 * Add the given pli as child for the given attribute if no such child exists; count a read on the child otherwise. If the new
+	 * child is returned, the caller needs to account for its bytes and to call {@link #clearIfOrphaned(PliCacheElement)}.
+	 * @return the new child or null if the child already existed or was blacklisted
+	 */
+	public PliCacheElement addChild(final int attribute, final int[][] pli, final double readWeight) {
+		final AtomicReferenceArray<PliCacheElement> children = this.children;
+		if (children == null)
+			return null;
 		
-		long byteSize = 0;
-		for (int i = 0; i < this.children.length; i++)
-			if ((this.children[i] != null) && (!this.children[i].isBlacklisted()))
-				byteSize += this.children[i].prune(readsThreshold);
+		// Create the pli cache entry if it does not exist
+		if (children.get(attribute) == null) {
+			final PliCacheElement child = new PliCacheElement(pli, children.length(), this, attribute, readWeight, this.countRecords());
+			if (children.compareAndSet(attribute, null, child))
+				return child;
+		}
 		
-		return byteSize;
+		// Increase read counter if it exists; do nothing if the pli was blacklisted
+		final PliCacheElement existing = children.get(attribute);
+		if ((existing != null) && !existing.isBlacklisted())
+			existing.read(readWeight);
+		return null;
 	}
 	
-	private long calculateByteSize() {
+	private static long calculateByteSize(final int[][] pli, final int numAttributes) {
 		long pliSize = 4;
-		if (this.pli != null) {
-			pliSize = sizeIntArrayOf(this.pli.length);
-			for (int i = 0; i < this.pli.length; i++)
-				pliSize += sizeIntArrayOf(this.pli[i].length);
+		if (pli != null) {
+			pliSize = sizeIntArrayOf(pli.length);
+			for (int i = 0; i < pli.length; i++)
+				pliSize += sizeIntArrayOf(pli[i].length);
 		}
 		
 		long childrenSize = 4;
-		if (this.children != null) {
-			childrenSize = sizeIntArrayOf(this.children.length);
+		if (numAttributes > 0) {
+			childrenSize = 16 + sizeIntArrayOf(numAttributes); // The AtomicReferenceArray and its array of references
 		}
 		
-		final int readsSize = 4;
 		final int byteSizeSize = 8;
+		final int clearedSize = 4;
+		final int evictionSize = 4 + 4 + 8 + 8 + 8; // parent, attribute, cost, weightedReads, score
 		
-		return roundToMultipleOfEight(12 + pliSize + childrenSize + readsSize + byteSizeSize);
+		return roundToMultipleOfEight(12 + pliSize + childrenSize + byteSizeSize + clearedSize + evictionSize);
+	}
+	
+	static long countRecords(final int[][] pli) {
+		long numRecords = 0;
+		for (int i = 0; i < pli.length; i++)
+			numRecords += pli[i].length;
+		return numRecords;
 	}
 	
 	private static long sizeIntArrayOf(final int length) {
@@ -0,0 +1,21 @@
+package de.hpi.octopus.structures;
+
+/**
+ * The plis of a dataset, i.e., for each attribute the clusters of records that share a value; clusters of size one are stripped.
+ */
+public interface PliStore {
+
+	public int getNumAttributes();
+
+	/**
+	 * @return the number of records in the clusters of the attribute's pli, i.e., all records without a unique value in the attribute
+	 */
+	public long getNumClusteredRecords(int attribute);
+
+	/**
+	 * @return the pli of the given attribute; stores that keep their plis off the heap return a fresh copy, which the caller should
+	 * drop as soon as it is done with it and must not change the store's plis
+	 */
+	public int[][] getPli(int attribute);
+
+}
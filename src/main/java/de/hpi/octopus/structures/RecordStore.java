@@ -0,0 +1,41 @@
+package de.hpi.octopus.structures;
+
+/**
+ * The pli-records of a dataset, i.e., for each record and attribute the id of the record's pli cluster in that attribute or -1 if the record's value is unique.
+ */
+public interface RecordStore {
+
+	public int getNumRecords();
+	
+	public int getNumAttributes();
+	
+	public int get(int record, int attribute);
+	
+	/**
+	 * Compare the two records in all attributes and write their agree-set word by word, i.e., set bit i of the words if both records
+	 * lie in the same cluster of attribute i and clear it otherwise; unique values never agree.
+	 * @param words the words of the agree-set; all of them are overwritten
+	 */
+	public default void match(int record1, int record2, long[] words) {
+		final int numAttributes = this.getNumAttributes();
+		for (int wordIndex = 0; wordIndex < words.length; wordIndex++) {
+			long word = 0;
+			for (int attribute = wordIndex << 6; attribute < Math.min((wordIndex + 1) << 6, numAttributes); attribute++) {
+				final int value = this.get(record1, attribute);
+				if ((value != -1) && (value == this.get(record2, attribute)))
+					word |= 1L << attribute;
+			}
+			words[wordIndex] = word;
+		}
+	}
+	
+	/**
+	 * Compare the two records in all attributes and write their agree-set into the given BitSet, overwriting all its bits.
+	 */
+	public default void match(int record1, int record2, BitSet agreeSet) {
+		this.match(record1, record2, agreeSet.words());
+	}
+	
+	public long getByteSize();
+	
+}
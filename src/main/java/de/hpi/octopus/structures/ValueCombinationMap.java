@@ -0,0 +1,85 @@
+package de.hpi.octopus.structures;
+
+import java.util.Arrays;
+
+/**
+ * An allocation-free open addressing hash map from the value combination of some records in some attributes to an int value.
+ * The keys are never materialized: a slot stores only the id of the record that inserted the value combination and the value combination
+ * is hashed and compared in place on the pli-records. The map is meant to be reused, i.e., reset() empties it in constant time.
+ */
+public class ValueCombinationMap {
+
+	private static final int MIN_CAPACITY = 16;
+
+	private final RecordStore records;
+
+	private int[] recordIds = new int[0];
+	private int[] values = new int[0];
+	private int[] generations = new int[0]; // A slot is occupied iff its generation equals the current generation
+	private int generation = 0;
+	private int mask = -1;
+
+	public ValueCombinationMap(final RecordStore records) {
+		this.records = records;
+	}
+
+	/**
+	 * Empties the map and ensures that it can hold the given number of entries without degrading.
+	 * @param expectedSize the maximum number of entries that will be put into the map before the next reset
+	 */
+	public void reset(int expectedSize) {
+		int capacity = MIN_CAPACITY;
+		while (capacity < 2 * expectedSize) // Keep the load factor at or below 0.5
+			capacity = capacity << 1;
+
+		if (capacity > this.recordIds.length) {
+			this.recordIds = new int[capacity];
+			this.values = new int[capacity];
+			this.generations = new int[capacity];
+			this.generation = 0;
+			this.mask = capacity - 1;
+		}
+
+		this.generation++;
+		if (this.generation == Integer.MAX_VALUE) {
+			Arrays.fill(this.generations, 0);
+			this.generation = 1;
+		}
+	}
+
+	/**
+	 * Puts the value for the value combination of the given record in the given attributes if this value combination is not yet in the map.
+	 * @param recordId the record whose values identify the key
+	 * @param attributes the attributes whose values identify the key
+	 * @param value the value to be stored
+	 * @return -1 if the key was added; otherwise, the slot of the existing entry for getValue() and getRecordId()
+	 */
+	public int putIfAbsent(final int recordId, final int[] attributes, final int value) {
+		int slot = MurmurHash.hashBy(this.records, recordId, attributes) & this.mask;
+		while (this.generations[slot] == this.generation) {
+			if (this.equals(recordId, this.recordIds[slot], attributes))
+				return slot;
+			slot = (slot + 1) & this.mask;
+		}
+
+		this.generations[slot] = this.generation;
+		this.recordIds[slot] = recordId;
+		this.values[slot] = value;
+		return -1;
+	}
+
+	public int getValue(int slot) {
+		return this.values[slot];
+	}
+
+	public int getRecordId(int slot) {
+		return this.recordIds[slot];
+	}
+
+	private boolean equals(final int record1, final int record2, final int[] attributes) {
+		for (int i = 0; i < attributes.length; i++)
+			if (this.records.get(record1, attributes[i]) != this.records.get(record2, attributes[i]))
+				return false;
+		return true;
+	}
+}
@@ -19,6 +19,7 @@ import akka.serialization.Serialization;
 import akka.serialization.SerializationExtension;
 import de.hpi.octopus.actors.slaves.Worker;
 import de.hpi.octopus.serialization.OctopusMessageSerializer;
+import de.hpi.octopus.structures.ArrayPliStore;
 import de.hpi.octopus.structures.BitSet;
 import de.hpi.octopus.structures.KryoPoolSingleton;
 import de.hpi.octopus.structures.PliCache;
@@ -35,7 +36,7 @@ public class Test {
 		for (int i = 0; i < unaryPlis.length; i++)
 			unaryPlis[i] = generatePli(rand);
 		
-		PliCache cache = new PliCache(unaryPlis);
+		PliCache cache = new PliCache(new ArrayPliStore(unaryPlis));
 		
 		long used = measureUsedMemory();
 		
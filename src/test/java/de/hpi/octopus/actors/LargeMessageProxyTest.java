@@ -17,7 +17,9 @@ import akka.actor.Props;
 import akka.cluster.ClusterEvent.CurrentClusterState;
 import akka.testkit.javadsl.TestKit;
 import de.hpi.octopus.OctopusSystem;
+import de.hpi.octopus.actors.Storekeeper.PlisMessage;
 import de.hpi.octopus.actors.slaves.AbstractSlave;
+import de.hpi.octopus.configuration.ConfigurationSingleton;
 
 public class LargeMessageProxyTest {
 
@@ -158,4 +160,41 @@ public class LargeMessageProxyTest {
 			}
 		};
 	}
+	
+	@Test
+	public void testStreamedMessageSending() {
+		ConfigurationSingleton.get().setStreamLargeMessages(true);
+		try {
+			new TestKit(system) {
+				{
+					ActorRef sender = system.actorOf(TestActor.props(this.getRef()), "sender");
+					ActorRef receiver = system.actorOf(TestActor.props(this.getRef()), "receiver");
+					
+					this.expectMsgClass(CurrentClusterState.class);
+					this.expectMsgClass(CurrentClusterState.class);
+					
+					within(Duration.ofSeconds(3), () -> {
+						// Test if a bulk data message gets streamed from one proxy to the other
+						int[][][] plis = new int[3][1000][];
+						for (int attribute = 0; attribute < plis.length; attribute++)
+							for (int cluster = 0; cluster < plis[attribute].length; cluster++)
+								plis[attribute][cluster] = new int[] {attribute, cluster, attribute * cluster};
+						PlisMessage plisMessage = new PlisMessage(plis, 3000);
+						LargeMessageProxy.LargeMessage<PlisMessage> largePlisMessage = new LargeMessageProxy.LargeMessage<PlisMessage>(plisMessage, receiver, true);
+						
+						sender.tell(largePlisMessage, this.getRef());
+						this.expectMsg(plisMessage);
+						assertTrue(this.getLastSender().equals(receiver));
+						
+						// Will wait for the rest of the within duration
+						expectNoMessage();
+						return null;
+					});
+				}
+			};
+		}
+		finally {
+			ConfigurationSingleton.get().setStreamLargeMessages(false);
+		}
+	}
 }
@@ -0,0 +1,88 @@
+package de.hpi.octopus.serialization;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.junit.Test;
+
+public class BufferPoolTest {
+
+	@Test
+	public void testSizeClasses() {
+		assertEquals(1024, BufferPool.capacityFor(1));
+		assertEquals(1024, BufferPool.capacityFor(1024));
+		assertEquals(2048, BufferPool.capacityFor(1025));
+		assertEquals(1 << 22, BufferPool.capacityFor(1 << 22));
+		assertEquals((1 << 22) + 1, BufferPool.capacityFor((1 << 22) + 1));
+	}
+
+	@Test
+	public void testReuse() {
+		BufferPool pool = new BufferPool(2);
+		
+		ByteBuffer buffer = pool.acquire(3000);
+		assertTrue(buffer.isDirect());
+		assertEquals(4096, buffer.capacity());
+		buffer.putInt(42);
+		pool.release(buffer);
+		
+		ByteBuffer reused = pool.acquire(4000);
+		assertSame(buffer, reused);
+		assertEquals(0, reused.position());
+		assertEquals(4096, reused.limit());
+		
+		byte[] array = pool.acquireArray(100);
+		pool.releaseArray(array);
+		assertSame(array, pool.acquireArray(1000));
+		
+		assertEquals(2, pool.getNumAllocations());
+		assertEquals(2, pool.getNumReuses());
+		assertEquals(0, pool.getNumDrops());
+	}
+
+	@Test
+	public void testBounds() {
+		BufferPool pool = new BufferPool(1);
+		
+		byte[] array1 = pool.acquireArray(1024);
+		byte[] array2 = pool.acquireArray(1024);
+		pool.releaseArray(array1);
+		pool.releaseArray(array2); // The size class is full
+		pool.releaseArray(new byte[1000]); // Not a size class
+		pool.release(pool.acquire(8 << 20)); // Too large for pooling
+		assertEquals(3, pool.getNumDrops());
+		
+		assertSame(array1, pool.acquireArray(1024));
+		assertNotSame(array2, pool.acquireArray(1024));
+	}
+
+	@Test
+	public void testPooledChunks() {
+		BufferPool pool = new BufferPool(16);
+		byte[] bytes = new byte[100000];
+		
+		ChunkedOutputStream output = new ChunkedOutputStream(1000, 10000, pool);
+		output.write(bytes, 0, bytes.length);
+		List<byte[]> chunks = output.getChunks();
+		
+		// The chunk sizes follow the size classes: 1 KB, 2 KB, 4 KB, then 8 KB (the largest power of two below 10000) until the end
+		assertEquals(1024, chunks.get(0).length);
+		assertEquals(2048, chunks.get(1).length);
+		assertEquals(4096, chunks.get(2).length);
+		for (int i = 3; i < chunks.size() - 1; i++)
+			assertEquals(8192, chunks.get(i).length);
+		
+		// Reading the chunks releases them into the pool
+		long numAllocations = pool.getNumAllocations();
+		ChunkedInputStream input = new ChunkedInputStream(chunks, pool);
+		while (input.read() >= 0);
+		
+		new ChunkedOutputStream(1000, 10000, pool).write(bytes, 0, 20000);
+		assertEquals(numAllocations, pool.getNumAllocations());
+	}
+}
@@ -0,0 +1,69 @@
+package de.hpi.octopus.serialization;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ChunkedStreamTest {
+
+	@Test
+	public void testChunking() throws IOException {
+		for (int length : new int[] {0, 1, 99, 100, 101, 1000, 1234}) {
+			byte[] bytes = new byte[length];
+			new Random(length).nextBytes(bytes);
+			
+			List<byte[]> chunks = this.write(new ChunkedOutputStream(100), bytes);
+			
+			// All but the last chunk are full
+			assertEquals(Math.max(1, (length + 99) / 100), chunks.size());
+			for (int i = 0; i < chunks.size() - 1; i++)
+				assertEquals(100, chunks.get(i).length);
+			assertTrue(chunks.get(chunks.size() - 1).length <= 100);
+			
+			assertArrayEquals(bytes, this.read(chunks, length));
+		}
+	}
+	
+	@Test
+	public void testGrowingChunks() throws IOException {
+		byte[] bytes = new byte[1000];
+		new Random(42).nextBytes(bytes);
+		
+		List<byte[]> chunks = this.write(new ChunkedOutputStream(10, 160), bytes);
+		
+		// The chunks double in size up to the maximum: 10 + 20 + 40 + 80 + 160 * 5 = 950, then the 50 remaining bytes
+		int[] expectedSizes = {10, 20, 40, 80, 160, 160, 160, 160, 160, 50};
+		assertEquals(expectedSizes.length, chunks.size());
+		for (int i = 0; i < expectedSizes.length; i++)
+			assertEquals(expectedSizes[i], chunks.get(i).length);
+		
+		assertArrayEquals(bytes, this.read(chunks, bytes.length));
+	}
+	
+	private List<byte[]> write(ChunkedOutputStream output, byte[] bytes) {
+		int length = bytes.length;
+		output.write(bytes, 0, length / 2);
+		if (length > 0)
+			output.write(bytes[length / 2]);
+		output.write(bytes, length / 2 + 1, Math.max(0, length - length / 2 - 1));
+		return output.getChunks();
+	}
+	
+	private byte[] read(List<byte[]> chunks, int length) throws IOException {
+		byte[] read = new byte[length];
+		InputStream input = new ChunkedInputStream(chunks);
+		int offset = 0;
+		for (int n = input.read(read, 0, Math.min(77, length)); n > 0; n = input.read(read, offset, Math.min(77, length - offset)))
+			offset += n;
+		assertEquals(length, offset);
+		assertEquals(-1, input.read());
+		return read;
+	}
+}
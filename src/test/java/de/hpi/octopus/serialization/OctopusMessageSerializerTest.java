@@ -1,5 +1,7 @@
 package de.hpi.octopus.serialization;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.io.NotSerializableException;
@@ -10,6 +12,20 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.typesafe.config.ConfigFactory;
+
+import akka.actor.ActorSystem;
+import akka.serialization.SerializationExtension;
+import akka.testkit.javadsl.TestKit;
+import de.hpi.octopus.actors.DependencySteward.CandidateRequestMessage;
+import de.hpi.octopus.actors.DependencySteward.InvalidFDsMessage;
+import de.hpi.octopus.actors.masters.Profiler.CandidateMessage;
+import de.hpi.octopus.actors.masters.Profiler.FDsUpdatedMessage;
+import de.hpi.octopus.actors.masters.Profiler.SamplingResultMessage;
+import de.hpi.octopus.actors.masters.Profiler.SendPlisMessage;
+import de.hpi.octopus.actors.masters.Profiler.ValidationResultMessage;
+import de.hpi.octopus.actors.slaves.Worker.AttributeFinishedMessage;
+import de.hpi.octopus.actors.slaves.Worker.SamplingMessage;
 import de.hpi.octopus.actors.slaves.Worker.ValidationMessage;
 import de.hpi.octopus.structures.BitSet;
 
@@ -96,4 +112,95 @@ public class OctopusMessageSerializerTest {
 		for (int i = 0; i < message.getLhss().length; i++)
 			assertTrue(message.getLhss()[i].equals(messageReconstruction.getLhss()[i]));
 	}
+	
+	private BitSet[] bitSets(int size, int seed) {
+		BitSet[] bitsets = new BitSet[size];
+		for (int i = 0; i < bitsets.length; i++) {
+			bitsets[i] = new BitSet(100);
+			bitsets[i].set((seed + i) % 100);
+			bitsets[i].set((seed * i) % 100);
+		}
+		return bitsets;
+	}
+	
+	private Object[] allMessages() {
+		return new Object[] {
+				new ValidationMessage(this.bitSets(3, 1), 7),
+				new SamplingMessage(4, 12),
+				new AttributeFinishedMessage(5),
+				new SendPlisMessage(),
+				new CandidateMessage(this.bitSets(2, 3), 1),
+				new CandidateMessage(new BitSet[0], 2),
+				new ValidationResultMessage(new BitSet[][] {this.bitSets(2, 5), new BitSet[0], this.bitSets(1, 7)}, new int[] {0, 3, 9}, 40),
+				new SamplingResultMessage(new BitSet[][] {this.bitSets(4, 11)}, new int[] {2}, 1000, 17),
+				new FDsUpdatedMessage(6, true, false, true),
+				new FDsUpdatedMessage(8, false, true, false),
+				new InvalidFDsMessage(this.bitSets(5, 13), -1),
+				new CandidateRequestMessage()};
+	}
+	
+	@Test
+	public void testRoundTrips() throws NotSerializableException {
+		OctopusMessageSerializer serializer = new OctopusMessageSerializer();
+		
+		for (Object message : this.allMessages()) {
+			byte[] bytes = serializer.toBinary(message);
+			assertTrue(bytes.length <= serializer.binarySizeOf(message));
+			
+			Object messageReconstruction = serializer.fromBinary(bytes, serializer.manifest(message));
+			assertEquals(message.getClass(), messageReconstruction.getClass());
+			assertArrayEquals(serializer.toBinary(message), serializer.toBinary(messageReconstruction));
+		}
+	}
+	
+	@Test
+	public void testRoundTripsIntoSuppliedBuffer() throws NotSerializableException {
+		OctopusMessageSerializer serializer = new OctopusMessageSerializer();
+		ByteBuffer buf = ByteBuffer.allocate(4096).order(ByteOrder.LITTLE_ENDIAN);
+		
+		for (Object message : this.allMessages()) {
+			buf.clear();
+			serializer.toBinary(message, buf); // The ByteBufferSerializer interface, as called by Artery
+			assertTrue(buf.position() <= serializer.binarySizeOf(message));
+			buf.flip();
+			
+			Object messageReconstruction = serializer.fromBinary(buf, serializer.manifest(message));
+			assertEquals(0, buf.remaining());
+			assertArrayEquals(serializer.toBinary(message), serializer.toBinary(messageReconstruction));
+		}
+	}
+	
+	@Test
+	public void testSparseBitSetsOnWideRelations() throws NotSerializableException {
+		// Candidates on a relation with 250 columns, i.e., 4 words per BitSet, but only 3 set bits each
+		BitSet[] lhss = new BitSet[100];
+		for (int i = 0; i < lhss.length; i++) {
+			lhss[i] = new BitSet(250);
+			lhss[i].set(i);
+			lhss[i].set(i + 50);
+			lhss[i].set(249);
+		}
+		ValidationMessage message = new ValidationMessage(lhss, 7);
+		
+		OctopusMessageSerializer serializer = new OctopusMessageSerializer();
+		byte[] bytes = serializer.toBinary(message);
+		
+		// 4 bytes header + 2 bytes cardinality + 3 * 2 bytes indexes instead of 4 bytes header + 4 * 8 bytes words per BitSet
+		assertEquals(4 + 4 + lhss.length * 12, bytes.length);
+		
+		ValidationMessage messageReconstruction = (ValidationMessage) serializer.fromBinary(bytes, serializer.manifest(message));
+		assertArrayEquals(lhss, messageReconstruction.getLhss());
+	}
+	
+	@Test
+	public void testBindings() {
+		ActorSystem system = ActorSystem.create("SerializerTestSystem", ConfigFactory.parseString("akka.actor.provider = local").withFallback(ConfigFactory.load()));
+		try {
+			for (Object message : this.allMessages())
+				assertTrue(message.getClass().getSimpleName(), SerializationExtension.get(system).findSerializerFor(message) instanceof OctopusMessageSerializer);
+		}
+		finally {
+			TestKit.shutdownActorSystem(system);
+		}
+	}
 }
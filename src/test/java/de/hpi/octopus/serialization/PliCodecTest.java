@@ -0,0 +1,87 @@
+package de.hpi.octopus.serialization;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.twitter.chill.KryoInstantiator;
+
+import de.hpi.octopus.actors.Storekeeper.PlisMessage;
+import de.hpi.octopus.actors.masters.Preprocessor.IndexingResultMessage;
+import de.hpi.octopus.actors.slaves.Indexer.ReceiveAttributesCompactMessage;
+
+public class PliCodecTest {
+
+	private int[][] randomPli(Random random, int numRecords, boolean sorted) {
+		int[][] pli = new int[random.nextInt(50)][];
+		for (int clusterId = 0; clusterId < pli.length; clusterId++) {
+			pli[clusterId] = new int[2 + random.nextInt(20)];
+			int record = random.nextInt(100);
+			for (int i = 0; i < pli[clusterId].length; i++) {
+				record = sorted ? record + 1 + random.nextInt(numRecords / 100) : random.nextInt(numRecords);
+				pli[clusterId][i] = record;
+			}
+		}
+		return pli;
+	}
+
+	@Test
+	public void testRoundTrip() {
+		Random random = new Random(42);
+		for (boolean sorted : new boolean[] {true, false}) {
+			int[][][] plis = new int[10][][];
+			for (int attribute = 0; attribute < plis.length; attribute++)
+				plis[attribute] = this.randomPli(random, 100000, sorted);
+			plis[0] = new int[0][];
+			
+			Output output = new Output(1024, -1);
+			PliCodec.write(output, plis);
+			
+			int[][][] read = PliCodec.readPlis(new Input(output.toBytes()));
+			assertEquals(plis.length, read.length);
+			for (int attribute = 0; attribute < plis.length; attribute++)
+				assertArrayEquals(plis[attribute], read[attribute]);
+		}
+	}
+
+	@Test
+	public void testSortedClustersAreSmall() {
+		int[][] pli = {{0, 1, 2, 3, 100, 1000}, {5, 50, 500, 5000, 50000}};
+		
+		Output output = new Output(1024, -1);
+		PliCodec.write(output, pli);
+		
+		// 1 byte for the number of clusters, 1 byte per cluster size and at most 2 bytes for each of the small differences
+		int rawSize = 4 * 11;
+		assertTrue(output.position() < rawSize / 2);
+	}
+
+	@Test
+	public void testMessages() {
+		Kryo kryo = new KryoInstantiator().newKryo();
+		Random random = new Random(7);
+		
+		PlisMessage plisMessage = new PlisMessage(new int[][][] {this.randomPli(random, 10000, true), this.randomPli(random, 10000, true)}, 10000);
+		assertEquals(plisMessage, this.roundTrip(kryo, plisMessage));
+		
+		IndexingResultMessage indexingResultMessage = new IndexingResultMessage(3, this.randomPli(random, 10000, true), 10000, -1);
+		assertEquals(indexingResultMessage, this.roundTrip(kryo, indexingResultMessage));
+		
+		ReceiveAttributesCompactMessage receiveAttributesMessage = new ReceiveAttributesCompactMessage(new int[] {1, 4}, new int[] {100, 200},
+				new String[][] {{"a", null}, {"b"}}, new int[][][] {{{0, 1}, {2}}, {{3, 5, 7}}}, 12);
+		assertEquals(receiveAttributesMessage, this.roundTrip(kryo, receiveAttributesMessage));
+	}
+
+	private Object roundTrip(Kryo kryo, Object message) {
+		Output output = new Output(1024, -1);
+		kryo.writeClassAndObject(output, message);
+		return kryo.readClassAndObject(new Input(output.toBytes()));
+	}
+}
@@ -1,5 +1,6 @@
 package de.hpi.octopus.structures;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.nio.ByteBuffer;
@@ -97,4 +98,28 @@ public class BitSetTest {
 		System.out.println("jBitset toBytes: " + (System.currentTimeMillis() - t));
 	}
 	
+	@Test
+	public void testCompactBinary() {
+		for (int capacity : new int[] {1, 64, 250, 2000, 100000}) {
+			for (int step : new int[] {1, 3, 97, capacity}) {
+				BitSet bitset = new BitSet(capacity);
+				for (int i = 0; i < capacity; i += step)
+					bitset.set(i);
+				
+				ByteBuffer buffer = ByteBuffer.allocate(bitset.binarySize());
+				bitset.toCompactBinary(buffer);
+				assertEquals(bitset.compactBinarySize(), buffer.position());
+				assertTrue(bitset.compactBinarySize() <= bitset.binarySize());
+				
+				buffer.flip();
+				assertEquals(bitset, BitSet.fromCompactBinary(buffer));
+				assertEquals(0, buffer.remaining());
+			}
+		}
+		
+		// The dense encoding of toBinary() can be read as compact encoding
+		BitSet bitset = new BitSet(100);
+		bitset.set(42);
+		assertEquals(bitset, BitSet.fromCompactBinary(ByteBuffer.wrap(bitset.toBinary())));
+	}
 }
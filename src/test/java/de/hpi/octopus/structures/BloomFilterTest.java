@@ -1,7 +1,13 @@
 package de.hpi.octopus.structures;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 
 import org.junit.After;
 import org.junit.Before;
@@ -24,48 +30,188 @@ public class BloomFilterTest {
 		BloomFilter filter = new BloomFilter();
 		
 		BitSet bitset = new BitSet(20);
-		assertTrue(filter.add(bitset));
-		assertFalse(filter.add(bitset));
+		assertTrue(filter.addIfAbsent(bitset));
+		assertFalse(filter.addIfAbsent(bitset));
 		
 		bitset.set(3);
-		assertTrue(filter.add(bitset));
-		assertFalse(filter.add(bitset));
+		assertTrue(filter.addIfAbsent(bitset));
+		assertFalse(filter.addIfAbsent(bitset));
 		
 		bitset.set(7);
-		assertTrue(filter.add(bitset));
-		assertFalse(filter.add(bitset));
+		assertTrue(filter.addIfAbsent(bitset));
+		assertFalse(filter.addIfAbsent(bitset));
 		
 		bitset.set(8);
-		assertTrue(filter.add(bitset));
-		assertFalse(filter.add(bitset));
+		assertTrue(filter.addIfAbsent(bitset));
+		assertFalse(filter.addIfAbsent(bitset));
 		
 		bitset.set(1);
-		assertTrue(filter.add(bitset));
-		assertFalse(filter.add(bitset));
+		assertTrue(filter.addIfAbsent(bitset));
+		assertFalse(filter.addIfAbsent(bitset));
 		
 		bitset.set(2);
-		assertTrue(filter.add(bitset));
-		assertFalse(filter.add(bitset));
+		assertTrue(filter.addIfAbsent(bitset));
+		assertFalse(filter.addIfAbsent(bitset));
 		
 		bitset.set(4);
-		assertTrue(filter.add(bitset));
-		assertFalse(filter.add(bitset));
+		assertTrue(filter.addIfAbsent(bitset));
+		assertFalse(filter.addIfAbsent(bitset));
 		
 		bitset.set(5);
-		assertTrue(filter.add(bitset));
-		assertFalse(filter.add(bitset));
+		assertTrue(filter.addIfAbsent(bitset));
+		assertFalse(filter.addIfAbsent(bitset));
 		
 		bitset.set(6);
-		assertTrue(filter.add(bitset));
-		assertFalse(filter.add(bitset));
+		assertTrue(filter.addIfAbsent(bitset));
+		assertFalse(filter.addIfAbsent(bitset));
 		
 		bitset.set(9);
-		assertTrue(filter.add(bitset));
-		assertFalse(filter.add(bitset));
+		assertTrue(filter.addIfAbsent(bitset));
+		assertFalse(filter.addIfAbsent(bitset));
 		
 		bitset.set(0);
-		assertTrue(filter.add(bitset));
-		assertFalse(filter.add(bitset));
+		assertTrue(filter.addIfAbsent(bitset));
+		assertFalse(filter.addIfAbsent(bitset));
+	}
+	
+	private static BitSet randomBitSet(Random random, int numAttributes) {
+		BitSet bitset = new BitSet(numAttributes);
+		for (int attribute = 0; attribute < numAttributes; attribute++)
+			if (random.nextBoolean())
+				bitset.set(attribute);
+		return bitset;
+	}
+	
+	@Test
+	public void testSizing() {
+		BloomFilter filter = new BloomFilter(10000, 0.01);
+		
+		// About 9.6 bits and 7 hash functions per element are optimal for a false positive rate of 1%
+		assertEquals(95851, filter.getNumBits());
+		assertEquals(7, filter.getNumHashFunctions());
+		assertEquals(0, filter.getFalsePositiveRate(), 0);
+	}
+	
+	@Test
+	public void testFalsePositiveRate() {
+		BloomFilter filter = new BloomFilter(10000, 0.01);
+		Random random = new Random(42);
+		
+		// The agree-sets of 100 attributes are distinct with very high probability
+		for (int i = 0; i < 10000; i++)
+			filter.addIfAbsent(randomBitSet(random, 100));
+		
+		int falsePositives = 0;
+		for (int i = 0; i < 10000; i++)
+			if (filter.contains(randomBitSet(random, 100)))
+				falsePositives++;
+		
+		assertTrue(falsePositives < 200);
+		assertEquals(0.01, filter.getFalsePositiveRate(), 0.005);
+		assertEquals(0.5, filter.getFillRatio(), 0.05);
+		assertEquals(10000, filter.getApproximateElementCount(), 500);
+	}
+	
+	@Test
+	public void testMerge() {
+		BloomFilter filter = new BloomFilter(1000, 0.01);
+		BloomFilter other = new BloomFilter(1000, 0.01);
+		Random random = new Random(42);
+		
+		BitSet element = randomBitSet(random, 30);
+		BitSet otherElement = randomBitSet(random, 30);
+		filter.addIfAbsent(element);
+		other.addIfAbsent(otherElement);
+		filter.merge(other);
+		
+		assertTrue(filter.contains(element));
+		assertTrue(filter.contains(otherElement));
+		assertFalse(filter.addIfAbsent(otherElement));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testMergeDifferentSizes() {
+		new BloomFilter(1000, 0.01).merge(new BloomFilter(1000, 0.1));
+	}
+	
+	@Test
+	public void testConcurrentAdds() throws InterruptedException {
+		final BloomFilter filter = new BloomFilter(10000, 0.01);
+		final List<BitSet> elements = new ArrayList<>();
+		Random random = new Random(42);
+		for (int i = 0; i < 5000; i++)
+			elements.add(randomBitSet(random, 100));
+		
+		// All threads add the same elements; no bit may get lost and every element that is no false positive must be reported as added
+		final int[][] added = new int[8][elements.size()];
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < added.length; t++) {
+			final int thread = t;
+			threads.add(new Thread(() -> {
+				for (int i = 0; i < elements.size(); i++)
+					if (filter.addIfAbsent(elements.get(i)))
+						added[thread][i]++;
+			}));
+		}
+		for (Thread thread : threads)
+			thread.start();
+		for (Thread thread : threads)
+			thread.join();
+		
+		BloomFilter sequentialFilter = new BloomFilter(10000, 0.01);
+		sequentialFilter.addAll(elements);
+		assertEquals(sequentialFilter.getFillRatio(), filter.getFillRatio(), 0);
+		
+		int neverAdded = 0;
+		for (int i = 0; i < elements.size(); i++) {
+			assertTrue(filter.contains(elements.get(i)));
+			
+			int timesAdded = 0;
+			for (int t = 0; t < added.length; t++)
+				timesAdded += added[t][i];
+			if (timesAdded == 0)
+				neverAdded++;
+		}
+		assertTrue(neverAdded < 50);
+	}
+	
+	@Test
+	public void testDeltas() {
+		BloomFilter filter = new BloomFilter(10000, 0.01);
+		BloomFilter other = new BloomFilter(10000, 0.01);
+		Random random = new Random(42);
+		assertNull(filter.drainDelta());
+		
+		List<BitSet> elements = new ArrayList<>();
+		for (int i = 0; i < 1000; i++)
+			elements.add(randomBitSet(random, 100));
+		filter.addAll(elements.subList(0, 900));
+		other.applyDelta(filter.drainDelta());
+		assertNull(filter.drainDelta());
+		
+		// The next delta holds only the words that changed since the last one
+		filter.addAll(elements.subList(900, 1000));
+		byte[] delta = filter.drainDelta();
+		assertTrue(delta.length < filter.snapshot().length / 2);
+		other.applyDelta(delta);
+		
+		for (BitSet element : elements)
+			assertTrue(other.contains(element));
+		assertEquals(filter.getFillRatio(), other.getFillRatio(), 0);
+		
+		// Applied deltas are not sent on
+		assertNull(other.drainDelta());
+		
+		BloomFilter late = new BloomFilter(10000, 0.01);
+		late.applyDelta(other.snapshot());
+		assertEquals(filter.getFillRatio(), late.getFillRatio(), 0);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testDeltaOfDifferentSize() {
+		BloomFilter filter = new BloomFilter(1000, 0.01);
+		filter.addIfAbsent(new BitSet(10));
+		new BloomFilter(1000, 0.1).applyDelta(filter.drainDelta());
 	}
 	
 }
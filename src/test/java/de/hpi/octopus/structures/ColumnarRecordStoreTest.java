@@ -0,0 +1,127 @@
+package de.hpi.octopus.structures;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ColumnarRecordStoreTest {
+
+	@Test
+	public void testGet() {
+		int[][][] plis = {
+				{{0, 2, 4}, {1, 3}},
+				{{1, 4}},
+				{}};
+		
+		RecordStore records = new ColumnarRecordStore(plis, 5);
+		
+		assertEquals(5, records.getNumRecords());
+		assertEquals(3, records.getNumAttributes());
+		
+		int[][] expected = {
+				{0, -1, -1},
+				{1, 0, -1},
+				{0, -1, -1},
+				{1, -1, -1},
+				{0, 0, -1}};
+		for (int record = 0; record < expected.length; record++)
+			for (int attribute = 0; attribute < expected[record].length; attribute++)
+				assertEquals(expected[record][attribute], records.get(record, attribute));
+	}
+
+	@Test
+	public void testWidths() {
+		int numRecords = 2 * 70000;
+		int[] numClusters = {255, 256, 65535, 65536, 70000};
+		
+		// Build plis with clusters of size 2 for the first records; the remaining records are unique
+		int[][][] plis = new int[numClusters.length][][];
+		for (int attribute = 0; attribute < numClusters.length; attribute++) {
+			plis[attribute] = new int[numClusters[attribute]][];
+			for (int clusterId = 0; clusterId < numClusters[attribute]; clusterId++)
+				plis[attribute][clusterId] = new int[] {2 * clusterId, 2 * clusterId + 1};
+		}
+		
+		ColumnarRecordStore records = new ColumnarRecordStore(plis, numRecords);
+		
+		for (int attribute = 0; attribute < numClusters.length; attribute++) {
+			for (int record = 0; record < numRecords; record++) {
+				int expected = (record < 2 * numClusters[attribute]) ? record / 2 : -1;
+				assertEquals(expected, records.get(record, attribute));
+			}
+		}
+		assertEquals((long) (1 + 2 + 2 + 4 + 4) * numRecords, records.getByteSize());
+	}
+
+	@Test
+	public void testMatch() {
+		int numRecords = 1000;
+		int numAttributes = 70;
+		Random random = new Random(42);
+		
+		// Attributes of all widths, spread over two words; every third record is unique in each attribute
+		int[][][] plis = new int[numAttributes][][];
+		for (int attribute = 0; attribute < numAttributes; attribute++) {
+			int numClusters = (attribute % 3 == 0) ? 2 : ((attribute % 3 == 1) ? 300 : 5);
+			int[][] pli = new int[numClusters][0];
+			for (int record = 0; record < numRecords; record++) {
+				if (record % 3 == 0)
+					continue;
+				int clusterId = random.nextInt(numClusters);
+				pli[clusterId] = Arrays.copyOf(pli[clusterId], pli[clusterId].length + 1);
+				pli[clusterId][pli[clusterId].length - 1] = record;
+			}
+			plis[attribute] = pli;
+		}
+		
+		for (boolean compact : new boolean[] {true, false}) {
+			ColumnarRecordStore records = new ColumnarRecordStore(plis, numRecords, compact);
+			for (int i = 0; i < 500; i++) {
+				int record1 = random.nextInt(numRecords);
+				int record2 = random.nextInt(numRecords);
+				
+				BitSet expected = new BitSet(numAttributes);
+				for (int attribute = 0; attribute < numAttributes; attribute++)
+					if ((records.get(record1, attribute) != -1) && (records.get(record1, attribute) == records.get(record2, attribute)))
+						expected.set(attribute);
+				
+				// The match overwrites all bits of the agree-set
+				BitSet agreeSet = new BitSet(numAttributes);
+				agreeSet.set(0, numAttributes);
+				records.match(record1, record2, agreeSet);
+				assertEquals(expected, agreeSet);
+				
+				long[] words = new long[2];
+				defaultMatch(records).match(record1, record2, words);
+				assertEquals(expected, new BitSet(words));
+			}
+		}
+	}
+	
+	/**
+	 * Wrap the records so that the default match() of the RecordStore interface is used.
+	 */
+	private static RecordStore defaultMatch(RecordStore records) {
+		return new RecordStore() {
+			@Override
+			public int getNumRecords() {
+				return records.getNumRecords();
+			}
+			@Override
+			public int getNumAttributes() {
+				return records.getNumAttributes();
+			}
+			@Override
+			public int get(int record, int attribute) {
+				return records.get(record, attribute);
+			}
+			@Override
+			public long getByteSize() {
+				return records.getByteSize();
+			}
+		};
+	}
+}
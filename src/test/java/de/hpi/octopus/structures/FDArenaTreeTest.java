@@ -0,0 +1,94 @@
+package de.hpi.octopus.structures;
+
+import static de.hpi.octopus.structures.FDStoreTestUtils.clear;
+import static de.hpi.octopus.structures.FDStoreTestUtils.lhs;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests the arena-specific behavior of the FDArenaTree; FDStoreTest covers the FDStore contract for all implementations.
+ */
+public class FDArenaTreeTest {
+
+	@Test
+	public void testAddReplacesSpecializations() {
+		FDArenaTree fds = new FDArenaTree(6, 0);
+		clear(fds);
+
+		fds.addLhs(lhs(6, 1, 2, 3));
+		fds.addLhs(lhs(6, 1, 2, 4, 5));
+		fds.addLhs(lhs(6, 1, 2));
+
+		assertFalse(fds.containsLhs(lhs(6, 1, 2, 3)));
+		assertFalse(fds.containsLhs(lhs(6, 1, 2, 4, 5)));
+		assertEquals(1, fds.announceLhss(100).length);
+	}
+
+	@Test
+	public void testFreedNodesAreReused() {
+		FDArenaTree fds = new FDArenaTree(8, 0);
+		clear(fds);
+		int numAllocatedNodes = fds.getNumAllocatedNodes();
+
+		// Removing lhss, replacing specializations, and trimming free nodes that later additions take before allocating new ones
+		for (int round = 0; round < 100; round++) {
+			fds.addLhs(lhs(8, 1, 2, 3, 4));
+			fds.addLhs(lhs(8, 5, 6, 7));
+			fds.addLhs(lhs(8, 1, 2));
+			fds.trimTree(2);
+			fds.removeLhs(lhs(8, 1, 2));
+			assertFalse(fds.containsLhsOrGeneralization(lhs(8, 1, 2, 3, 4, 5, 6, 7)));
+		}
+		fds.addLhs(lhs(8, 1, 2, 3, 4));
+		assertTrue(fds.containsLhs(lhs(8, 1, 2, 3, 4)));
+
+		assertTrue(fds.getNumAllocatedNodes() <= numAllocatedNodes + 7);
+	}
+
+	@Test
+	public void testAgainstFDBitTree() {
+		Random random = new Random(42);
+		int numAttributes = 70;
+
+		FDArenaTree arena = new FDArenaTree(numAttributes, 5);
+		FDBitTree tree = new FDBitTree(numAttributes, 5);
+
+		// Add and remove random lhss so that the freed nodes of the arena are reused
+		for (int round = 0; round < 2000; round++) {
+			BitSet lhs = new BitSet(numAttributes);
+			for (int i = random.nextInt(4); i >= 0; i--)
+				lhs.set(random.nextInt(numAttributes));
+
+			if (random.nextBoolean()) {
+				arena.addLhs(lhs);
+				tree.addLhs(lhs);
+			}
+			else {
+				arena.removeLhs(lhs);
+				tree.removeLhs(lhs);
+			}
+			assertEquals(tree.containsLhsOrGeneralization(lhs), arena.containsLhsOrGeneralization(lhs));
+
+			if (round % 500 == 499)
+				assertEquals(asSet(tree.announceLhss(1000)), asSet(arena.announceLhss(1000)));
+		}
+
+		BitSet all = new BitSet(numAttributes);
+		all.set(0, numAttributes);
+		assertEquals(new HashSet<>(tree.getLhsAndGeneralizations(all)), new HashSet<>(arena.getLhsAndGeneralizations(all)));
+	}
+
+	private static Set<BitSet> asSet(BitSet[] lhss) {
+		Set<BitSet> set = new HashSet<>();
+		for (BitSet lhs : lhss)
+			set.add(lhs);
+		return set;
+	}
+}
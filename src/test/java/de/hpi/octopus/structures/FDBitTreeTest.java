@@ -0,0 +1,191 @@
+package de.hpi.octopus.structures;
+
+import static de.hpi.octopus.structures.FDStoreTestUtils.clear;
+import static de.hpi.octopus.structures.FDStoreTestUtils.lhs;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class FDBitTreeTest {
+
+	@Test
+	public void testInitial() {
+		FDBitTree fds = new FDBitTree(5, 0);
+
+		for (int i = 1; i < 5; i++)
+			assertTrue(fds.containsLhs(lhs(5, i)));
+		assertFalse(fds.containsLhsOrGeneralization(lhs(5, 0)));
+
+		assertEquals(4, fds.announceLhss(100).length);
+		assertEquals(0, fds.announceLhss(100).length);
+		assertFalse(fds.hasUnannounceLhss());
+	}
+
+	@Test
+	public void testRemoveInitial() {
+		FDBitTree fds = new FDBitTree(5, 0);
+		for (int i = 1; i < 5; i++) {
+			BitSet lhs = lhs(5, i);
+			fds.removeLhs(lhs);
+			assertFalse(fds.containsLhsOrGeneralization(lhs));
+		}
+		assertEquals(0, fds.announceLhss(100).length);
+
+		fds = new FDBitTree(5, 0);
+		BitSet all = lhs(5, 0, 1, 2, 3, 4);
+		List<BitSet> lhss = fds.getLhsAndGeneralizations(all);
+		assertEquals(4, lhss.size());
+		for (BitSet l : lhss)
+			fds.removeLhs(l);
+		assertFalse(fds.containsLhsOrGeneralization(all));
+		assertEquals(0, fds.announceLhss(100).length);
+	}
+
+	@Test
+	public void testGetGeneralizations() {
+		FDBitTree fds = new FDBitTree(5, 0);
+		clear(fds);
+
+		BitSet lhs1 = lhs(5, 0, 2);
+		BitSet lhs2 = lhs(5, 3, 4);
+		BitSet lhs3 = lhs(5, 1, 2, 3);
+		fds.addLhs(lhs1);
+		fds.addLhs(lhs2);
+		fds.addLhs(lhs3);
+
+		assertFalse(fds.containsLhsOrGeneralization(lhs(5, 0, 1, 4)));
+
+		List<BitSet> lhss = fds.getLhsAndGeneralizations(lhs(5, 0, 1, 2, 3));
+		assertEquals(2, lhss.size());
+		assertTrue(lhss.contains(lhs1));
+		assertTrue(lhss.contains(lhs3));
+
+		assertEquals(3, fds.announceLhss(100).length);
+	}
+
+	@Test
+	public void testRemove() {
+		for (int x = 0; x < 3; x++) {
+			FDBitTree fds = new FDBitTree(5, 0);
+			clear(fds);
+
+			BitSet[] all = {lhs(5, 1, 2, 3), lhs(5, 1, 2, 4), lhs(5, 1, 4)};
+			for (BitSet l : all)
+				fds.addLhs(l);
+
+			fds.removeLhs(all[x]);
+
+			for (int i = 0; i < all.length; i++)
+				assertEquals(i != x, fds.containsLhs(all[i]));
+			assertEquals(2, fds.announceLhss(100).length);
+		}
+	}
+
+	@Test
+	public void testWideRelation() {
+		int numAttributes = 200;
+		FDBitTree fds = new FDBitTree(numAttributes, 0);
+		clear(fds);
+
+		BitSet lhs1 = lhs(numAttributes, 3, 63, 64, 130);
+		BitSet lhs2 = lhs(numAttributes, 63, 199);
+		fds.addLhs(lhs1);
+		fds.addLhs(lhs2);
+
+		assertTrue(fds.containsLhs(lhs1));
+		assertTrue(fds.containsLhs(lhs2));
+		assertFalse(fds.containsLhs(lhs(numAttributes, 3, 63, 64)));
+		assertTrue(fds.containsLhsOrGeneralization(lhs(numAttributes, 1, 3, 63, 64, 100, 130)));
+		assertFalse(fds.containsLhsOrGeneralization(lhs(numAttributes, 3, 63, 130, 198)));
+
+		List<BitSet> lhss = fds.getLhsAndGeneralizations(lhs(numAttributes, 3, 63, 64, 130, 199));
+		assertEquals(2, lhss.size());
+	}
+
+	@Test
+	public void testTrimTree() {
+		FDBitTree fds = new FDBitTree(8, 0);
+		clear(fds);
+
+		fds.addLhs(lhs(8, 1, 2));
+		fds.addLhs(lhs(8, 1, 2, 3));
+		fds.addLhs(lhs(8, 4, 5, 6, 7));
+		fds.addLhs(lhs(8, 5, 6));
+
+		fds.trimTree(2);
+
+		assertTrue(fds.containsLhs(lhs(8, 1, 2)));
+		assertTrue(fds.containsLhs(lhs(8, 5, 6)));
+		assertFalse(fds.containsLhs(lhs(8, 1, 2, 3)));
+		assertFalse(fds.containsLhsOrGeneralization(lhs(8, 4, 5, 7)));
+
+		BitSet[] announced = fds.announceLhss(100);
+		assertEquals(2, announced.length);
+		for (BitSet l : announced)
+			assertTrue(l.cardinality() <= 2);
+	}
+
+	@Test
+	public void testAgainstFDSet() {
+		Random random = new Random(42);
+		int numAttributes = 70;
+
+		FDBitTree tree = new FDBitTree(numAttributes, 5);
+		FDSet set = new FDSet(numAttributes, 5);
+
+		// Specialize invalid candidates in the same way as the dependency stewards do
+		for (int round = 0; round < 200; round++) {
+			BitSet invalidLhs = new BitSet(numAttributes);
+			for (int i = 0; i < 6; i++)
+				invalidLhs.set(random.nextInt(numAttributes));
+			invalidLhs.clear(5);
+
+			List<BitSet> generalizations = tree.getLhsAndGeneralizations(invalidLhs);
+			assertEquals(asSet(set.getLhsAndGeneralizations(invalidLhs)), asSet(generalizations));
+
+			for (BitSet generalLhs : generalizations) {
+				BitSet specLhs = generalLhs.clone();
+				tree.removeLhs(specLhs);
+				set.removeLhs(specLhs);
+
+				for (int attribute = invalidLhs.nextClearBit(0); attribute < numAttributes; attribute = invalidLhs.nextClearBit(attribute + 1)) {
+					if (attribute == 5)
+						continue;
+
+					specLhs.set(attribute);
+					assertEquals(set.containsLhsOrGeneralization(specLhs), tree.containsLhsOrGeneralization(specLhs));
+					if (!tree.containsLhsOrGeneralization(specLhs)) {
+						tree.addLhs(specLhs);
+						set.addLhs(specLhs);
+					}
+					specLhs.clear(attribute);
+				}
+			}
+
+			if (round % 50 == 49)
+				assertEquals(asSet(set.announceLhss(500)), asSet(tree.announceLhss(500)));
+		}
+
+		BitSet all = new BitSet(numAttributes);
+		all.set(0, numAttributes);
+		assertEquals(asSet(set.getLhsAndGeneralizations(all)), asSet(tree.getLhsAndGeneralizations(all)));
+	}
+
+	private static Set<BitSet> asSet(List<BitSet> lhss) {
+		return new HashSet<>(lhss);
+	}
+
+	private static Set<BitSet> asSet(BitSet[] lhss) {
+		Set<BitSet> set = new HashSet<>();
+		for (BitSet lhs : lhss)
+			set.add(lhs);
+		return set;
+	}
+}
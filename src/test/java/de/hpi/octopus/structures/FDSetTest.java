@@ -0,0 +1,76 @@
+package de.hpi.octopus.structures;
+
+import static de.hpi.octopus.structures.FDStoreTestUtils.lhs;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class FDSetTest {
+
+	@Test
+	public void testGeneralizations() {
+		FDSet fds = new FDSet(70, 0);
+		for (int i = 1; i < 70; i++)
+			fds.removeLhs(lhs(70, i));
+
+		BitSet lhs1 = lhs(70, 1, 65);
+		BitSet lhs2 = lhs(70, 2, 3);
+		BitSet lhs3 = lhs(70, 1, 2, 66);
+		fds.addLhs(lhs1);
+		fds.addLhs(lhs2);
+		fds.addLhs(lhs3);
+
+		assertTrue(fds.containsLhs(lhs2));
+		assertFalse(fds.containsLhs(lhs(70, 2)));
+		assertTrue(fds.containsLhsOrGeneralization(lhs(70, 1, 2, 3)));
+		assertTrue(fds.containsLhsOrGeneralization(lhs(70, 1, 2, 65)));
+		assertFalse(fds.containsLhsOrGeneralization(lhs(70, 2, 65, 66)));
+
+		List<BitSet> generalizations = fds.getLhsAndGeneralizations(lhs(70, 1, 2, 3, 65));
+		assertEquals(2, generalizations.size());
+		assertTrue(generalizations.contains(lhs1));
+		assertTrue(generalizations.contains(lhs2));
+	}
+
+	@Test
+	public void testQueue() {
+		FDSet fds = new FDSet(5, 0);
+
+		fds.removeLhs(lhs(5, 2));
+		fds.addLhs(lhs(5, 1, 2));
+		fds.addLhs(lhs(5, 1, 2));
+
+		assertArrayEquals(new BitSet[] {lhs(5, 1), lhs(5, 3)}, fds.announceLhss(2));
+
+		fds.removeLhs(lhs(5, 1));
+		fds.removeLhs(lhs(5, 4));
+
+		assertArrayEquals(new BitSet[] {lhs(5, 1, 2)}, fds.announceLhss(5));
+		assertFalse(fds.hasUnannounceLhss());
+		assertTrue(fds.containsLhs(lhs(5, 3)));
+	}
+
+	@Test
+	public void testGrowAndReuseIds() {
+		int numAttributes = 100;
+		FDSet fds = new FDSet(numAttributes, 0);
+
+		for (int i = 1; i < numAttributes; i++)
+			for (int j = i + 1; j < numAttributes; j++)
+				fds.addLhs(lhs(numAttributes, i, j));
+		assertEquals(numAttributes - 1 + (numAttributes - 1) * (numAttributes - 2) / 2, fds.announceLhss(10000).length);
+
+		fds.trimTree(1);
+		assertFalse(fds.containsLhs(lhs(numAttributes, 1, 2)));
+		assertEquals(3, fds.getLhsAndGeneralizations(lhs(numAttributes, 1, 2, 99)).size());
+
+		fds.addLhs(lhs(numAttributes, 98, 99));
+		assertTrue(fds.containsLhs(lhs(numAttributes, 98, 99)));
+		assertArrayEquals(new BitSet[] {lhs(numAttributes, 98, 99)}, fds.announceLhss(10));
+	}
+}
@@ -0,0 +1,166 @@
+package de.hpi.octopus.structures;
+
+import static de.hpi.octopus.structures.FDStoreTestUtils.clear;
+import static de.hpi.octopus.structures.FDStoreTestUtils.lhs;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+public class FDStoreTest {
+
+	@Test
+	public void testSortAndDeduplicate() {
+		BitSet[] lhss = {lhs(8, 1), lhs(8, 2, 3, 4), lhs(8, 1), lhs(8, 5, 6), lhs(8, 2, 3, 4)};
+
+		BitSet[] sorted = FDStore.sortAndDeduplicate(lhss);
+
+		assertArrayEquals(new BitSet[] {lhs(8, 2, 3, 4), lhs(8, 5, 6), lhs(8, 1)}, sorted);
+		assertEquals(lhs(8, 1), lhss[0]);
+	}
+
+	@Test
+	public void testInitial() {
+		FDStore[] stores = {new FDSet(5, 0), new FDTree(5, 0), new FDBitTree(5, 0), new FDArenaTree(5, 0)};
+		for (FDStore fds : stores) {
+			for (int i = 1; i < 5; i++)
+				assertTrue(fds.containsLhs(lhs(5, i)));
+			assertFalse(fds.containsLhsOrGeneralization(lhs(5, 0)));
+
+			assertEquals(4, fds.announceLhss(100).length);
+			assertEquals(0, fds.announceLhss(100).length);
+			assertFalse(fds.hasUnannounceLhss());
+		}
+	}
+
+	@Test
+	public void testAddReplacesSpecializations() {
+		// The FDSet keeps specializations when a generalization is added and the FDTree still announces the leaves of a replaced sub-tree
+		FDStore[] stores = {new FDBitTree(6, 0), new FDArenaTree(6, 0)};
+		for (FDStore fds : stores) {
+			clear(fds);
+
+			fds.addLhs(lhs(6, 1, 2, 3));
+			fds.addLhs(lhs(6, 1, 2, 4, 5));
+			fds.addLhs(lhs(6, 4));
+			fds.addLhs(lhs(6, 1, 2));
+
+			// The replaced specializations are neither contained nor announced anymore
+			assertEquals(new HashSet<>(Arrays.asList(lhs(6, 4), lhs(6, 1, 2))), new HashSet<>(fds.getLhsAndGeneralizations(lhs(6, 1, 2, 3, 4, 5))));
+			assertEquals(new HashSet<>(Arrays.asList(lhs(6, 4), lhs(6, 1, 2))), new HashSet<>(Arrays.asList(fds.announceLhss(100))));
+
+			// An lhs that is added after the replacement is queued normally
+			fds.addLhs(lhs(6, 3, 5));
+			assertTrue(fds.containsLhs(lhs(6, 3, 5)));
+			assertArrayEquals(new BitSet[] {lhs(6, 3, 5)}, fds.announceLhss(100));
+		}
+	}
+
+	@Test
+	public void testSpecializeAll() {
+		FDStore[] stores = {new FDSet(5, 0), new FDTree(5, 0), new FDBitTree(5, 0), new FDArenaTree(5, 0)};
+		for (FDStore fds : stores) {
+			fds.announceLhss(10);
+
+			fds.specializeAll(new BitSet[] {lhs(5, 3), lhs(5, 1, 2)}, 0, 0);
+
+			// 1 and 2 would become 13, 14, 23 and 24, but only 13 and 23 are minimal as long as 4 is valid; 3 becomes nothing, because 13 and 23 exist and 4 is valid
+			assertEquals(new HashSet<>(Arrays.asList(lhs(5, 4), lhs(5, 1, 3), lhs(5, 2, 3))), all(fds));
+			assertEquals(2, fds.announceLhss(10).length);
+		}
+	}
+
+	@Test
+	public void testSpecializeAllWithMaxDepth() {
+		for (int maxDepth = 1; maxDepth <= 2; maxDepth++) {
+			FDStore[] stores = {new FDSet(4, 0), new FDTree(4, 0), new FDBitTree(4, 0), new FDArenaTree(4, 0)};
+			for (FDStore fds : stores) {
+				fds.specializeAll(new BitSet[] {lhs(4, 1, 2)}, 0, maxDepth);
+				fds.specializeAll(new BitSet[] {lhs(4, 3)}, 0, maxDepth);
+
+				if (maxDepth == 1)
+					assertTrue(all(fds).isEmpty());
+				else
+					assertEquals(new HashSet<>(Arrays.asList(lhs(4, 1, 3), lhs(4, 2, 3))), all(fds));
+			}
+		}
+	}
+
+	@Test
+	public void testDepthAndTrim() {
+		FDStore[] stores = {new FDSet(6, 0), new FDTree(6, 0), new FDBitTree(6, 0), new FDArenaTree(6, 0)};
+		for (FDStore fds : stores) {
+			assertEquals(1, fds.getDepth());
+
+			for (int i = 1; i < 6; i++)
+				fds.removeLhs(lhs(6, i));
+			fds.addLhs(lhs(6, 1, 2));
+			fds.addLhs(lhs(6, 2, 3, 4, 5));
+			assertEquals(4, fds.getDepth());
+
+			fds.trimTree(2);
+			assertEquals(2, fds.getDepth());
+			assertTrue(fds.containsLhs(lhs(6, 1, 2)));
+			assertFalse(fds.containsLhs(lhs(6, 2, 3, 4, 5)));
+			assertEquals(1, fds.announceLhss(10).length);
+		}
+	}
+
+	@Test
+	public void testSpecializeAllRandomized() {
+		for (int numAttributes : new int[] {12, 70}) {
+			Random random = new Random(numAttributes);
+			int rhs = 3;
+
+			FDStore[] stores = {new FDSet(numAttributes, rhs), new FDTree(numAttributes, rhs), new FDBitTree(numAttributes, rhs), new FDArenaTree(numAttributes, rhs)};
+
+			for (int round = 0; round < 30; round++) {
+				BitSet[] invalidLhss = new BitSet[5];
+				for (int i = 0; i < invalidLhss.length; i++) {
+					invalidLhss[i] = new BitSet(numAttributes);
+					for (int j = random.nextInt(numAttributes / 2); j >= 0; j--)
+						invalidLhss[i].set(random.nextInt(numAttributes));
+					invalidLhss[i].clear(rhs);
+				}
+
+				for (FDStore fds : stores)
+					fds.specializeAll(invalidLhss, rhs, 3);
+
+				// The BitSet hash codes collide a lot on wide relations, so the lhss are compared as strings
+				Set<String> expected = asStrings(all(stores[0]));
+				for (int i = 1; i < stores.length; i++)
+					assertEquals(expected, asStrings(all(stores[i])));
+
+				if (round % 10 == 9) {
+					Set<String> announced = asStrings(Arrays.asList(stores[0].announceLhss(100000)));
+					for (int i = 1; i < stores.length; i++)
+						assertEquals(announced, asStrings(Arrays.asList(stores[i].announceLhss(100000))));
+				}
+			}
+		}
+	}
+
+	private static Set<String> asStrings(Collection<BitSet> lhss) {
+		Set<String> strings = new TreeSet<>();
+		for (BitSet lhs : lhss)
+			strings.add(lhs.toString());
+		return strings;
+	}
+
+	private static Set<BitSet> all(FDStore fds) {
+		BitSet all = new BitSet(fds.getNumAttributes());
+		all.set(0, fds.getNumAttributes());
+		List<BitSet> lhss = fds.getLhsAndGeneralizations(all);
+		return new HashSet<>(lhss);
+	}
+}
@@ -0,0 +1,28 @@
+package de.hpi.octopus.structures;
+
+/**
+ * Helpers that the tests of the FDStore implementations share.
+ */
+final class FDStoreTestUtils {
+
+	private FDStoreTestUtils() {
+	}
+
+	static BitSet lhs(int numAttributes, int... attributes) {
+		BitSet lhs = new BitSet(numAttributes);
+		for (int attribute : attributes)
+			lhs.set(attribute);
+		return lhs;
+	}
+
+	/**
+	 * Remove all lhss, including the initial unary ones, and announce the removal so that the store starts empty.
+	 */
+	static void clear(FDStore fds) {
+		BitSet all = new BitSet(fds.getNumAttributes());
+		all.set(0, fds.getNumAttributes());
+		for (BitSet lhs : fds.getLhsAndGeneralizations(all))
+			fds.removeLhs(lhs.clone());
+		fds.announceLhss(fds.getNumAttributes());
+	}
+}
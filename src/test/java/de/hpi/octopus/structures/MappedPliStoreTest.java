@@ -0,0 +1,49 @@
+package de.hpi.octopus.structures;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MappedPliStoreTest {
+
+	private Path file;
+	
+	@Before
+	public void setUp() throws Exception {
+		this.file = Files.createTempFile("octopus-", ".plis");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		Files.deleteIfExists(this.file);
+	}
+	
+	@Test
+	public void testWriteAndRead() throws IOException {
+		int[][][] plis = {
+				{{0, 2, 4}, {1, 3}},
+				{},
+				{{4, 1}},
+				{{5, 6, 7, 8, 9, 0}}};
+		
+		PliStore expected = new ArrayPliStore(plis);
+		PliStore written = MappedPliStore.write(this.file, plis, 10);
+		PliStore read = MappedPliStore.read(this.file);
+		
+		for (PliStore store : new PliStore[] {written, read}) {
+			assertEquals(plis.length, store.getNumAttributes());
+			
+			for (int attribute = 0; attribute < plis.length; attribute++) {
+				assertEquals(expected.getNumClusteredRecords(attribute), store.getNumClusteredRecords(attribute));
+				assertArrayEquals(plis[attribute], store.getPli(attribute));
+			}
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package de.hpi.octopus.structures;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MappedRecordStoreTest {
+
+	private Path file;
+	
+	@Before
+	public void setUp() throws Exception {
+		this.file = Files.createTempFile("octopus-", ".records");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		Files.deleteIfExists(this.file);
+	}
+	
+	@Test
+	public void testWriteAndRead() throws IOException {
+		int numRecords = 2 * 70000;
+		int[] numClusters = {0, 3, 256, 65536};
+		
+		int[][][] plis = new int[numClusters.length][][];
+		for (int attribute = 0; attribute < numClusters.length; attribute++) {
+			plis[attribute] = new int[numClusters[attribute]][];
+			for (int clusterId = 0; clusterId < numClusters[attribute]; clusterId++)
+				plis[attribute][clusterId] = new int[] {2 * clusterId, 2 * clusterId + 1};
+		}
+		
+		for (boolean compact : new boolean[] {true, false}) {
+			RecordStore expected = new ColumnarRecordStore(plis, numRecords, compact);
+			RecordStore written = MappedRecordStore.write(this.file, plis, numRecords, compact);
+			RecordStore read = MappedRecordStore.read(this.file);
+			
+			for (RecordStore records : new RecordStore[] {written, read}) {
+				assertEquals(numRecords, records.getNumRecords());
+				assertEquals(numClusters.length, records.getNumAttributes());
+				assertEquals(expected.getByteSize(), records.getByteSize());
+				
+				for (int attribute = 0; attribute < numClusters.length; attribute++)
+					for (int record = 0; record < numRecords; record++)
+						assertEquals(expected.get(record, attribute), records.get(record, attribute));
+				
+				BitSet expectedAgreeSet = new BitSet(numClusters.length);
+				BitSet agreeSet = new BitSet(numClusters.length);
+				for (int record = 0; record < 1000; record++) {
+					expected.match(record, record ^ 1, expectedAgreeSet);
+					records.match(record, record ^ 1, agreeSet);
+					assertEquals(expectedAgreeSet, agreeSet);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package de.hpi.octopus.structures;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class MatchSetTest {
+
+	private static BitSet randomBitSet(Random random, int numAttributes) {
+		BitSet bitset = new BitSet(numAttributes);
+		for (int attribute = 0; attribute < numAttributes; attribute++)
+			if (random.nextInt(4) == 0)
+				bitset.set(attribute);
+		return bitset;
+	}
+
+	@Test
+	public void testAddAndContains() {
+		MatchSet set = new MatchSet(20);
+
+		BitSet bitset = new BitSet(20);
+		assertFalse(set.contains(bitset));
+		assertTrue(set.addIfAbsent(bitset));
+		assertFalse(set.addIfAbsent(bitset));
+		assertTrue(set.contains(bitset));
+
+		bitset.set(3);
+		assertFalse(set.contains(bitset));
+		assertTrue(set.addIfAbsent(bitset));
+		assertFalse(set.addIfAbsent(bitset.clone()));
+
+		assertEquals(2, set.size());
+	}
+
+	@Test
+	public void testIsExact() {
+		// Many agree-sets over few attributes would fill a small Bloom filter, but the match set must still tell them apart
+		Random random = new Random(42);
+		MatchSet set = new MatchSet(130);
+		Set<String> expected = new HashSet<>();
+		List<BitSet> added = new ArrayList<>();
+
+		for (int i = 0; i < 50000; i++) {
+			BitSet bitset = randomBitSet(random, 130);
+			assertEquals(expected.add(bitset.toString()), set.addIfAbsent(bitset));
+			added.add(bitset);
+		}
+		assertEquals(expected.size(), set.size());
+
+		for (BitSet bitset : added)
+			assertTrue(set.contains(bitset));
+		for (int i = 0; i < 50000; i++) {
+			BitSet bitset = randomBitSet(random, 130);
+			assertEquals(expected.contains(bitset.toString()), set.contains(bitset));
+		}
+	}
+
+	@Test
+	public void testDifferentCapacities() {
+		MatchSet set = new MatchSet(10);
+
+		BitSet small = new BitSet(10);
+		small.set(5);
+		BitSet large = new BitSet(200);
+		large.set(5);
+
+		assertTrue(set.addIfAbsent(small));
+		assertTrue(set.contains(large));
+		assertFalse(set.addIfAbsent(large));
+	}
+
+	@Test
+	public void testMerge() {
+		Random random = new Random(42);
+		MatchSet set = new MatchSet(30);
+		MatchSet other = new MatchSet(30);
+
+		BitSet element = randomBitSet(random, 30);
+		BitSet otherElement = randomBitSet(random, 30);
+		set.addIfAbsent(element);
+		other.addIfAbsent(otherElement);
+		other.addIfAbsent(element);
+		set.merge(other);
+
+		assertTrue(set.contains(element));
+		assertTrue(set.contains(otherElement));
+		assertEquals(2, set.size());
+	}
+
+	@Test
+	public void testConcurrentReadsDuringWrites() throws InterruptedException {
+		final MatchSet set = new MatchSet(70);
+		final List<BitSet> elements = new ArrayList<>();
+		Random random = new Random(42);
+		for (int i = 0; i < 20000; i++)
+			elements.add(randomBitSet(random, 70));
+
+		// Elements that were added before a reader started must always be visible to it, even while their segments grow
+		for (int i = 0; i < 1000; i++)
+			set.addIfAbsent(elements.get(i));
+		final boolean[] failed = new boolean[1];
+		Thread reader = new Thread(() -> {
+			for (int round = 0; round < 50; round++)
+				for (int i = 0; i < 1000; i++)
+					if (!set.contains(elements.get(i)))
+						failed[0] = true;
+		});
+		reader.start();
+		for (BitSet element : elements)
+			set.addIfAbsent(element);
+		reader.join();
+
+		assertFalse(failed[0]);
+	}
+}
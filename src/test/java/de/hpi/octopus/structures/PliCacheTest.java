@@ -0,0 +1,236 @@
+package de.hpi.octopus.structures;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class PliCacheTest {
+
+	private static int[][] pli(int numClusters, int clusterSize) {
+		int[][] pli = new int[numClusters][clusterSize];
+		for (int i = 0, record = 0; i < numClusters; i++)
+			for (int j = 0; j < clusterSize; j++)
+				pli[i][j] = record++;
+		return pli;
+	}
+
+	private static PliCache cache() {
+		int[][][] unaryPlis = new int[4][][];
+		for (int i = 0; i < unaryPlis.length; i++)
+			unaryPlis[i] = pli(10, 10);
+		return new PliCache(new ArrayPliStore(unaryPlis));
+	}
+
+	private static void read(PliCache cache, int times, int... attributes) {
+		for (int i = 0; i < times; i++)
+			cache.get(attributes);
+	}
+
+	@Test
+	public void testAddAndBlacklist() {
+		PliCache cache = cache();
+
+		cache.add(new int[] {0, 1}, pli(5, 4));
+		cache.add(new int[] {0, 1, 2}, pli(2, 3));
+		long byteSize = cache.getByteSize();
+		assertTrue(byteSize > 0);
+		assertNotNull(cache.get(0, 1, 2).getPli());
+
+		// Blacklisting a prefix drops all of its extensions
+		cache.blacklist(new int[] {0, 1});
+		assertTrue(cache.get(0, 1).isBlacklisted());
+		assertNull(cache.get(0, 1, 2));
+		assertTrue(cache.getByteSize() < byteSize);
+
+		// A pli below a blacklisted prefix is neither added nor blacklisted
+		cache.add(new int[] {0, 1, 3}, pli(1, 2));
+		cache.blacklist(new int[] {0, 1, 2});
+		assertNull(cache.get(0, 1, 3));
+
+		// A blacklist entry for a deeper pli is created below its cached prefix
+		cache.add(new int[] {1, 2}, pli(5, 4));
+		cache.blacklist(new int[] {1, 2, 3});
+		assertTrue(cache.get(1, 2, 3).isBlacklisted());
+		assertNotNull(cache.get(1, 2).getPli());
+	}
+
+	@Test
+	public void testPruneEvictsColdPlisFirst() {
+		PliCache cache = cache();
+
+		cache.add(new int[] {0, 1}, pli(5, 4));
+		cache.add(new int[] {0, 2}, pli(5, 4));
+		cache.add(new int[] {0, 3}, pli(5, 4));
+		read(cache, 5, 0, 1);
+		read(cache, 2, 0, 3);
+
+		cache.prune(cache.getByteSize() - 1);
+
+		assertNull(cache.get(0, 2));
+		assertNotNull(cache.get(0, 1));
+		assertNotNull(cache.get(0, 3));
+
+		// Evicted plis can be cached again
+		cache.add(new int[] {0, 2}, pli(5, 4));
+		assertNotNull(cache.get(0, 2));
+	}
+
+	@Test
+	public void testPruneEvictsExtensions() {
+		PliCache cache = cache();
+
+		cache.add(new int[] {0, 1}, pli(5, 4));
+		cache.add(new int[] {0, 3}, pli(5, 4));
+		cache.add(new int[] {0, 3, 1}, pli(2, 4));
+		read(cache, 10, 0, 1);
+		read(cache, 50, 0, 3, 1);
+
+		// The reads of 0,3,1 also count for its prefix 0,3, so the cold 0,1 is evicted and not the prefix of the hot extension
+		cache.prune(cache.getByteSize() - 1);
+
+		assertNotNull(cache.get(0, 3, 1));
+		assertNotNull(cache.get(0, 3));
+		assertNull(cache.get(0, 1));
+	}
+
+	@Test
+	public void testPruneConsidersCost() {
+		int[][][] unaryPlis = {pli(10, 10), pli(10, 10), pli(2, 2)};
+		PliCache cache = new PliCache(new ArrayPliStore(unaryPlis));
+
+		// Both plis are equally large and equally often read, but 2,1 is cheaper to recompute, because the pli of 2 is smaller
+		cache.add(new int[] {0, 1}, pli(2, 2));
+		cache.add(new int[] {2, 1}, pli(2, 2));
+		read(cache, 3, 0, 1);
+		read(cache, 3, 2, 1);
+
+		cache.prune(cache.getByteSize() - 1);
+
+		assertNull(cache.get(2, 1));
+		assertNotNull(cache.get(0, 1));
+	}
+
+	@Test
+	public void testReadsDecay() {
+		int[][][] unaryPlis = new int[4][][];
+		for (int i = 0; i < unaryPlis.length; i++)
+			unaryPlis[i] = pli(10, 10);
+		PliCache cache = new PliCache(new ArrayPliStore(unaryPlis), Long.MAX_VALUE, 10);
+
+		cache.add(new int[] {0, 1}, pli(5, 4));
+		cache.add(new int[] {0, 2}, pli(5, 4));
+
+		// 0,1 was hot early on
+		read(cache, 20, 0, 1);
+
+		// The reads decay with the lookups of other plis, not with the prunings
+		read(cache, 60, 3);
+		long byteSize = cache.getByteSize();
+		for (int i = 0; i < 6; i++)
+			cache.prune(byteSize);
+
+		// 0,2 is hot now and the early reads of 0,1 have decayed
+		read(cache, 5, 0, 2);
+		read(cache, 1, 0, 1);
+		cache.prune(byteSize - 1);
+
+		assertNull(cache.get(0, 1));
+		assertNotNull(cache.get(0, 2));
+	}
+
+	@Test
+	public void testAddPrunesWhenFull() {
+		int[][][] unaryPlis = {pli(10, 10), pli(10, 10), pli(10, 10)};
+		PliCache cache = new PliCache(new ArrayPliStore(unaryPlis), 1);
+
+		// Every added pli exceeds the maximum size, so the adding thread evicts it right away
+		cache.add(new int[] {0, 1}, pli(5, 4));
+		assertNull(cache.get(0, 1));
+		assertEquals(0, cache.getByteSize());
+	}
+	
+	@Test
+	public void testAddPrunesToLowWaterMark() {
+		int[][][] unaryPlis = {pli(10, 10), pli(10, 10), pli(10, 10), pli(10, 10)};
+		PliCache probe = new PliCache(new ArrayPliStore(unaryPlis));
+		probe.add(new int[] {0, 1}, pli(5, 4));
+		long pliByteSize = probe.getByteSize();
+		
+		// Three plis fit; the fourth one triggers a pruning that frees more than just the bytes of the new pli
+		PliCache cache = new PliCache(new ArrayPliStore(unaryPlis), 3 * pliByteSize);
+		cache.add(new int[] {0, 1}, pli(5, 4));
+		cache.add(new int[] {0, 2}, pli(5, 4));
+		cache.add(new int[] {0, 3}, pli(5, 4));
+		assertEquals(3 * pliByteSize, cache.getByteSize());
+		
+		cache.add(new int[] {1, 2}, pli(5, 4));
+		assertTrue(cache.getByteSize() <= 0.9 * 3 * pliByteSize);
+		assertEquals(2 * pliByteSize, cache.getByteSize());
+		
+		// The next pli fits again without pruning
+		cache.add(new int[] {1, 3}, pli(5, 4));
+		assertEquals(3 * pliByteSize, cache.getByteSize());
+	}
+
+	@Test
+	public void testConcurrentUpdates() throws InterruptedException {
+		final int numAttributes = 6;
+		int[][][] unaryPlis = new int[numAttributes][][];
+		for (int i = 0; i < numAttributes; i++)
+			unaryPlis[i] = pli(10, 10);
+		final PliCache cache = new PliCache(new ArrayPliStore(unaryPlis), 20000);
+
+		final AtomicInteger failures = new AtomicInteger();
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < 8; t++) {
+			final Random random = new Random(t);
+			threads.add(new Thread(() -> {
+				try {
+					for (int i = 0; i < 20000; i++) {
+						int[] attributes = new int[2 + random.nextInt(2)];
+						for (int j = 0; j < attributes.length; j++)
+							attributes[j] = random.nextInt(numAttributes);
+
+						// The pli of an element can be evicted at any time, so it is read only once
+						PliCacheElement element = cache.get(attributes);
+						int[][] pli = (element != null) ? element.getPli() : null;
+						if (pli != null) {
+							if (pli.length != 20)
+								failures.incrementAndGet();
+						}
+						else if (random.nextInt(10) == 0)
+							cache.blacklist(attributes);
+						else
+							cache.add(attributes, pli(20, 5));
+					}
+				}
+				catch (RuntimeException e) {
+					failures.incrementAndGet();
+				}
+			}));
+		}
+		for (Thread thread : threads)
+			thread.start();
+		for (Thread thread : threads)
+			thread.join();
+
+		assertEquals(0, failures.get());
+
+		// The concurrently accounted size must match the size of the plis that are still reachable
+		long reachableByteSize = 0;
+		for (int attribute = 0; attribute < numAttributes; attribute++) {
+			PliCacheElement unary = cache.get(attribute);
+			reachableByteSize += unary.getDeepByteSize() - unary.getByteSize();
+		}
+		assertEquals(reachableByteSize, cache.getByteSize());
+		assertTrue(cache.getByteSize() > 0);
+	}
+}
@@ -0,0 +1,73 @@
+package de.hpi.octopus.structures;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class ValueCombinationMapTest {
+
+	private final int[][] rows = {
+			{0, 0, 1},
+			{0, 1, 1},
+			{0, 0, 2},
+			{1, 0, 2},
+			{0, 1, 3}};
+
+	private final RecordStore records = new RecordStore() {
+		@Override
+		public int getNumRecords() {
+			return rows.length;
+		}
+		@Override
+		public int getNumAttributes() {
+			return rows[0].length;
+		}
+		@Override
+		public int get(int record, int attribute) {
+			return rows[record][attribute];
+		}
+		@Override
+		public long getByteSize() {
+			return 4L * rows.length * rows[0].length;
+		}
+	};
+
+	@Test
+	public void testPutIfAbsent() {
+		ValueCombinationMap map = new ValueCombinationMap(this.records);
+		int[] lhs = {0, 1};
+
+		map.reset(5);
+		assertEquals(-1, map.putIfAbsent(0, lhs, this.rows[0][2]));
+		assertEquals(-1, map.putIfAbsent(1, lhs, this.rows[1][2]));
+
+		int slot = map.putIfAbsent(2, lhs, this.rows[2][2]);
+		assertEquals(0, map.getRecordId(slot));
+		assertEquals(1, map.getValue(slot));
+
+		assertEquals(-1, map.putIfAbsent(3, lhs, this.rows[3][2]));
+
+		slot = map.putIfAbsent(4, lhs, this.rows[4][2]);
+		assertEquals(1, map.getRecordId(slot));
+		assertEquals(1, map.getValue(slot));
+	}
+
+	@Test
+	public void testReset() {
+		ValueCombinationMap map = new ValueCombinationMap(this.records);
+		int[] lhs = {0};
+
+		map.reset(2);
+		assertEquals(-1, map.putIfAbsent(0, lhs, 0));
+		assertEquals(0, map.getRecordId(map.putIfAbsent(1, lhs, 1)));
+
+		map.reset(100);
+		assertEquals(-1, map.putIfAbsent(1, lhs, 1));
+		assertEquals(1, map.getRecordId(map.putIfAbsent(0, lhs, 0)));
+
+		map.reset(2);
+		assertEquals(-1, map.putIfAbsent(2, lhs, 2));
+		assertEquals(-1, map.putIfAbsent(3, lhs, 3));
+		assertEquals(2, map.getRecordId(map.putIfAbsent(4, lhs, 4)));
+	}
+}